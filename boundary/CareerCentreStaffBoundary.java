@@ -14,12 +14,17 @@ import entity.enums.InternshipStatus;
 import entity.enums.Major;
 import entity.Notification;
 import util.ConsoleUtil;
+import util.filter.CompanyFilter;
 import util.filter.Filter;
 import util.filter.LevelFilter;
 import util.filter.MajorFilter;
 import util.filter.StatusFilter;
 
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
 import java.util.List;
 
 import manager.NotificationManager;
@@ -32,7 +37,8 @@ import manager.NotificationManager;
  *     <li>Viewing, approving and rejecting pending CompanyRep registrations</li>
  *     <li>Viewing, approving and rejecting internship postings</li>
  *     <li>Processing student withdrawal requests</li>
- *     <li>Generating internship reports using filters</li>
+ *     <li>Generating internship reports using filters, optionally including archived internships</li>
+ *     <li>Finding internships by application window: open on a date, or closing within a period</li>
  *     <li>Displaying notifications sent to Career Centre Staff</li>
  * </ul>
  */
@@ -71,9 +77,10 @@ public class CareerCentreStaffBoundary {
             System.out.println("2. View / Approve / Reject Internship Postings");
             System.out.println("3. Handle Withdrawal Requests");
             System.out.println("4. Generate Internship Report");
-            System.out.println("5. View Notifications");
-            System.out.println("6. Change Password");
-            System.out.println("7. Logout");
+            System.out.println("5. Find Internships by Application Window");
+            System.out.println("6. View Notifications");
+            System.out.println("7. Change Password");
+            System.out.println("8. Logout");
 
             String choice = console.readLine("Enter your choice: ");
 
@@ -82,9 +89,10 @@ public class CareerCentreStaffBoundary {
                 case "2" -> displayPendingInternships(careerCentreStaff);
                 case "3" -> displayPendingWithdrawals(careerCentreStaff);
                 case "4" -> displayReport();
-                case "5" -> displayNotifications(careerCentreStaff);
-                case "6" -> loginBoundary.handlePasswordChange(careerCentreStaff);
-                case "7" -> {
+                case "5" -> displayApplicationWindows();
+                case "6" -> displayNotifications(careerCentreStaff);
+                case "7" -> loginBoundary.handlePasswordChange(careerCentreStaff);
+                case "8" -> {
                     System.out.println("Logging out...");
                     return;
                 }
@@ -193,7 +201,7 @@ public class CareerCentreStaffBoundary {
 
         System.out.println("\n=== Pending Withdrawal Requests ===");
         for (InternshipApplication internshipApplication : pendingWithdrawals) {
-            System.out.println(internshipApplication.getId() + " | Student: " + internshipApplication.getStudent().getId()
+            System.out.println(internshipApplication.getId() + " | Student: " + internshipApplication.getStudentId()
                     + " | Company: " + internshipApplication.getInternship().getCompanyName() + " | Internship: " + internshipApplication.getInternship().getInternshipTitle());
         }
 
@@ -243,11 +251,13 @@ public class CareerCentreStaffBoundary {
 
     /**
      * Generates and displays an internship report based on selected filters.
-     * The filtering logic is performed by InternshipController.
+     * The filtering logic is performed by InternshipController. Archived internships
+     * (closed postings from earlier semesters) are only included if the staff asks for them.
      */
     public void displayReport(){
         List<Filter> filters = this.getFilters();
-        ArrayList<Internship> report = internshipController.generateReport((ArrayList<Filter>) filters);
+        boolean includeArchived = console.readLine("Include archived internships? (y/n): ").trim().equalsIgnoreCase("y");
+        ArrayList<Internship> report = internshipController.generateReport((ArrayList<Filter>) filters, includeArchived);
         for (Internship internship : report){
             displayInternship(internship);
         }
@@ -260,6 +270,7 @@ public class CareerCentreStaffBoundary {
      *     <li>Major</li>
      *     <li>Internship level</li>
      *     <li>Internship status</li>
+     *     <li>Company name</li>
      * </ul>
      *
      * @return a list of Filter objects to be applied by the controller
@@ -273,7 +284,8 @@ public class CareerCentreStaffBoundary {
             System.out.println("1. Add Major filter");
             System.out.println("2. Add Level filter");
             System.out.println("3. Add Status filter");
-            System.out.println("4. Generate Report");
+            System.out.println("4. Add Company filter");
+            System.out.println("5. Generate Report");
 
             choice = console.readInt("Enter choice: ");
 
@@ -312,16 +324,115 @@ public class CareerCentreStaffBoundary {
                     }
                 }
 
-                case 4 -> System.out.println("Generating report...");
+                case 4 -> {
+                    String input = console.readLine("Enter company name (or part of it): ");
+                    if (input.isEmpty()) {
+                        System.out.println("Invalid company name.");
+                    } else {
+                        filters.add(new CompanyFilter(input));
+                        System.out.println("Company filter added.");
+                    }
+                }
+
+                case 5 -> System.out.println("Generating report...");
 
                 default -> System.out.println("Invalid choice.");
             }
 
-        } while (choice != 4);
+        } while (choice != 5);
 
         return filters;
     }
 
+    /**
+     * Lets staff look up internships by their application window: those accepting applications
+     * on a given date, or those whose applications close between two dates. Archived internships
+     * are not searched.
+     */
+    private void displayApplicationWindows() {
+        System.out.println("\n=== Find Internships by Application Window ===");
+        System.out.println("1. Accepting applications on a date");
+        System.out.println("2. Applications closing between two dates");
+        System.out.println("3. Back");
+
+        List<Internship> found;
+        switch (console.readInt("Enter choice: ")) {
+            case 1 -> found = internshipController.getInternshipsOpenOn(readDate("Date (DD/MM/YYYY): "));
+            case 2 -> {
+                Date from = readDate("From (DD/MM/YYYY): ");
+                Date to = readDate("To (DD/MM/YYYY): ");
+                if (to.before(from)) {
+                    System.out.println("The end date is before the start date.");
+                    return;
+                }
+                found = internshipController.getInternshipsClosingBetween(from, endOfDay(to));
+            }
+            case 3 -> {
+                return;
+            }
+            default -> {
+                System.out.println("Invalid choice.");
+                return;
+            }
+        }
+
+        if (found.isEmpty()) {
+            System.out.println("No internships found.");
+            return;
+        }
+
+        SimpleDateFormat formatter = new SimpleDateFormat("dd/MM/yyyy");
+        for (Internship internship : found) {
+            System.out.println(internship.getId() + " | " + internship.getInternshipTitle()
+                    + " | Company: " + internship.getCompanyName()
+                    + " | Window: " + formatDate(formatter, internship.getAppOpenDate())
+                    + " - " + formatDate(formatter, internship.getAppCloseDate())
+                    + " | Status: " + internship.getInternshipStatus()
+                    + (internship.getVisibility() ? "" : " (hidden)"));
+        }
+    }
+
+    /**
+     * Reads a date in strict DD/MM/YYYY format, re-prompting until a valid date is given.
+     *
+     * @param prompt the message shown to the user
+     * @return the date, at the start of the day
+     */
+    private Date readDate(String prompt) {
+        SimpleDateFormat formatter = new SimpleDateFormat("dd/MM/yyyy");
+        formatter.setLenient(false); // don't accept invalid dates
+
+        Date date = null;
+        while (date == null) {
+            String input = console.readLine(prompt);
+            try {
+                date = formatter.parse(input);
+            } catch (ParseException e) {
+                System.out.println("Invalid date format or date. Please use DD/MM/YYYY");
+            }
+        }
+        return date;
+    }
+
+    /**
+     * Returns the last millisecond of the day a date falls on, so a period entered in whole
+     * days takes in all of its last day.
+     *
+     * @param date the start of the day
+     * @return the end of the same day
+     */
+    private static Date endOfDay(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        calendar.add(Calendar.MILLISECOND, -1);
+        return calendar.getTime();
+    }
+
+    private static String formatDate(SimpleDateFormat formatter, Date date) {
+        return date == null ? "-" : formatter.format(date);
+    }
+
     /**
      * Displays all notifications addressed to the logged-in staff member.
      * Notifications are retrieved from the NotificationManager.
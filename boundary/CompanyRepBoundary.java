@@ -461,7 +461,7 @@ public class CompanyRepBoundary {
         }
         System.out.println("\n=== Applications ===");
         for (InternshipApplication internshipApplication: internshipApplications) {
-            System.out.println(internshipApplication.getId() + " | Student: " + internshipApplication.getStudent().getId() + " | Status: " + internshipApplication.getApplicationStatus());
+            System.out.println(internshipApplication.getId() + " | Student: " + internshipApplication.getStudentId() + " | Status: " + internshipApplication.getApplicationStatus());
         }
         return true;
     }
@@ -8,8 +8,15 @@ import entity.CareerCentreStaff;
 import entity.CompanyRep;
 import entity.Student;
 import entity.User;
+import repository.EntityCodecs;
 import repository.InternshipApplicationRepository;
 import repository.InternshipRepository;
+import repository.LazyBinaryStorageEngine;
+import repository.LogStructuredStorageEngine;
+import repository.LsmStorageEngine;
+import repository.MappedInternshipStorageEngine;
+import repository.ReferenceResolver;
+import repository.UnitOfWork;
 import repository.UserRepository;
 import util.ConsoleUtil;
 import entity.CareerCentreStaff;
@@ -18,6 +25,13 @@ import entity.Student;
 import entity.enums.Major;
 import entity.enums.RegistrationStatus;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
 /**
  * Entry point and application coordinator for the Internship Placement Management System.
  *
@@ -27,10 +41,23 @@ import entity.enums.RegistrationStatus;
  */
 public class MainApp {
 
+    /** How long a repository mutation may wait in memory before the write-behind flusher persists it. */
+    private static final long FLUSH_INTERVAL_MILLIS = 200;
+
+    /** The number of pending repository mutations that triggers an early flush. */
+    private static final int MAX_PENDING_WRITES = 100;
+
+    /** How often closed internships and finished applications are moved to the archive. */
+    private static final long ARCHIVE_INTERVAL_HOURS = 24;
+
+    /** Prints how long each startup phase took, when the programme is run with {@code -Dstartup.timing=true}. */
+    private static final boolean STARTUP_TIMING = Boolean.getBoolean("startup.timing");
+
     private final UserRepository userRepository;
     private final InternshipRepository internshipRepository;
     private final InternshipApplicationRepository internshipApplicationRepository;
     private final ConsoleUtil console;
+    private final ScheduledExecutorService archiver;
 
     private final AuthController authController;
     private final InternshipController internshipController;
@@ -42,6 +69,20 @@ public class MainApp {
     private final CompanyRepBoundary companyRepBoundary;
     private final CareerCentreStaffBoundary careerCentreStaffBoundary;
 
+    /** A startup phase's result together with how long it took. */
+    private record Timed<T>(T value, long millis) {
+    }
+
+    private static <T> Timed<T> timed(Supplier<T> phase) {
+        long start = System.nanoTime();
+        T value = phase.get();
+        return new Timed<>(value, elapsedMillis(start));
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
     /**
      * Initializes the application by creating repositories, controllers, and
      * boundary classes, and wiring all required dependencies.
@@ -49,13 +90,49 @@ public class MainApp {
      * <p>This constructor acts as a simple dependency injector, and assembles all major modules of the system before user interaction begins.</p>
      */
     public MainApp() {
-        userRepository = new UserRepository();
-        internshipRepository = new InternshipRepository();
-        internshipApplicationRepository = new InternshipApplicationRepository();
+        // The repositories are independent until their references are resolved, so they are
+        // loaded concurrently; startup then takes about as long as the slowest file.
+        long startupStart = System.nanoTime();
+        ExecutorService loader = Executors.newFixedThreadPool(3);
+
+        // Users are only ever looked up one at a time (at login, or through a reference), so they
+        // are loaded lazily: startup reads just their offset index, and a session decodes only the
+        // users it touches. Internships and applications are indexed and scanned as a whole, so
+        // they are loaded eagerly. Internships are stored in memory-mapped rows that point to their
+        // records, so a save writes one record rather than the whole file. Applications change on every apply, approval and
+        // withdrawal, so they go to a log-structured merge engine that never rewrites unchanged
+        // applications; users use the compact binary encoding and log their writes.
+        CompletableFuture<Timed<UserRepository>> users = CompletableFuture.supplyAsync(() -> timed(() -> new UserRepository(
+                new LogStructuredStorageEngine<>(new LazyBinaryStorageEngine<>(UserRepository.FILEPATH, EntityCodecs.users())))), loader);
+        CompletableFuture<Timed<InternshipRepository>> internships = CompletableFuture.supplyAsync(() -> timed(() -> new InternshipRepository(
+                new MappedInternshipStorageEngine(InternshipRepository.FILEPATH))), loader);
+        CompletableFuture<Timed<InternshipApplicationRepository>> applications = CompletableFuture.supplyAsync(() -> timed(() -> new InternshipApplicationRepository(
+                new LsmStorageEngine<>(InternshipApplicationRepository.FILEPATH, EntityCodecs.internshipApplications()))), loader);
+
+        userRepository = users.join().value();
+        internshipRepository = internships.join().value();
+        internshipApplicationRepository = applications.join().value();
+        loader.shutdown();
+        long loadMillis = elapsedMillis(startupStart);
+
+        Timed<Void> linking = timed(() -> {
+            UnitOfWork.recover(UnitOfWork.JOURNAL_PATH, userRepository, internshipRepository, internshipApplicationRepository);
+            ReferenceResolver.resolve(userRepository, internshipRepository, internshipApplicationRepository);
+            return null;
+        });
+        if (STARTUP_TIMING) {
+            System.out.printf("Loaded users in %d ms, internships in %d ms, applications in %d ms (%d ms in parallel); " +
+                            "recovered and linked references in %d ms.%n",
+                    users.join().millis(), internships.join().millis(), applications.join().millis(), loadMillis, linking.millis());
+        }
+        userRepository.enableWriteBehind(FLUSH_INTERVAL_MILLIS, MAX_PENDING_WRITES, false);
+        internshipRepository.enableWriteBehind(FLUSH_INTERVAL_MILLIS, MAX_PENDING_WRITES, false);
+        internshipApplicationRepository.enableWriteBehind(FLUSH_INTERVAL_MILLIS, MAX_PENDING_WRITES, false);
         console = new ConsoleUtil();
 
         authController = new AuthController(userRepository);
         internshipController = new InternshipController(internshipRepository, userRepository);
+        internshipRepository.addWindowListener(internshipController::announceWindowChange);
         internshipApplicationController = new InternshipApplicationController(internshipApplicationRepository, internshipRepository, userRepository);
         companyRepController = new CompanyRepController(userRepository);
 
@@ -64,6 +141,33 @@ public class MainApp {
         companyRepBoundary = new CompanyRepBoundary(companyRepController, internshipController, internshipApplicationController, console, loginBoundary);
         careerCentreStaffBoundary = new CareerCentreStaffBoundary(internshipController, companyRepController, internshipApplicationController, loginBoundary);
         initializeTestData(); 
+
+        // Closed internships and finished applications are archived in the background, once at
+        // startup and then daily, so the lists that listings and checks scan only hold what is in use.
+        // The daily run also checks the per-student application counts, notifying staff of corrections.
+        archiver = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        archiver.scheduleWithFixedDelay(this::archive, 0, ARCHIVE_INTERVAL_HOURS, TimeUnit.HOURS);
+    }
+
+    /**
+     * Moves finished applications, and then closed internships, to the repositories' cold tiers,
+     * and rebuilds the application counts kept per student; the career centre staff are notified
+     * of any that were wrong.
+     */
+    private void archive() {
+        long now = System.currentTimeMillis();
+        try {
+            internshipApplicationController.archiveFinishedApplications(now);
+            internshipController.archiveClosedInternships(now);
+            internshipApplicationController.checkApplicationTallies();
+        } catch (RuntimeException e) {
+            // a failed run must not cancel the later ones
+            e.printStackTrace();
+        }
     }
 
     /**
@@ -98,6 +202,15 @@ public class MainApp {
                 }
                 case "2" -> loginBoundary.handleRegistration();
                 case "3" -> {
+                    archiver.shutdown();
+                    try {
+                        archiver.awaitTermination(1, TimeUnit.MINUTES);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    userRepository.close();
+                    internshipRepository.close();
+                    internshipApplicationRepository.close();
                     System.out.println("Goodbye!");
                     return;
                 }
@@ -130,7 +243,7 @@ public class MainApp {
 
     private void initializeTestData() {
         // Only add data if the user list is empty (fresh start)
-        if (userRepository.findAll().isEmpty()) {
+        if (userRepository.snapshot().isEmpty()) {
             System.out.println("--- Initializing Rich Test Data ---");
 
             CareerCentreStaff s1 = new CareerCentreStaff("STAFF0001", "Alice Tan", "password1", "CCDS");
@@ -2,7 +2,6 @@ package control;
 
 import java.util.List;
 
-import entity.CareerCentreStaff;
 import entity.CompanyRep;
 import entity.User;
 import repository.UserRepository;
@@ -132,10 +131,7 @@ public class AuthController{
 
         userRepository.save(companyRep);
 
-        List<String> careerStaffIds = userRepository.findAll().stream()
-                                                    .filter(user -> user instanceof CareerCentreStaff) // or check role
-                                                    .map(User::getId)
-                                                    .toList();
+        List<String> careerStaffIds = userRepository.getCareerCentreStaffIds();
             for (String staffId : careerStaffIds) {
                 notificationManager.sendNotification(staffId, "New company representative registered – awaiting approval.");
             }
@@ -1,11 +1,11 @@
 package control;
 
 import entity.InternshipApplication;
-import entity.CareerCentreStaff;
 import entity.Internship;
 import entity.enums.ApplicationStatus;
 import repository.InternshipApplicationRepository;
 import repository.InternshipRepository;
+import repository.UnitOfWork;
 import repository.UserRepository;
 import entity.Student;
 import entity.User;
@@ -15,7 +15,6 @@ import entity.enums.Major;
 import manager.NotificationManager;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -48,18 +47,15 @@ public class InternshipApplicationController {
         this.notificationManager = manager;
     }
 
-    // student accepts the offer
+    // student accepts the offer; all resulting changes are committed together
     public boolean acceptOffer(InternshipApplication intApp) { 
         if (intApp.getApplicationStatus() == ApplicationStatus.SUCCESSFUL && !intApp.getOfferAccepted()) {
+            UnitOfWork unitOfWork = new UnitOfWork();
             intApp.setOfferAccepted(true);
-            internshipApplicationRepository.save(intApp); //check if update = save
+            unitOfWork.save(internshipApplicationRepository, intApp);
 
             // after student accepts one internship offer, they will withdraw all their other applications
-            Student student = intApp.getStudent();
-            List<InternshipApplication> allApps = internshipApplicationRepository.findAll()
-            .stream()
-            .filter(a -> a.getStudent().getId().equals(student.getId()))
-            .toList();
+            List<InternshipApplication> allApps = internshipApplicationRepository.findByStudentId(intApp.getStudentId());
 
             for (InternshipApplication other : allApps) {
                 if (!other.getId().equals(intApp.getId())) {
@@ -67,12 +63,12 @@ public class InternshipApplicationController {
                     other.setApplicationStatus(ApplicationStatus.WITHDRAWN);
                     other.setOfferAccepted(false); // Just to be safe
 
-                    internshipApplicationRepository.save(other);
+                    unitOfWork.save(internshipApplicationRepository, other);
 
                     // Update application list inside the internship
                     Internship otherInternship = other.getInternship();
                     // No removal — just update status inside the same object
-                    internshipRepository.save(otherInternship);
+                    unitOfWork.save(internshipRepository, otherInternship);
                 }
             }
 
@@ -82,7 +78,8 @@ public class InternshipApplicationController {
             if (acceptedOffersCount >= internship.getNumOfSlots()) {
                 internship.setInternshipStatus(InternshipStatus.FILLED);
             }
-            internshipRepository.save(internship);
+            unitOfWork.save(internshipRepository, internship);
+            unitOfWork.commit();
             return true;
         }
         return false;
@@ -107,9 +104,7 @@ public class InternshipApplicationController {
         if (internship == null) return false;
 
         // if they already applied, do not accept
-        boolean alreadyApplied = internshipApplicationRepository.findAll().stream()
-                .anyMatch(a -> a.getInternship().getId().equals(internshipId)
-                && a.getStudent().getId().equals(studentId));
+        boolean alreadyApplied = internshipApplicationRepository.hasApplied(studentId, internshipId);
 
         if (alreadyApplied) {
 
@@ -127,9 +122,11 @@ public class InternshipApplicationController {
         // student haven't apply yet -> generate a new id for them
         String newId = internshipApplicationRepository.generateNextId();
         InternshipApplication newIntApp = new InternshipApplication(newId, internship, student);
-        internshipApplicationRepository.save(newIntApp);
         internship.getInternshipApplications().add(newIntApp); // also add to internship's list
-        internshipRepository.save(internship);
+        UnitOfWork unitOfWork = new UnitOfWork();
+        unitOfWork.save(internshipApplicationRepository, newIntApp);
+        unitOfWork.save(internshipRepository, internship);
+        unitOfWork.commit();
         System.out.println(student.getFullName() + " applied for " + internship.getInternshipTitle());
 
         notificationManager.sendNotification(internship.getCompRepIC().getId(), "A student has applied for your internship: " + internship.getInternshipTitle());
@@ -176,10 +173,7 @@ public class InternshipApplicationController {
             intApp.setApplicationStatus(ApplicationStatus.PENDING_WITHDRAWAL);
             internshipApplicationRepository.save(intApp);
 
-            List<String> careerStaffIds = userRepository.findAll().stream()
-                                                    .filter(user -> user instanceof CareerCentreStaff) // or check role
-                                                    .map(User::getId)
-                                                    .toList();
+            List<String> careerStaffIds = userRepository.getCareerCentreStaffIds();
             for (String staffId : careerStaffIds) {
                 notificationManager.sendNotification(staffId, "A withdrawal request has been submitted for internship \"" + intApp.getInternship().getInternshipTitle() + "\".");
             }
@@ -194,9 +188,11 @@ public class InternshipApplicationController {
         InternshipApplication intApp = internshipApplicationRepository.findById(internshipAppId);
         if (intApp != null  && intApp.getApplicationStatus() == ApplicationStatus.PENDING_WITHDRAWAL) {
             intApp.setApplicationStatus(ApplicationStatus.WITHDRAWN);
-            internshipApplicationRepository.save(intApp);
             intApp.getInternship().getInternshipApplications().removeIf(a -> a.getId().equals(intApp.getId()));
-            internshipRepository.save(intApp.getInternship());
+            UnitOfWork unitOfWork = new UnitOfWork();
+            unitOfWork.save(internshipApplicationRepository, intApp);
+            unitOfWork.save(internshipRepository, intApp.getInternship());
+            unitOfWork.commit();
 
             notificationManager.sendNotification(intApp.getInternship().getCompRepIC().getId(), "Student (" + intApp.getStudent().getId() + ") has withdrawn for your internship: " + intApp.getInternship().getInternshipTitle());
 
@@ -225,21 +221,13 @@ public class InternshipApplicationController {
             return false; // not a student or doesn't exist
         }
 
+        // the repository keeps both counts up to date as applications are saved
         // case 1: student has already accepted an offer
-        boolean hasAcceptedOffer = internshipApplicationRepository.findAll().stream()
-                .filter(a -> a.getStudent().getId().equals(studentId))
-                .anyMatch(InternshipApplication::getOfferAccepted);
-        if (hasAcceptedOffer) {
+        if (internshipApplicationRepository.hasAcceptedOffer(studentId)) {
             return false;
         }
         // case 2: student's current applications = 3 already (not incl of unsuccessful ones)
-        long currentIntAppCount = internshipApplicationRepository.findAll().stream()
-                .filter(a -> a.getStudent().getId().equals(studentId))
-                .filter(a -> switch (a.getApplicationStatus()) {
-                    case PENDING, PENDING_WITHDRAWAL, SUCCESSFUL -> !a.getOfferAccepted();
-                    default -> false; // UNSUCCESSFUL and WITHDRAWN are not active
-                })
-                .count();
+        int currentIntAppCount = internshipApplicationRepository.countActiveByStudentId(studentId);
         return currentIntAppCount < 3; // allow up to 3 active applications
     }
 
@@ -263,11 +251,8 @@ public class InternshipApplicationController {
             return false;
         }
         // rej 3: check application dates (not sure if this one we incl here or not as well)
-        Date today = new Date();
-        Date open = internship.getAppOpenDate();
-        Date close = internship.getAppCloseDate();
-        if (open != null && today.before(open)) return false;
-        if (close != null && today.after(close)) return false;
+        // the repository flips this when the window opens or closes, so no dates are compared here
+        if (!internshipRepository.isAcceptingApplications(internshipId)) return false;
 
         // rej 4: check for preferred major (not sure if this one we incl here or not as well)
         Major preferredMajor = internship.getPreferredMajor();
@@ -287,33 +272,45 @@ public class InternshipApplicationController {
         return true;
     }
 
-    public ArrayList<InternshipApplication> getWithdrawalRequests() {
+    // moves withdrawn and unsuccessful applications for closed internships to the archive;
+    // nobody can apply for those internships again, so the duplicate check never needs them
+    public int archiveFinishedApplications(long nowMillis) {
+        return internshipApplicationRepository.archive(a -> switch (a.getApplicationStatus()) {
+            case WITHDRAWN, UNSUCCESSFUL -> a.getInternship() == null || a.getInternship().isClosed(nowMillis);
+            default -> false;
+        });
+    }
+
+    // rebuilds the per-student counts used by canApply, notifies the career centre staff of every
+    // student whose counts had drifted, and returns those students
+    public List<String> checkApplicationTallies() {
+        List<String> differences = internshipApplicationRepository.checkStudentTallies();
+        if (differences.isEmpty()) return differences;
+
+        List<String> careerStaffIds = userRepository.getCareerCentreStaffIds();
+        for (String difference : differences) {
+            for (String staffId : careerStaffIds) {
+                notificationManager.sendNotification(staffId, "Corrected application counts of " + difference);
+            }
+        }
+        return differences;
+    }
 
-        List<InternshipApplication> result = internshipApplicationRepository.findAll().stream()
-                .filter(a -> a.getApplicationStatus() == ApplicationStatus.PENDING_WITHDRAWAL)
-                .toList();
+    public ArrayList<InternshipApplication> getWithdrawalRequests() {
 
-        return new ArrayList<>(result);
+        return internshipApplicationRepository.findByStatus(ApplicationStatus.PENDING_WITHDRAWAL);
 
     }
 
     public ArrayList<InternshipApplication> companyRepGetInternshipApplications(String internshipId) {
 
-        List<InternshipApplication> result = internshipApplicationRepository.findAll().stream()
-                .filter(internshipApplication -> internshipApplication.getInternship().getId().equals(internshipId))
-                .toList();
-
-        return new ArrayList<>(result);
+        return internshipApplicationRepository.findByInternshipId(internshipId);
 
     }
 
     public ArrayList<InternshipApplication> studentGetInternshipApplications(String userId) {
 
-        List<InternshipApplication> result = internshipApplicationRepository.findAll().stream()
-                .filter(internshipApplication -> internshipApplication.getStudent().getId().equals(userId))
-                .toList();
-
-        return new ArrayList<>(result);
+        return internshipApplicationRepository.findByStudentId(userId);
 
     }
 }
@@ -5,11 +5,9 @@ import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import entity.CareerCentreStaff;
 import entity.CompanyRep;
 import entity.Internship;
 import entity.Student;
-import entity.User;
 import entity.InternshipApplication;
 import entity.enums.InternshipLevel;
 import entity.enums.InternshipStatus;
@@ -18,6 +16,9 @@ import manager.NotificationManager;
 import repository.InternshipRepository;
 import repository.UserRepository;
 import util.filter.Filter;
+import util.filter.FilterPlanner;
+import util.filter.FilterPlanner.FilterPlan;
+import util.filter.IndexedFilter;
 
 /**
  * Controller responsible for all business logic related to internship postings.
@@ -28,6 +29,7 @@ import util.filter.Filter;
  *     <li>Approving and rejecting postings (Career Centre Staff)</li>
  *     <li>Toggling listing visibility (Company Reps)</li>
  *     <li>Generating filtered internship reports</li>
+ *     <li>Archiving postings that are closed and fully processed</li>
  *     <li>Fetching internship listings for students or company reps</li>
  * </ul>
  */
@@ -135,7 +137,7 @@ public class InternshipController {
      */
 
     public boolean countExistingInternships(CompanyRep compRepIC){
-        long existingCount = internshipRepository.findAll().stream().filter(i -> i.getCompRepIC().getId().equals(compRepIC.getId())).count();
+        long existingCount = internshipRepository.snapshot().stream().filter(i -> compRepIC.getId().equals(i.getCompRepId())).count();
 
         if (existingCount >= 5) {
             return false; // cannot create more than 5 internships
@@ -144,7 +146,7 @@ public class InternshipController {
         }
     }
     public boolean createInternship(String title, String description, InternshipLevel level, Major preferredMajor, Date appOpenDate, Date appCloseDate, String companyName, CompanyRep compRepIC, int numOfSlots){
-        // long existingCount = internshipRepository.findAll().stream().filter(i -> i.getCompRepIC().getId().equals(compRepIC.getId())).count();
+        // long existingCount = internshipRepository.findAll().stream().filter(i -> compRepIC.getId().equals(i.getCompRepId())).count();
 
         // if (existingCount >= 5) {
         //     return false; // cannot create more than 5 internships
@@ -154,10 +156,7 @@ public class InternshipController {
         Internship internship = new Internship(internshipId, title, description, level, preferredMajor, appOpenDate, appCloseDate, InternshipStatus.PENDING, companyName, compRepIC, numOfSlots);
         internshipRepository.save(internship);
 
-        List<String> careerStaffIds = userRepository.findAll().stream()
-                                                    .filter(user -> user instanceof CareerCentreStaff) // or check role
-                                                    .map(User::getId)
-                                                    .toList();
+        List<String> careerStaffIds = userRepository.getCareerCentreStaffIds();
             for (String staffId : careerStaffIds) {
                 notificationManager.sendNotification(staffId, "New internship posting awaiting approval: \"" + title + "\" at " + companyName + ".");
             }
@@ -195,22 +194,90 @@ public class InternshipController {
      * <p>Uses the Filter interface to ensure Open-Closed Principle:
      * adding new filter types requires no change to this method.</p>
      *
+     * <p>The filters are first ordered by {@link FilterPlanner} using the repository's live
+     * statistics. Index-backed filters ({@link IndexedFilter}) are answered by the bitmap index,
+     * and the remaining filters are only evaluated, cheapest and most selective first, on the
+     * internships that survive it. If the statistics show that nothing can match, no internship
+     * is touched at all.</p>
+     *
      * @param filters list of filter conditions
      * @return list of internships matching all filters
      */
     public ArrayList<Internship> generateReport(ArrayList<Filter> filters){
-        ArrayList<Internship> internships = this.internshipRepository.findAll();
+        return generateReport(filters, false);
+    }
 
+    /**
+     * Generates a filtered internship report, optionally including archived internships.
+     *
+     * <p>Internships still in use are found as described in {@link #generateReport(ArrayList)}.
+     * Archived internships are read from the cold tier only when asked for, and every filter is
+     * evaluated on each of them, since the index and statistics only cover internships in use.</p>
+     *
+     * @param filters list of filter conditions
+     * @param includeArchived true to also report internships that have been archived
+     * @return list of internships matching all filters, those in use first
+     */
+    public ArrayList<Internship> generateReport(ArrayList<Filter> filters, boolean includeArchived){
+        ArrayList<Internship> report = generateActiveReport(filters);
+        if (includeArchived) {
+            for (Internship internship : internshipRepository.findAllArchived()) {
+                if (filters == null || filters.stream().allMatch(f -> f.matches(internship))) {
+                    report.add(internship);
+                }
+            }
+        }
+        return report;
+    }
+
+    private ArrayList<Internship> generateActiveReport(ArrayList<Filter> filters){
         if (filters == null || filters.isEmpty()){
+            return this.internshipRepository.findAll();
+        }
+
+        FilterPlan plan = FilterPlanner.plan(filters, internshipRepository);
+        if (plan.empty()) {
+            return new ArrayList<>();
+        }
+
+        ArrayList<Internship> internships = plan.indexed().isEmpty()
+                ? this.internshipRepository.findAll()
+                : this.internshipRepository.findByAttributes(plan.indexKeys(), false);
+
+        List<Filter> remainingFilters = plan.residual();
+        if (remainingFilters.isEmpty()) {
             return internships;
         }
 
-        return (ArrayList<Internship>) internships.stream()
-                .filter(internship -> filters.stream().allMatch(f -> f.matches(internship)))
+        return internships.stream()
+                .filter(internship -> remainingFilters.stream().allMatch(f -> f.matches(internship)))
                 .collect(Collectors.toCollection(ArrayList::new));
 
     }
 
+    /**
+     * Moves closed internship postings to the archive, so listings and reports stop scanning them.
+     *
+     * <p>A posting is archived once it was filled or rejected, or its application window has
+     * closed, and none of its applications still awaits a decision: no application is pending,
+     * awaiting withdrawal, or holding an offer the student has not yet accepted.</p>
+     *
+     * @param nowMillis the current time in epoch milliseconds
+     * @return the number of postings archived
+     */
+    public int archiveClosedInternships(long nowMillis) {
+        return internshipRepository.archive(internship -> internship.isClosed(nowMillis)
+                && internship.getInternshipApplications().stream().noneMatch(InternshipController::awaitsDecision));
+    }
+
+    private static boolean awaitsDecision(InternshipApplication application) {
+        return switch (application.getApplicationStatus()) {
+            case PENDING, PENDING_WITHDRAWAL -> true;
+            case SUCCESSFUL -> !application.getOfferAccepted();
+            default -> false;
+        };
+    }
+
     /**
      * Retrieves all internships available to a given student.
      *
@@ -227,36 +294,66 @@ public class InternshipController {
      * @return list of internships the student may apply for
      */
     public ArrayList<Internship> getAvailableInternships(Student student){
-        List<Internship> allInternships = this.internshipRepository.findAll();
-        Date currentDate = new Date(); // Get the current system date/time for comparison
-        int studentYear = student.getYearOfStudy();
-
-        List<Internship> availableInternships = allInternships.stream()
-            .filter(internship -> internship.getInternshipStatus() == InternshipStatus.APPROVED) // approved internships
-            .filter(Internship::getVisibility) // visible internships
-            .filter(internship -> { // internship is still open
-                Date openDate = internship.getAppOpenDate();
-                Date closeDate = internship.getAppCloseDate();               
-                boolean isAfterOpen = !currentDate.before(openDate);                
-                boolean isBeforeClose = !currentDate.after(closeDate); 
-                return isAfterOpen && isBeforeClose;
-            })
-            .filter(internship -> internship.getPreferredMajor().equals(student.getMajor())) // preferred major
-            .filter(internship -> { // within the same level
-                if (studentYear <= 2) {
-                    return internship.getLevel() == InternshipLevel.BASIC;
-                } else if (studentYear == 3){
-                    return internship.getLevel() == InternshipLevel.INTERMEDIATE || internship.getLevel() == InternshipLevel.BASIC;
-                } else if (studentYear >= 4){
-                    return internship.getLevel() == InternshipLevel.ADVANCED 
-                        || internship.getLevel() == InternshipLevel.BASIC 
-                        || internship.getLevel() == InternshipLevel.INTERMEDIATE;
-                } else {
-                    return true;
-                }
-            })
-            .toList();
-        return new ArrayList<>(availableInternships);
+        if (student.getMajor() == null) return new ArrayList<>();
+
+        return this.internshipRepository.findOpen(student.getMajor(), highestLevel(student.getYearOfStudy()));
+    }
+
+    /**
+     * Returns the highest internship level a student in the given year may apply for: year 1 and 2
+     * students may only apply for BASIC internships, year 3 students for BASIC and INTERMEDIATE
+     * ones, and students from year 4 on for any level.
+     *
+     * @param yearOfStudy the student's year of study
+     * @return the highest permitted level
+     */
+    private static InternshipLevel highestLevel(int yearOfStudy) {
+        if (yearOfStudy <= 2) {
+            return InternshipLevel.BASIC;
+        } else if (yearOfStudy == 3) {
+            return InternshipLevel.INTERMEDIATE;
+        } else {
+            return InternshipLevel.ADVANCED;
+        }
+    }
+
+    /**
+     * Tells the company representative in charge that an approved internship's application
+     * window has opened or closed. Registered with the repository as a
+     * {@link InternshipRepository.WindowListener}, so it runs when the window changes.
+     *
+     * @param internship the internship whose window changed
+     * @param open true if the window opened, false if it closed
+     */
+    public void announceWindowChange(Internship internship, boolean open) {
+        if (internship.getInternshipStatus() != InternshipStatus.APPROVED || internship.getCompRepIC() == null) return;
+
+        notificationManager.sendNotification(internship.getCompRepIC().getId(), open
+                ? "Applications for your internship \"" + internship.getInternshipTitle() + "\" are now open."
+                : "Applications for your internship \"" + internship.getInternshipTitle() + "\" have closed.");
+    }
+
+    /**
+     * Retrieves the internships whose application window takes in the given time, whatever
+     * their status and visibility. Archived internships are not included.
+     *
+     * @param date the point in time
+     * @return list of internships, in order of open date
+     */
+    public ArrayList<Internship> getInternshipsOpenOn(Date date) {
+        return new ArrayList<>(internshipRepository.findWindowsOn(date.getTime()));
+    }
+
+    /**
+     * Retrieves the internships whose application window closes within the given period,
+     * whatever their status and visibility. Archived internships are not included.
+     *
+     * @param from the start of the period
+     * @param to the end of the period, inclusive
+     * @return list of internships, in order of close date
+     */
+    public ArrayList<Internship> getInternshipsClosingBetween(Date from, Date to) {
+        return new ArrayList<>(internshipRepository.findWindowsClosingBetween(from.getTime(), to.getTime()));
     }
 
     /**
@@ -266,8 +363,8 @@ public class InternshipController {
      * @return list of internships created by the representative
      */
     public ArrayList<Internship> getInternshipListings(String compRepId) {
-        return internshipRepository.findAll().stream()
-                .filter(internship -> internship.getCompRepIC().getId().equals(compRepId))
+        return internshipRepository.snapshot().stream()
+                .filter(internship -> compRepId.equals(internship.getCompRepId()))
                 .collect(Collectors.toCollection(ArrayList::new));
     }
 
@@ -300,7 +397,7 @@ public class InternshipController {
      * @return list of PENDING internship postings
      */
     public ArrayList<Internship> getPendingInternships() {
-        List<Internship> internships = internshipRepository.findAll();    
+        List<Internship> internships = internshipRepository.snapshot();    
         List<Internship> pendingInternships = internships.stream()        
             .filter(internship -> internship.getInternshipStatus() == InternshipStatus.PENDING)            
             .toList();    
@@ -313,8 +410,8 @@ public class InternshipController {
      * @return list of PENDING internship postings
      */
     public ArrayList<Internship> getPendingInternships(String compRepId) {
-        return internshipRepository.findAll().stream()
-                .filter(i -> i.getCompRepIC().getId().equals(compRepId))
+        return internshipRepository.snapshot().stream()
+                .filter(i -> compRepId.equals(i.getCompRepId()))
                 .filter(i -> i.getInternshipStatus() == InternshipStatus.PENDING)
                 .collect(Collectors.toCollection(ArrayList::new));
     }
@@ -1,5 +1,9 @@
 package entity;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.Serial;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,6 +20,9 @@ import java.util.List;
  * {@code NotificationManager}.</p>
  */
 public class CareerCentreStaff extends User {
+    @Serial
+    private static final long serialVersionUID = 2L;
+
     private String staffDepartment;
     private List<Notification> notifications = new ArrayList<>();
 
@@ -32,6 +39,12 @@ public class CareerCentreStaff extends User {
         this.staffDepartment = staffDepartment;
     }
 
+    /**
+     * Constructs an empty CareerCentreStaff. Used only by deserialization, which fills in the fields.
+     */
+    public CareerCentreStaff() {
+    }
+
     /**
      * Receives a notification and stores it in the staff member's notification list.
      *
@@ -67,5 +80,17 @@ public class CareerCentreStaff extends User {
      */
     public void setStaffDepartment(String staffDepartment){this.staffDepartment = staffDepartment;}
 
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        super.writeExternal(out);
+        ExternalFields.writeString(out, staffDepartment);
+        ExternalFields.writeNotifications(out, notifications);
+    }
 
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        super.readExternal(in);
+        staffDepartment = ExternalFields.readString(in);
+        ExternalFields.readNotifications(in, notifications);
+    }
 }
\ No newline at end of file
@@ -1,6 +1,10 @@
 package entity;
 
 import entity.enums.RegistrationStatus;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.Serial;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,6 +20,9 @@ import java.util.List;
  * information and approval/registration state.</p>
  */
 public class CompanyRep extends User {
+    @Serial
+    private static final long serialVersionUID = 2L;
+
     private RegistrationStatus registrationStatus;    private int numOfInternships = 0;
     private String companyName;
     private String department;
@@ -42,6 +49,12 @@ public class CompanyRep extends User {
         this.registrationStatus = RegistrationStatus.PENDING;
     }
 
+    /**
+     * Constructs an empty CompanyRep. Used only by deserialization, which fills in the fields.
+     */
+    public CompanyRep() {
+    }
+
     /**
      * Adds a notification to this representative's inbox.
      *
@@ -90,4 +103,30 @@ public class CompanyRep extends User {
     public void register(){
         this.registered = true;
     }
+
+    public boolean isRegistered(){return this.registered;}
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        super.writeExternal(out);
+        ExternalFields.writeEnum(out, registrationStatus);
+        out.writeInt(numOfInternships);
+        ExternalFields.writeString(out, companyName);
+        ExternalFields.writeString(out, department);
+        ExternalFields.writeString(out, position);
+        out.writeBoolean(registered);
+        ExternalFields.writeNotifications(out, notifications);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        super.readExternal(in);
+        registrationStatus = ExternalFields.readEnum(in, RegistrationStatus.values());
+        numOfInternships = in.readInt();
+        companyName = ExternalFields.readString(in);
+        department = ExternalFields.readString(in);
+        position = ExternalFields.readString(in);
+        registered = in.readBoolean();
+        ExternalFields.readNotifications(in, notifications);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+package entity;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Helpers for the entities' {@code writeExternal}/{@code readExternal} methods.
+ *
+ * <p>Strings and dates may be {@code null}, so each is preceded by a presence flag. Dates are
+ * written as epoch milliseconds and enums as one-byte ordinals, so enum constants may be added
+ * to the end of an enum but not reordered.</p>
+ *
+ * <p>A background flush may write an entity while a controller changes it, so the methods never
+ * modify the entity they write, and write lists from a copy, whose size matches what follows.</p>
+ */
+final class ExternalFields {
+
+    private ExternalFields() {
+    }
+
+    static void writeString(ObjectOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    static String readString(ObjectInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    static void writeDate(ObjectOutput out, Date value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeLong(value.getTime());
+    }
+
+    static Date readDate(ObjectInput in) throws IOException {
+        return in.readBoolean() ? new Date(in.readLong()) : null;
+    }
+
+    static void writeEnum(ObjectOutput out, Enum<?> value) throws IOException {
+        out.writeByte(value == null ? -1 : value.ordinal());
+    }
+
+    static <E extends Enum<E>> E readEnum(ObjectInput in, E[] values) throws IOException {
+        int ordinal = in.readByte();
+        return ordinal < 0 ? null : values[ordinal];
+    }
+
+    static void writeStrings(ObjectOutput out, List<String> values) throws IOException {
+        String[] copy = values.toArray(new String[0]);
+        out.writeInt(copy.length);
+        for (String value : copy) {
+            writeString(out, value);
+        }
+    }
+
+    static void readStrings(ObjectInput in, List<String> values) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+    }
+
+    /**
+     * Writes a user's inbox inline, without an object header per notification.
+     */
+    static void writeNotifications(ObjectOutput out, List<Notification> notifications) throws IOException {
+        Notification[] copy = notifications.toArray(new Notification[0]);
+        out.writeInt(copy.length);
+        for (Notification notification : copy) {
+            notification.writeExternal(out);
+        }
+    }
+
+    static void readNotifications(ObjectInput in, List<Notification> notifications) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Notification notification = new Notification();
+            notification.readExternal(in);
+            notifications.add(notification);
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package entity;
 import entity.enums.ApplicationStatus;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.io.Serial;
-import java.io.Serializable;
 import java.util.Date;
 import java.util.ArrayList;
+import java.util.function.Function;
 import entity.enums.InternshipStatus;
 import entity.enums.InternshipLevel;
 import entity.enums.Major;
@@ -19,13 +23,18 @@ import entity.enums.Major;
  * submitted for this posting.</p>
  *
  * <p>This class implements {@link Identifiable} to ensure consistent ID handling
- * through the repository layer, and {@link Serializable} to allow the object to
- * be persisted to disk.</p>
+ * through the repository layer, and {@link Externalizable} to allow the object to
+ * be persisted to disk with a compact, hand-written encoding.</p>
+ *
+ * <p>The company representative and the applications belong to other repositories, so only
+ * their IDs are serialized. After loading, {@code repository.ReferenceResolver} re-attaches
+ * them to the canonical instances. If users are loaded lazily, the representative is instead looked
+ * up each time it is requested, so internships do not keep every representative in memory.</p>
  */
-public class Internship implements Serializable, Identifiable {
+public class Internship implements Externalizable, Identifiable {
 
     @Serial
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 3L;
 
     private String internshipId;
     private int numOfSlots;
@@ -36,9 +45,12 @@ public class Internship implements Serializable, Identifiable {
     private Date appOpenDate;
     private Date appCloseDate; 
     private String companyName;
-    private CompanyRep compRepIC;
+    private transient CompanyRep compRepIC;
+    private String compRepId;
+    private transient Function<String, CompanyRep> compRepLookup;
     private InternshipStatus internshipStatus; 
-    private ArrayList<InternshipApplication> internshipApplications; // contains the internship applications JUST for this internship
+    private transient ArrayList<InternshipApplication> internshipApplications; // contains the internship applications JUST for this internship
+    private ArrayList<String> internshipApplicationIds = new ArrayList<>(); // as read from disk; writes use internshipApplications
     private boolean visibility;
 
     /**
@@ -66,12 +78,19 @@ public class Internship implements Serializable, Identifiable {
         this.appCloseDate = appCloseDate;
         this.internshipStatus = internshipStatus;
         this.companyName = companyName;
-        this.compRepIC = compRepIC;
+        setCompRepIC(compRepIC);
         this.numOfSlots = numOfSlots;
         this.internshipApplications = new ArrayList<>();
         this.visibility = false; // default off so the staff can toggle on later
     }
 
+    /**
+     * Constructs an empty Internship. Used only by deserialization, which fills in the fields.
+     */
+    public Internship() {
+        this.internshipApplications = new ArrayList<>();
+    }
+
     /**
      * Returns the unique identifier of this internship.
      *
@@ -98,8 +117,23 @@ public class Internship implements Serializable, Identifiable {
     public void setInternshipStatus(InternshipStatus internshipStatus) {this.internshipStatus = internshipStatus;}
     public String getCompanyName() {return companyName;}
     public void setCompanyName(String companyName) {this.companyName = companyName;}
-    public CompanyRep getCompRepIC() {return compRepIC;}
-    public void setCompRepIC(CompanyRep compRepIC) {this.compRepIC = compRepIC;}
+    public CompanyRep getCompRepIC() {
+        if (compRepIC == null && compRepLookup != null && compRepId != null) return compRepLookup.apply(compRepId);
+        return compRepIC;
+    }
+    public void setCompRepIC(CompanyRep compRepIC) {
+        this.compRepIC = compRepIC;
+        if (compRepIC != null) this.compRepId = compRepIC.getId();
+    }
+
+    /**
+     * Makes {@link #getCompRepIC()} look the representative up by ID on each call, unless one is set
+     * with {@link #setCompRepIC}.
+     *
+     * @param compRepLookup Finds a company representative by ID.
+     */
+    public void setCompRepLookup(Function<String, CompanyRep> compRepLookup) {this.compRepLookup = compRepLookup;}
+    public String getCompRepId() {return compRepId;}
     public int getNumOfSlots() {return numOfSlots;}
     public void setNumOfSlots(int numOfSlots) {this.numOfSlots = numOfSlots;}
     public boolean getVisibility() {return this.visibility;}
@@ -109,6 +143,16 @@ public class Internship implements Serializable, Identifiable {
         return internshipApplications;
     }
 
+    /**
+     * Returns the IDs of this internship's applications, as read from disk.
+     * Used to rebuild {@link #getInternshipApplications()} after loading.
+     *
+     * @return list of application IDs
+     */
+    public ArrayList<String> getInternshipApplicationIds() {
+        return internshipApplicationIds;
+    }
+
     /**
      * Returns all internship applications that have been accepted
      * (i.e., SUCCESSFUL status).
@@ -124,4 +168,72 @@ public class Internship implements Serializable, Identifiable {
         }
         return acceptedApps;
     }
+
+    /**
+     * Tells whether this posting can no longer take applications: it was filled or rejected, or
+     * its application window has closed.
+     *
+     * @param nowMillis the current time in epoch milliseconds
+     * @return true if no student can apply for this posting any more
+     */
+    public boolean isClosed(long nowMillis) {
+        return internshipStatus == InternshipStatus.FILLED
+                || internshipStatus == InternshipStatus.REJECTED
+                || (appCloseDate != null && nowMillis > appCloseDate.getTime());
+    }
+
+    /**
+     * Writes this internship's fields, with the company representative and the applications
+     * as IDs, taking the application IDs from a copy of the live list. Changes nothing, so a
+     * background flush may write the internship while a controller updates it.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the fields could not be written
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        InternshipApplication[] apps = internshipApplications.toArray(new InternshipApplication[0]);
+        ArrayList<String> applicationIds = new ArrayList<>(apps.length);
+        for (InternshipApplication app : apps) {
+            applicationIds.add(app.getId());
+        }
+
+        ExternalFields.writeString(out, internshipId);
+        out.writeInt(numOfSlots);
+        ExternalFields.writeString(out, internshipTitle);
+        ExternalFields.writeString(out, description);
+        ExternalFields.writeEnum(out, level);
+        ExternalFields.writeEnum(out, preferredMajor);
+        ExternalFields.writeDate(out, appOpenDate);
+        ExternalFields.writeDate(out, appCloseDate);
+        ExternalFields.writeString(out, companyName);
+        ExternalFields.writeString(out, compRepId);
+        ExternalFields.writeEnum(out, internshipStatus);
+        ExternalFields.writeStrings(out, applicationIds);
+        out.writeBoolean(visibility);
+    }
+
+    /**
+     * Reads the fields written by {@link #writeExternal}. The references are re-attached later.
+     *
+     * @param in the stream to read from
+     * @throws IOException if the fields could not be read
+     */
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        internshipId = ExternalFields.readString(in);
+        numOfSlots = in.readInt();
+        internshipTitle = ExternalFields.readString(in);
+        description = ExternalFields.readString(in);
+        level = ExternalFields.readEnum(in, InternshipLevel.values());
+        preferredMajor = ExternalFields.readEnum(in, Major.values());
+        appOpenDate = ExternalFields.readDate(in);
+        appCloseDate = ExternalFields.readDate(in);
+        companyName = ExternalFields.readString(in);
+        compRepId = ExternalFields.readString(in);
+        internshipStatus = ExternalFields.readEnum(in, InternshipStatus.values());
+        internshipApplicationIds = new ArrayList<>();
+        ExternalFields.readStrings(in, internshipApplicationIds);
+        visibility = in.readBoolean();
+    }
 }
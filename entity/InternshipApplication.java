@@ -2,26 +2,37 @@ package entity;
 
 import entity.enums.ApplicationStatus;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.io.Serial;
-import java.io.Serializable;
+import java.util.function.Function;
 
 /**
  * Represents a student's application for a specific internship.
  * This entity tracks the application details, status, and whether a potential
  * offer has been accepted.
- * It implements {@code Serializable} for file persistence and {@code Identifiable}
+ * It implements {@code Externalizable} for file persistence and {@code Identifiable}
  * to be managed by a repository.
+ *
+ * <p>The referenced {@link Internship} and {@link Student} belong to other repositories, so only
+ * their IDs are serialized. After loading, the references are re-attached to the canonical
+ * instances by {@code repository.ReferenceResolver}. If users are loaded lazily, the student is
+ * instead looked up each time it is requested, and so is an internship that has been archived.</p>
  */
-public class InternshipApplication implements Serializable, Identifiable {
+public class InternshipApplication implements Externalizable, Identifiable {
 
     @Serial
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 3L;
 
     /**
-     * The unique identifier for this internship application (e.g., "APP0001").
+     * The unique identifier for this internship application (e.g., "APP00000001").
      */
     private String internshipApplicationId;
-    private Internship internship;
+    private transient Internship internship;
+    private String internshipId;
+    private transient Function<String, Internship> internshipLookup;
     
     /**
      * The current status of the application, such as PENDING, SUCCESSFUL, or UNSUCCESSFUL.
@@ -32,7 +43,9 @@ public class InternshipApplication implements Serializable, Identifiable {
     /**
      * The {@link Student} who submitted this application.
      */
-    private Student student;
+    private transient Student student;
+    private String studentId;
+    private transient Function<String, Student> studentLookup;
 
 
     /**
@@ -45,12 +58,18 @@ public class InternshipApplication implements Serializable, Identifiable {
      */
     public InternshipApplication(String internshipApplicationId, Internship internship, Student student) {
         this.internshipApplicationId = internshipApplicationId;
-        this.internship = internship;
-        this.student = student;
+        setInternship(internship);
+        setStudent(student);
         this.applicationStatus = ApplicationStatus.PENDING;
         this.offerAccepted = false;
     }
 
+    /**
+     * Constructs an empty InternshipApplication. Used only by deserialization, which fills in the fields.
+     */
+    public InternshipApplication() {
+    }
+
     /**
      * Retrieves the unique identifier of the internship application.
      *
@@ -61,13 +80,75 @@ public class InternshipApplication implements Serializable, Identifiable {
         return this.internshipApplicationId;
     }
 
-    public Internship getInternship() {return internship;}
-    public void setInternship(Internship internship) {this.internship = internship;}
+    public Internship getInternship() {
+        if (internship == null && internshipLookup != null && internshipId != null) {
+            internship = internshipLookup.apply(internshipId);
+        }
+        return internship;
+    }
+    public void setInternship(Internship internship) {
+        this.internship = internship;
+        if (internship != null) this.internshipId = internship.getId();
+    }
+    public String getInternshipId() {return internshipId;}
+
+    /**
+     * Makes {@link #getInternship()} look the internship up by ID, unless one is set with
+     * {@link #setInternship}. The internship found is kept, so later calls return the same
+     * instance rather than reading it again. Used when the internship has been archived.
+     *
+     * @param internshipLookup Finds an internship by ID.
+     */
+    public void setInternshipLookup(Function<String, Internship> internshipLookup) {this.internshipLookup = internshipLookup;}
     public ApplicationStatus getApplicationStatus() {return applicationStatus;}
     public void setApplicationStatus(ApplicationStatus applicationStatus) {this.applicationStatus = applicationStatus;}
     public boolean getOfferAccepted() {return offerAccepted;}
     public void setOfferAccepted(boolean offerAccepted) {this.offerAccepted = offerAccepted;}
-    public Student getStudent() {return student;}
-    public void setStudent(Student student) {this.student = student;}
+    public Student getStudent() {
+        if (student == null && studentLookup != null && studentId != null) return studentLookup.apply(studentId);
+        return student;
+    }
+    public void setStudent(Student student) {
+        this.student = student;
+        if (student != null) this.studentId = student.getId();
+    }
+    public String getStudentId() {return studentId;}
 
+    /**
+     * Makes {@link #getStudent()} look the student up by ID on each call, unless one is set
+     * with {@link #setStudent}.
+     *
+     * @param studentLookup Finds a student by ID.
+     */
+    public void setStudentLookup(Function<String, Student> studentLookup) {this.studentLookup = studentLookup;}
+
+    /**
+     * Writes the application's fields, with the internship and the student as IDs.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If the fields could not be written.
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        ExternalFields.writeString(out, internshipApplicationId);
+        ExternalFields.writeString(out, internshipId);
+        ExternalFields.writeString(out, studentId);
+        ExternalFields.writeEnum(out, applicationStatus);
+        out.writeBoolean(offerAccepted);
+    }
+
+    /**
+     * Reads the fields written by {@link #writeExternal}. The references are re-attached later.
+     *
+     * @param in The stream to read from.
+     * @throws IOException If the fields could not be read.
+     */
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        internshipApplicationId = ExternalFields.readString(in);
+        internshipId = ExternalFields.readString(in);
+        studentId = ExternalFields.readString(in);
+        applicationStatus = ExternalFields.readEnum(in, ApplicationStatus.values());
+        offerAccepted = in.readBoolean();
+    }
 }
@@ -1,6 +1,10 @@
 package entity;
 
-import java.io.Serializable;  // for Serializable
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.Serial;
 import java.util.Date;        // for timestamp
 
 /**
@@ -10,12 +14,21 @@ import java.util.Date;        // for timestamp
  * It is immutable once created, except for the read status.
  * </p>
  */
-public class Notification implements Serializable {
+public class Notification implements Externalizable {
 
-    private final String message;
-    private final Date timestamp;
+    @Serial
+    private static final long serialVersionUID = 2L;
+
+    private String message;
+    private Date timestamp;
     private boolean read;
 
+    /**
+     * Creates an empty notification. Used only by deserialization, which fills in the fields.
+     */
+    public Notification() {
+    }
+
     /**
      * Constructs a new Notification with the given message.
      * The timestamp is set to the current date and time, and the status is set to unread.
@@ -35,4 +48,18 @@ public class Notification implements Serializable {
     public boolean isRead() { return read; }
 
     public void markAsRead() { this.read = true; }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        ExternalFields.writeString(out, message);
+        ExternalFields.writeDate(out, timestamp);
+        out.writeBoolean(read);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        message = ExternalFields.readString(in);
+        timestamp = ExternalFields.readDate(in);
+        read = in.readBoolean();
+    }
 }
@@ -1,5 +1,9 @@
 package entity;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.Serial;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,9 +20,12 @@ import entity.enums.Major;
  */
 public class Student extends User {
 
+    @Serial
+    private static final long serialVersionUID = 2L;
+
     private int yearOfStudy;
     private Major major;
-    private ArrayList<InternshipApplication> appliedInternships = new ArrayList<>();
+    private ArrayList<InternshipApplication> appliedInternships = new ArrayList<>(); // not persisted; never populated
     private List<Notification> notifications = new ArrayList<>();
 
     /**
@@ -36,6 +43,12 @@ public class Student extends User {
         this.major = major;
     }
 
+    /**
+     * Constructs an empty Student. Used only by deserialization, which fills in the fields.
+     */
+    public Student() {
+    }
+
     /**
      * Gets the student's current year of study.
      *
@@ -94,4 +107,20 @@ public class Student extends User {
     public List<Notification> getNotifications() {
         return notifications;
     }
-}
\ No newline at end of file
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        super.writeExternal(out);
+        out.writeInt(yearOfStudy);
+        ExternalFields.writeEnum(out, major);
+        ExternalFields.writeNotifications(out, notifications);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        super.readExternal(in);
+        yearOfStudy = in.readInt();
+        major = ExternalFields.readEnum(in, Major.values());
+        ExternalFields.readNotifications(in, notifications);
+    }
+}
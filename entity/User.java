@@ -1,5 +1,9 @@
 package entity;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.io.Serial;
 import java.io.Serializable;
 
@@ -10,11 +14,14 @@ import java.io.Serializable;
  * and implements {@link Serializable}, {@link Identifiable}, and {@link Notifiable}.
  * Specific user types (e.g., Student, CompanyRep) should extend this class.
  * </p>
+ *
+ * <p>Users are {@link Externalizable}: each subclass writes its own fields after the ones
+ * written here, followed by its notifications, instead of relying on reflective serialization.</p>
  */
-public abstract class User implements Serializable, Identifiable, Notifiable {
+public abstract class User implements Externalizable, Identifiable, Notifiable {
 
     @Serial
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
 
     private String userId;
     private String fullName;
@@ -34,6 +41,12 @@ public abstract class User implements Serializable, Identifiable, Notifiable {
         this.password = password;
     }
 
+    /**
+     * Constructs an empty User. Used only by deserialization, through the subclasses' no-arg constructors.
+     */
+    protected User() {
+    }
+
     /**
      * Gets the unique ID of the user.
      *
@@ -76,5 +89,30 @@ public abstract class User implements Serializable, Identifiable, Notifiable {
      * @param password The new password string.
      */
     public void setPassword(String password) {this.password = password;}
-    
+
+    /**
+     * Writes the fields common to all users. Subclasses call this first, then write their own fields.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If the fields could not be written.
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        ExternalFields.writeString(out, userId);
+        ExternalFields.writeString(out, fullName);
+        ExternalFields.writeString(out, password);
+    }
+
+    /**
+     * Reads the fields written by {@link #writeExternal}.
+     *
+     * @param in The stream to read from.
+     * @throws IOException If the fields could not be read.
+     */
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        userId = ExternalFields.readString(in);
+        fullName = ExternalFields.readString(in);
+        password = ExternalFields.readString(in);
+    }
 }
\ No newline at end of file
@@ -9,6 +9,10 @@ import entity.Notification;
  * This class stores a collection of notifications for each user, allowing for
  * sending, retrieval, and status management (read/unread).
  * </p>
+ * <p>
+ * Notifications may also be sent from background threads (e.g. when an internship's
+ * application window opens or closes), so every method is synchronized.
+ * </p>
  */
 public class NotificationManager {
 
@@ -33,7 +37,7 @@ public class NotificationManager {
      *
      * @return The single instance of NotificationManager.
      */
-    public static NotificationManager getInstance() {
+    public static synchronized NotificationManager getInstance() {
         if (instance == null) instance = new NotificationManager();
         return instance;
     }
@@ -45,7 +49,7 @@ public class NotificationManager {
      * @param userId The ID of the user to receive the notification.
      * @param message The content of the notification message.
      */
-    public void sendNotification(String userId, String message) {
+    public synchronized void sendNotification(String userId, String message) {
         ArrayList<Notification> inbox =
                 userNotifications.computeIfAbsent(userId, k -> new ArrayList<>());
 
@@ -60,7 +64,7 @@ public class NotificationManager {
      * @return A sorted list of {@link Notification} objects. Returns an empty list
      * if the user has no notifications.
      */
-    public List<Notification> getNotifications(String userId) {
+    public synchronized List<Notification> getNotifications(String userId) {
         List<Notification> inbox = userNotifications.getOrDefault(userId, new ArrayList<>());
     
         List<Notification> sorted = new ArrayList<>(inbox);
@@ -85,7 +89,7 @@ public class NotificationManager {
      * @return A list of unread {@link Notification} objects. Returns an empty list
      * if the user has no unread notifications.
      */
-    public List<Notification> getUnreadNotifications(String userId) {
+    public synchronized List<Notification> getUnreadNotifications(String userId) {
         List<Notification> inbox = userNotifications.get(userId);
         if (inbox == null) return new ArrayList<>();
 
@@ -101,7 +105,7 @@ public class NotificationManager {
      *
      * @param userId The ID of the user whose notifications should be marked as read.
      */
-    public void markAllAsRead(String userId) {
+    public synchronized void markAllAsRead(String userId) {
         List<Notification> inbox = userNotifications.get(userId);
         if (inbox == null) return;
 
@@ -115,7 +119,7 @@ public class NotificationManager {
      *
      * @param userId The ID of the user whose notifications are to be cleared.
      */
-    public void clearNotifications(String userId) {
+    public synchronized void clearNotifications(String userId) {
         userNotifications.remove(userId);
     }
 
@@ -125,7 +129,7 @@ public class NotificationManager {
      * @param userId The ID of the user.
      * @return {@code true} if the user has at least one unread notification, {@code false} otherwise.
      */
-    public boolean hasUnread(String userId) {
+    public synchronized boolean hasUnread(String userId) {
         List<Notification> inbox = userNotifications.get(userId);
         if (inbox == null) return false;
 
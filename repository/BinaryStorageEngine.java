@@ -0,0 +1,78 @@
+package repository;
+
+import entity.Identifiable;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores all entities in a compact binary file, encoded field by field with an {@link EntityCodec}.
+ * The file holds a magic number, the entity count, and then each entity in order.
+ *
+ * <p>A file still in the Java-serialization format (e.g. one written before the repository was
+ * switched to this engine) is recognised by its stream header and read with a
+ * {@link SerializationStorageEngine} instead; the next sync rewrites it in the binary format.</p>
+ *
+ * @param <T> The type of entity stored.
+ */
+public class BinaryStorageEngine<T extends Serializable & Identifiable> extends FileStorageEngine<T> {
+    /** Marks a file written by this engine ("IPB1"). */
+    static final int MAGIC = 0x49504231;
+
+    protected final EntityCodec<T> codec;
+
+    /**
+     * Creates an engine backed by the given file.
+     *
+     * @param filepath The path of the binary file.
+     * @param codec The codec used to encode each entity.
+     */
+    public BinaryStorageEngine(String filepath, EntityCodec<T> codec) {
+        this(filepath, codec, null);
+    }
+
+    /**
+     * Creates an engine backed by the given file, which it compresses.
+     *
+     * @param filepath The path of the binary file.
+     * @param codec The codec used to encode each entity.
+     * @param compression Compresses the file, or {@code null} to write it uncompressed.
+     */
+    public BinaryStorageEngine(String filepath, EntityCodec<T> codec, Compression compression) {
+        super(filepath, compression);
+        this.codec = codec;
+    }
+
+    @Override
+    protected List<T> read(InputStream in) throws Exception {
+        in.mark(2);
+        boolean serialized = in.read() == 0xAC && in.read() == 0xED;
+        in.reset();
+        if (serialized) {
+            return new SerializationStorageEngine<T>(filepath).read(in);
+        }
+
+        DataObjectInput data = new DataObjectInput(in);
+        if (data.readInt() != MAGIC) {
+            throw new StreamCorruptedException(filepath + " is not a binary repository file");
+        }
+        int count = data.readInt();
+        List<T> entities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entities.add(codec.read(data));
+        }
+        return entities;
+    }
+
+    @Override
+    protected void write(List<T> entities, OutputStream out) throws IOException {
+        DataObjectOutput data = new DataObjectOutput(out);
+        data.writeInt(MAGIC);
+        data.writeInt(entities.size());
+        for (T entity : entities) {
+            codec.write(entity, data);
+        }
+        data.flush();
+    }
+}
@@ -0,0 +1,121 @@
+package repository;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+
+/**
+ * A Bloom filter over entity IDs, which tells whether an ID is certainly absent from a set or may
+ * be present in it. A {@link SortedSegment} keeps one, so a lookup of an ID that the segment does
+ * not hold usually skips reading the segment at all.
+ *
+ * <p>With {@value #BITS_PER_KEY} bits and {@value #HASHES} hash functions per ID, about 1% of the
+ * absent IDs are reported as possibly present. The hash functions are derived from one 64-bit hash
+ * of the ID by double hashing, and do not depend on {@link String#hashCode()}, so a filter written
+ * to a file stays valid across runs.</p>
+ */
+final class BloomFilter {
+    /** The number of bits per ID the filter is sized for. */
+    static final int BITS_PER_KEY = 10;
+
+    /** The number of bits set per ID. */
+    static final int HASHES = 7;
+
+    private final long[] words;
+    private final long bitCount;
+
+    /**
+     * Creates an empty filter sized for the given number of IDs.
+     *
+     * @param expectedKeys The number of IDs that will be added.
+     */
+    BloomFilter(int expectedKeys) {
+        this(new long[Math.max(1, (int) (((long) expectedKeys * BITS_PER_KEY + 63) / 64))]);
+    }
+
+    private BloomFilter(long[] words) {
+        this.words = words;
+        this.bitCount = (long) words.length * 64;
+    }
+
+    /**
+     * Adds an ID to the filter.
+     *
+     * @param id The ID to add.
+     */
+    void add(String id) {
+        long hash = hash(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Tells whether an ID may have been added.
+     *
+     * @param id The ID to look up.
+     * @return {@code false} if the ID was certainly never added.
+     */
+    boolean mightContain(String id) {
+        long hash = hash(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            if ((words[(int) (bit >>> 6)] & 1L << bit) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes the filter: its length in words, then the words.
+     *
+     * @param out The destination.
+     * @throws IOException If the filter could not be written.
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    /**
+     * Reads a filter written by {@link #write}.
+     *
+     * @param in The source.
+     * @return The filter.
+     * @throws IOException If the filter could not be read.
+     */
+    static BloomFilter read(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length <= 0) {
+            throw new StreamCorruptedException("Bloom filter of " + length + " words");
+        }
+        long[] words = new long[length];
+        for (int i = 0; i < length; i++) {
+            words[i] = in.readLong();
+        }
+        return new BloomFilter(words);
+    }
+
+    /**
+     * A 64-bit FNV-1a hash of an ID, followed by a final mix so that IDs differing only in their
+     * last digits (as sequential IDs do) spread over both halves of the hash.
+     */
+    private static long hash(String id) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,338 @@
+package repository;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * An immutable, compressed file of archived entities sorted by ID, written by a {@link ColdStore}
+ * each time a repository archives entities it no longer needs in memory.
+ *
+ * <p>The records, each the ID in modified UTF-8, the record length and the encoded entity, are
+ * grouped into blocks of {@value #BLOCK_RECORDS} and each block is compressed with DEFLATE on its
+ * own. After the blocks come an index, holding the first ID, offset, compressed length and record
+ * count of every block, then every ID in order, and a {@link BloomFilter} of all IDs. A fixed-size
+ * footer locates the index and ends with the magic number, as in a {@link SortedSegment}. Looking
+ * up an ID inflates at most one block, and the last block read is kept, since entities archived
+ * together (such as an internship's applications) have neighbouring IDs. Scanning the segment
+ * inflates each block once.</p>
+ *
+ * <p>The list of IDs lets the {@link ColdStore} tell which IDs are archived without inflating any
+ * block. Segments written before it was added ({@link #MAGIC_WITHOUT_IDS}) are still read; their
+ * IDs are collected by inflating each block once when the segment is opened.</p>
+ */
+final class ColdSegment {
+    /** Marks a cold segment file ("IPC2"). */
+    static final int MAGIC = 0x49504332;
+
+    /** Marks a cold segment file written without the list of IDs ("IPC1"). */
+    static final int MAGIC_WITHOUT_IDS = 0x49504331;
+
+    /** The number of records compressed together in one block. */
+    static final int BLOCK_RECORDS = 128;
+
+    /** The size of the footer: the index offset, the record count and the magic number. */
+    private static final int FOOTER_SIZE = 16;
+
+    private final FileChannel channel;
+    private final String[] blockIds;
+    private final long[] blockOffsets;
+    private final int[] blockLengths;
+    private final int[] blockRecords;
+    private final BloomFilter bloom;
+
+    /** Every ID in the segment, in order. */
+    private String[] ids;
+
+    /** The block last read by {@link #get}, kept because related IDs tend to be looked up together. */
+    private Block lastBlock;
+
+    /** The records of one block, decompressed. */
+    private record Block(int number, String[] ids, byte[][] records) {
+    }
+
+    private ColdSegment(FileChannel channel, String[] blockIds, long[] blockOffsets,
+                        int[] blockLengths, int[] blockRecords, String[] ids, BloomFilter bloom) {
+        this.channel = channel;
+        this.blockIds = blockIds;
+        this.blockOffsets = blockOffsets;
+        this.blockLengths = blockLengths;
+        this.blockRecords = blockRecords;
+        this.ids = ids;
+        this.bloom = bloom;
+    }
+
+    /**
+     * Receives the records of a segment in ID order.
+     */
+    interface RecordVisitor {
+        /**
+         * @param id The entity ID.
+         * @param record The encoded entity.
+         * @throws IOException If the record could not be handled.
+         */
+        void visit(String id, byte[] record) throws IOException;
+    }
+
+    /**
+     * Opens a cold segment file, reading its index and filter.
+     *
+     * @param path The segment file.
+     * @return The open segment.
+     * @throws IOException If the file could not be read or is not a complete segment.
+     */
+    static ColdSegment open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < 4 + FOOTER_SIZE) {
+                throw new StreamCorruptedException(path + " is not a complete cold segment");
+            }
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+            readFully(channel, footer, size - FOOTER_SIZE);
+            long dataEnd = footer.getLong(0);
+            int recordCount = footer.getInt(8);
+            int magic = footer.getInt(12);
+            if (magic != MAGIC && magic != MAGIC_WITHOUT_IDS || dataEnd < 4 || dataEnd > size - FOOTER_SIZE
+                    || recordCount < 0) {
+                throw new StreamCorruptedException(path + " is not a complete cold segment");
+            }
+
+            ByteBuffer trailer = ByteBuffer.allocate((int) (size - FOOTER_SIZE - dataEnd));
+            readFully(channel, trailer, dataEnd);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(trailer.array()));
+            int blockCount = in.readInt();
+            String[] blockIds = new String[blockCount];
+            long[] blockOffsets = new long[blockCount];
+            int[] blockLengths = new int[blockCount];
+            int[] blockRecords = new int[blockCount];
+            for (int i = 0; i < blockCount; i++) {
+                blockIds[i] = in.readUTF();
+                blockOffsets[i] = in.readLong();
+                blockLengths[i] = in.readInt();
+                blockRecords[i] = in.readInt();
+            }
+            String[] ids = null;
+            if (magic == MAGIC) {
+                ids = new String[recordCount];
+                for (int i = 0; i < recordCount; i++) {
+                    ids[i] = in.readUTF();
+                }
+            }
+            BloomFilter bloom = BloomFilter.read(in);
+            ColdSegment segment = new ColdSegment(channel, blockIds, blockOffsets, blockLengths, blockRecords, ids, bloom);
+            if (ids == null) {
+                List<String> scanned = new ArrayList<>(recordCount);
+                segment.scan((id, record) -> scanned.add(id));
+                segment.ids = scanned.toArray(new String[0]);
+            }
+            return segment;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns every ID in the segment, read with its index.
+     *
+     * @return The IDs, in order; the array must not be changed.
+     */
+    String[] ids() {
+        return ids;
+    }
+
+    /**
+     * Looks up the record of an ID.
+     *
+     * @param id The ID to look up.
+     * @return The encoded entity, or {@code null} if the segment does not hold the ID.
+     * @throws IOException If the segment could not be read.
+     */
+    byte[] get(String id) throws IOException {
+        if (!bloom.mightContain(id)) return null;
+
+        int block = Arrays.binarySearch(blockIds, id);
+        if (block < 0) {
+            block = -block - 2;
+            if (block < 0) return null;
+        }
+        Block read = cachedBlock(block);
+        int position = Arrays.binarySearch(read.ids(), id);
+        return position < 0 ? null : read.records()[position];
+    }
+
+    /**
+     * Passes every record to a visitor, in ID order.
+     *
+     * @param visitor Receives the records.
+     * @throws IOException If the segment could not be read, or the visitor failed.
+     */
+    void scan(RecordVisitor visitor) throws IOException {
+        for (int block = 0; block < blockIds.length; block++) {
+            Block read = readBlock(block);
+            for (int i = 0; i < read.ids().length; i++) {
+                visitor.visit(read.ids()[i], read.records()[i]);
+            }
+        }
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException If the file could not be closed.
+     */
+    void close() throws IOException {
+        channel.close();
+    }
+
+    private synchronized Block cachedBlock(int block) throws IOException {
+        if (lastBlock == null || lastBlock.number() != block) {
+            lastBlock = readBlock(block);
+        }
+        return lastBlock;
+    }
+
+    private Block readBlock(int block) throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate(blockLengths[block]);
+        readFully(channel, compressed, blockOffsets[block]);
+        byte[] inflated;
+        try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed.array()))) {
+            inflated = in.readAllBytes();
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(inflated));
+        String[] ids = new String[blockRecords[block]];
+        byte[][] records = new byte[ids.length][];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = in.readUTF();
+            records[i] = new byte[in.readInt()];
+            in.readFully(records[i]);
+        }
+        return new Block(block, ids, records);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) throw new EOFException();
+        }
+    }
+
+    /**
+     * Writes a cold segment file from records supplied in ID order. The file is forced to the
+     * device when it is finished, so the entities may be removed from the hot tier straight away.
+     */
+    static final class Writer implements Closeable {
+        private final FileOutputStream file;
+        private final CountingOutputStream counter;
+        private final DataOutputStream out;
+        private final BloomFilter bloom;
+        private final Deflater deflater = new Deflater();
+        private final byte[] deflated = new byte[64 * 1024];
+        private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+        private final DataOutputStream blockOut = new DataOutputStream(block);
+        private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+        private final DataOutputStream indexOut = new DataOutputStream(index);
+        private final ByteArrayOutputStream ids = new ByteArrayOutputStream();
+        private final DataOutputStream idsOut = new DataOutputStream(ids);
+        private int recordCount;
+        private int blockCount;
+        private int blockRecordCount;
+        private String blockId;
+        private String lastId;
+
+        /**
+         * Starts a cold segment file.
+         *
+         * @param path The file to write; any existing file is replaced.
+         * @param expectedRecords An upper bound on the number of records, used to size the filter.
+         * @throws IOException If the file could not be created.
+         */
+        Writer(Path path, int expectedRecords) throws IOException {
+            this.file = new FileOutputStream(path.toFile());
+            this.counter = new CountingOutputStream(new BufferedOutputStream(file, 64 * 1024));
+            this.out = new DataOutputStream(counter);
+            this.bloom = new BloomFilter(expectedRecords);
+            out.writeInt(MAGIC);
+        }
+
+        /**
+         * Appends a record. IDs must be appended in ascending order.
+         *
+         * @param id The entity ID.
+         * @param record The encoded entity.
+         * @throws IOException If the record could not be written.
+         */
+        void append(String id, byte[] record) throws IOException {
+            if (lastId != null && lastId.compareTo(id) >= 0) {
+                throw new IllegalArgumentException("Cold segment records out of order: " + id + " after " + lastId);
+            }
+            if (blockRecordCount == 0) {
+                blockId = id;
+            }
+            blockOut.writeUTF(id);
+            blockOut.writeInt(record.length);
+            blockOut.write(record);
+            idsOut.writeUTF(id);
+            bloom.add(id);
+            lastId = id;
+            recordCount++;
+            if (++blockRecordCount == BLOCK_RECORDS) {
+                writeBlock();
+            }
+        }
+
+        /**
+         * Writes the last block, the index, the IDs, the filter and the footer, and forces the file to
+         * the device.
+         *
+         * @throws IOException If the file could not be completed.
+         */
+        void finish() throws IOException {
+            if (blockRecordCount > 0) {
+                writeBlock();
+            }
+            long dataEnd = counter.count;
+            out.writeInt(blockCount);
+            index.writeTo(out);
+            ids.writeTo(out);
+            bloom.write(out);
+            out.writeLong(dataEnd);
+            out.writeInt(recordCount);
+            out.writeInt(MAGIC);
+            out.flush();
+            file.getFD().sync();
+        }
+
+        private void writeBlock() throws IOException {
+            long offset = counter.count;
+            deflater.reset();
+            deflater.setInput(block.toByteArray());
+            deflater.finish();
+            while (!deflater.finished()) {
+                out.write(deflated, 0, deflater.deflate(deflated));
+            }
+            indexOut.writeUTF(blockId);
+            indexOut.writeLong(offset);
+            indexOut.writeInt((int) (counter.count - offset));
+            indexOut.writeInt(blockRecordCount);
+            blockCount++;
+            block.reset();
+            blockRecordCount = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+            out.close();
+        }
+    }
+}
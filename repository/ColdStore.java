@@ -0,0 +1,250 @@
+package repository;
+
+import entity.Identifiable;
+
+import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * The cold tier of a {@link Repository}: the entities it has archived, kept out of memory in
+ * compressed {@link ColdSegment}s named {@code location + ".cold." + number}.
+ *
+ * <p>Each archival writes one new segment, so a segment never changes once written. An entity that
+ * is archived again (after being saved back into the hot tier) is held by the newest segment that
+ * has it, which shadows any older copy. A segment is written under a temporary name and renamed
+ * once it is complete, so a half-written segment is never read; one left behind is deleted.</p>
+ *
+ * <p>Archived entities are decoded on demand and remembered (up to {@value #CACHE_LIMIT} of them),
+ * so repeated lookups of one ID return the same instance. Each decoded entity is passed to the
+ * store's linker, which re-attaches its references, before it is returned. Decoding and linking run
+ * under one lock shared by every store, since linking an entity may look up an archived entity of
+ * another repository, which may in turn look up the first one; remembering an entity before it
+ * is linked ends such cycles.</p>
+ *
+ * <p>The IDs of every archived entity are kept in memory, read from the segments' indexes when
+ * the store opens and added as entities are archived, so {@link #contains} never reads a
+ * segment, and {@link #find} only reads one for an ID that is archived.</p>
+ *
+ * @param <T> The type of entity archived.
+ */
+final class ColdStore<T extends Identifiable> {
+    /** The number of decoded entities remembered before the cache is cleared. */
+    static final int CACHE_LIMIT = 4096;
+
+    /** Held while decoding and linking archived entities, in every store. */
+    private static final Object LINK_LOCK = new Object();
+
+    private final String location;
+    private final EntityCodec<T> codec;
+
+    /** The segments, newest first; replaced rather than changed, so readers need no lock. */
+    private volatile List<ColdSegment> segments = new ArrayList<>();
+    private long nextSegment = 1;
+
+    /** The IDs held by any segment. */
+    private final Set<String> ids = ConcurrentHashMap.newKeySet();
+
+    /** Archived entities already decoded and linked, by ID. Guarded by {@link #LINK_LOCK}. */
+    private final Map<String, T> decoded = new HashMap<>();
+    private Consumer<? super T> linker = entity -> {
+    };
+
+    /**
+     * Opens the cold segments of a repository. A segment that cannot be read is reported and left
+     * on disk, and the others are opened regardless.
+     *
+     * @param location The file path of the repository's data.
+     * @param codec The codec used to encode each entity.
+     * @throws IOException If the directory could not be listed.
+     */
+    ColdStore(String location, EntityCodec<T> codec) throws IOException {
+        this.location = location;
+        this.codec = codec;
+
+        List<ColdSegment> opened = new ArrayList<>();
+        for (long number : segmentNumbers()) {
+            try {
+                ColdSegment segment = ColdSegment.open(segmentPath(number));
+                opened.add(0, segment);
+                ids.addAll(Arrays.asList(segment.ids()));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            nextSegment = number + 1;
+        }
+        segments = opened;
+    }
+
+    /**
+     * Sets the linker that re-attaches the references of each entity decoded from now on.
+     *
+     * @param linker Re-attaches an archived entity's references.
+     */
+    void setLinker(Consumer<? super T> linker) {
+        synchronized (LINK_LOCK) {
+            this.linker = linker;
+        }
+    }
+
+    /**
+     * Writes entities to a new segment and forces it to the device. Once this returns, the
+     * entities may be removed from the hot tier, and then {@link #forget} them.
+     *
+     * @param entities The entities to archive, in any order.
+     * @throws IOException If the segment could not be written.
+     */
+    synchronized void archive(Collection<T> entities) throws IOException {
+        List<T> sorted = new ArrayList<>(entities);
+        sorted.sort(Comparator.comparing(Identifiable::getId));
+
+        long number = nextSegment++;
+        Path temp = Paths.get(segmentPath(number) + ".tmp");
+        try (ColdSegment.Writer writer = new ColdSegment.Writer(temp, sorted.size())) {
+            for (T entity : sorted) {
+                writer.append(entity.getId(), encode(entity));
+            }
+            writer.finish();
+        }
+        Files.move(temp, segmentPath(number), StandardCopyOption.ATOMIC_MOVE);
+
+        List<ColdSegment> updated = new ArrayList<>(segments);
+        updated.add(0, ColdSegment.open(segmentPath(number)));
+        segments = updated;
+        for (T entity : sorted) {
+            ids.add(entity.getId());
+        }
+    }
+
+    /**
+     * Tells whether an entity is archived, without reading any segment. It may also be held by the
+     * hot tier, if it was saved back into memory after it was archived.
+     *
+     * @param id The ID to look up.
+     * @return {@code true} if a segment holds the ID.
+     */
+    boolean contains(String id) {
+        return ids.contains(id);
+    }
+
+    /**
+     * Drops any decoded copy of entities that were just archived again, which the new segment
+     * shadows. Kept apart from {@link #archive}, because it waits for lookups in progress, and those
+     * may be waiting for the lock of the repository that is archiving.
+     *
+     * @param entities The entities that were archived.
+     */
+    void forget(Collection<T> entities) {
+        synchronized (LINK_LOCK) {
+            for (T entity : entities) {
+                decoded.remove(entity.getId());
+            }
+        }
+    }
+
+    /**
+     * Looks up an archived entity, reading at most one block of each segment that may hold it.
+     *
+     * @param id The ID to look up.
+     * @return The linked entity, or {@code null} if no segment holds the ID.
+     * @throws IOException If a segment could not be read.
+     */
+    T find(String id) throws IOException {
+        if (!ids.contains(id)) return null;
+        synchronized (LINK_LOCK) {
+            T entity = decoded.get(id);
+            if (entity != null) return entity;
+
+            for (ColdSegment segment : segments) {
+                byte[] record = segment.get(id);
+                if (record != null) return remember(id, record);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Reads every archived entity, newest copy first, skipping the IDs that are shadowed.
+     *
+     * @param shadowed Tells whether an ID is held by the hot tier, whose copy is newer.
+     * @return The linked entities, in ID order within each segment.
+     * @throws IOException If a segment could not be read.
+     */
+    List<T> findAll(Predicate<String> shadowed) throws IOException {
+        List<T> found = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        synchronized (LINK_LOCK) {
+            for (ColdSegment segment : segments) {
+                segment.scan((id, record) -> {
+                    if (!seen.add(id) || shadowed.test(id)) return;
+                    T entity = decoded.get(id);
+                    found.add(entity != null ? entity : remember(id, record));
+                });
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Closes the segment files.
+     *
+     * @throws IOException If a file could not be closed.
+     */
+    synchronized void close() throws IOException {
+        for (ColdSegment segment : segments) {
+            segment.close();
+        }
+        segments = new ArrayList<>();
+    }
+
+    private T remember(String id, byte[] record) throws IOException {
+        T entity = codec.read(new DataObjectInput(new ByteArrayInputStream(record)));
+        if (decoded.size() >= CACHE_LIMIT) {
+            decoded.clear();
+        }
+        decoded.put(id, entity);
+        linker.accept(entity);
+        return entity;
+    }
+
+    private byte[] encode(T entity) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataObjectOutput out = new DataObjectOutput(buffer);
+        codec.write(entity, out);
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Lists the numbers of the segment files in ascending order, and deletes a segment left half-written.
+     */
+    private List<Long> segmentNumbers() throws IOException {
+        Path data = Paths.get(location).toAbsolutePath();
+        String prefix = data.getFileName() + ".cold.";
+        List<Long> numbers = new ArrayList<>();
+        if (!Files.isDirectory(data.getParent())) return numbers;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(data.getParent(), prefix + "*")) {
+            for (Path file : files) {
+                String suffix = file.getFileName().toString().substring(prefix.length());
+                try {
+                    numbers.add(Long.parseLong(suffix));
+                } catch (NumberFormatException e) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    private Path segmentPath(long number) {
+        return Paths.get(location + ".cold." + number);
+    }
+}
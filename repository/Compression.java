@@ -0,0 +1,36 @@
+package repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compresses the files of a storage engine as they are streamed to and from disk, for the
+ * {@link FileStorageEngine}s and the {@link WriteAheadLog}s of a {@link LogStructuredStorageEngine}.
+ * Neither direction holds a whole file in memory.
+ *
+ * @see Compressions
+ */
+public interface Compression {
+
+    /**
+     * Wraps a stream so that what is written to it is compressed. Closing the returned stream
+     * completes the compressed data and flushes it, but leaves {@code out} open, so the caller can
+     * still force it to the device.
+     *
+     * @param out The destination of the compressed data.
+     * @return The stream to write the uncompressed data to.
+     * @throws IOException If the compressed data could not be started.
+     */
+    OutputStream compress(OutputStream out) throws IOException;
+
+    /**
+     * Wraps a stream so that what is read from it is decompressed. Data this compression did not
+     * write (e.g. a file written before compression was turned on) is returned as it is.
+     *
+     * @param in The compressed data, which supports {@code mark} and {@code reset}.
+     * @return The stream to read the uncompressed data from, which supports {@code mark} and {@code reset}.
+     * @throws IOException If the data could not be read.
+     */
+    InputStream decompress(InputStream in) throws IOException;
+}
@@ -0,0 +1,105 @@
+package repository;
+
+import java.io.*;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The {@link Compression}s for the repositories' files.
+ *
+ * <p>DEFLATE compression writes the gzip format, whose header every reader recognises. A file
+ * starts with either the gzip magic number or one of the engines' own headers (a
+ * {@link BinaryStorageEngine} magic number, a Java-serialization stream header or a log opcode),
+ * so a file is always read correctly, whether or not compression is turned on when it is read.
+ * Several gzip members written one after another read back as one stream.</p>
+ */
+public final class Compressions {
+    /** The first two bytes of a gzip member. */
+    private static final int GZIP_MAGIC = 0x1f8b;
+
+    /** The buffer size on either side of the deflater and inflater. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private Compressions() {
+    }
+
+    /**
+     * Returns DEFLATE compression at the given level.
+     *
+     * @param level The compression level, from {@link Deflater#BEST_SPEED} (1) to
+     *              {@link Deflater#BEST_COMPRESSION} (9), or 0 to store the data uncompressed.
+     * @return The compression.
+     * @throws IllegalArgumentException If the level is out of range.
+     */
+    public static Compression deflate(int level) {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid DEFLATE level " + level);
+        }
+        return new Compression() {
+            @Override
+            public OutputStream compress(OutputStream out) throws IOException {
+                return new BufferedOutputStream(new LevelGzipOutputStream(new UnclosedOutputStream(out), level),
+                        BUFFER_SIZE);
+            }
+
+            @Override
+            public InputStream decompress(InputStream in) throws IOException {
+                return Compressions.decompress(in);
+            }
+
+            @Override
+            public String toString() {
+                return "DEFLATE level " + level;
+            }
+        };
+    }
+
+    /**
+     * Wraps a stream so that what is read from it is decompressed if it is in the gzip format,
+     * and returned as it is otherwise.
+     *
+     * @param in The data, which supports {@code mark} and {@code reset}.
+     * @return The stream to read the data from, which supports {@code mark} and {@code reset}.
+     * @throws IOException If the data could not be read.
+     */
+    public static InputStream decompress(InputStream in) throws IOException {
+        in.mark(2);
+        int magic = in.read() << 8 | in.read();
+        in.reset();
+        if (magic != GZIP_MAGIC) {
+            return in;
+        }
+        return new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE);
+    }
+
+    /**
+     * A gzip stream whose deflater compresses at a given level rather than the default one.
+     */
+    private static final class LevelGzipOutputStream extends GZIPOutputStream {
+        LevelGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(level);
+        }
+    }
+
+    /**
+     * Flushes rather than closes the stream it wraps, so the compressed data can be completed by
+     * closing the compressing stream.
+     */
+    private static final class UnclosedOutputStream extends FilterOutputStream {
+        UnclosedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
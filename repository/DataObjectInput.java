@@ -0,0 +1,26 @@
+package repository;
+
+import java.io.DataInputStream;
+import java.io.InputStream;
+import java.io.ObjectInput;
+
+/**
+ * A {@link DataInputStream} that can be passed to {@code Externalizable.readExternal}; the
+ * counterpart of {@link DataObjectOutput}.
+ */
+class DataObjectInput extends DataInputStream implements ObjectInput {
+
+    DataObjectInput(InputStream in) {
+        super(in);
+    }
+
+    /**
+     * Not supported: the binary format has no object graph.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public Object readObject() {
+        throw new UnsupportedOperationException("The binary format cannot hold nested objects");
+    }
+}
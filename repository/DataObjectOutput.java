@@ -0,0 +1,27 @@
+package repository;
+
+import java.io.DataOutputStream;
+import java.io.ObjectOutput;
+import java.io.OutputStream;
+
+/**
+ * A {@link DataOutputStream} that can be passed to {@code Externalizable.writeExternal}, so the
+ * {@link BinaryStorageEngine} can reuse the entities' own encoding without the object-stream
+ * framing. Entities write references as IDs, so nested objects are never written.
+ */
+class DataObjectOutput extends DataOutputStream implements ObjectOutput {
+
+    DataObjectOutput(OutputStream out) {
+        super(out);
+    }
+
+    /**
+     * Not supported: the binary format has no object graph.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void writeObject(Object obj) {
+        throw new UnsupportedOperationException("The binary format cannot hold nested objects");
+    }
+}
@@ -0,0 +1,45 @@
+package repository;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Encodes entities of one type field by field, for the {@link BinaryStorageEngine}.
+ * Unlike Java serialization, a codec writes no class descriptors or object handles, only
+ * the fields themselves, so the encoding is compact and cheap to read back.
+ *
+ * @param <T> The type of entity encoded.
+ */
+public interface EntityCodec<T> {
+
+    /**
+     * Writes one entity.
+     *
+     * @param entity The entity to write.
+     * @param out The destination.
+     * @throws IOException If the entity could not be written.
+     */
+    void write(T entity, ObjectOutput out) throws IOException;
+
+    /**
+     * Reads one entity written by {@link #write}.
+     *
+     * @param in The source, positioned at the start of the entity.
+     * @return The decoded entity.
+     * @throws IOException If the entity could not be read.
+     */
+    T read(ObjectInput in) throws IOException;
+
+    /**
+     * Returns a byte that tells entities of different kinds apart, such as the entity's subtype.
+     * A {@link LazyBinaryStorageEngine} keeps it in its index, so a repository can find entities
+     * of one kind without decoding the rest.
+     *
+     * @param entity The entity.
+     * @return The entity's tag; {@code 0} unless the codec distinguishes kinds of entity.
+     */
+    default byte tag(T entity) {
+        return 0;
+    }
+}
@@ -0,0 +1,119 @@
+package repository;
+
+import entity.*;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.StreamCorruptedException;
+import java.util.function.Supplier;
+
+/**
+ * The {@link EntityCodec}s for the application's entities, used with a {@link BinaryStorageEngine}.
+ *
+ * <p>The entities are {@link Externalizable}, so each codec simply delegates to the entity's own
+ * {@code writeExternal} and {@code readExternal}. The binary files and Java-serialized files
+ * therefore share one field encoding; the binary engine only leaves out the object-stream framing.
+ * References to entities in other repositories are written as IDs and re-attached by
+ * {@link ReferenceResolver}.</p>
+ */
+public final class EntityCodecs {
+    /** The tags of the user types, written first in each user record. */
+    static final byte STUDENT = 0;
+    static final byte COMPANY_REP = 1;
+    static final byte STAFF = 2;
+
+    private EntityCodecs() {
+    }
+
+    /**
+     * Returns the codec for {@link User}s, which tags each record with the concrete user type.
+     *
+     * @return The user codec.
+     */
+    public static EntityCodec<User> users() {
+        return new EntityCodec<>() {
+            @Override
+            public void write(User user, ObjectOutput out) throws IOException {
+                byte type = tag(user);
+                if (type < 0) {
+                    throw new IOException("No codec for user type " + user.getClass().getName());
+                }
+                out.writeByte(type);
+                user.writeExternal(out);
+            }
+
+            /** Returns the user's type, or {@code -1} if the codec has no type for it. */
+            @Override
+            public byte tag(User user) {
+                if (user instanceof Student) return STUDENT;
+                if (user instanceof CompanyRep) return COMPANY_REP;
+                if (user instanceof CareerCentreStaff) return STAFF;
+                return -1;
+            }
+
+            @Override
+            public User read(ObjectInput in) throws IOException {
+                byte type = in.readByte();
+                User user = switch (type) {
+                    case STUDENT -> new Student();
+                    case COMPANY_REP -> new CompanyRep();
+                    case STAFF -> new CareerCentreStaff();
+                    default -> throw new StreamCorruptedException("Unknown user type " + type);
+                };
+                readInto(user, in);
+                return user;
+            }
+        };
+    }
+
+    /**
+     * Returns the codec for {@link Internship}s.
+     *
+     * @return The internship codec.
+     */
+    public static EntityCodec<Internship> internships() {
+        return externalizable(Internship::new);
+    }
+
+    /**
+     * Returns the codec for {@link InternshipApplication}s.
+     *
+     * @return The application codec.
+     */
+    public static EntityCodec<InternshipApplication> internshipApplications() {
+        return externalizable(InternshipApplication::new);
+    }
+
+    /**
+     * Returns a codec for a single concrete {@link Externalizable} type.
+     *
+     * @param factory Creates an empty instance to read into.
+     * @param <T> The entity type.
+     * @return A codec delegating to the entity's own encoding.
+     */
+    public static <T extends Externalizable> EntityCodec<T> externalizable(Supplier<T> factory) {
+        return new EntityCodec<>() {
+            @Override
+            public void write(T entity, ObjectOutput out) throws IOException {
+                entity.writeExternal(out);
+            }
+
+            @Override
+            public T read(ObjectInput in) throws IOException {
+                T entity = factory.get();
+                readInto(entity, in);
+                return entity;
+            }
+        };
+    }
+
+    private static void readInto(Externalizable entity, ObjectInput in) throws IOException {
+        try {
+            entity.readExternal(in);
+        } catch (ClassNotFoundException e) {
+            throw new StreamCorruptedException(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package repository;
+
+import entity.Identifiable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Base class for engines that keep all entities in a single file and rewrite it whole.
+ * Individual mutations only mark the file as stale; the next {@link #sync} rewrites it from
+ * the repository's current contents. Subclasses only define the file format.
+ *
+ * <p>The file is written to a temporary file first and then moved over the old one, so a
+ * crash mid-write never leaves a half-written file behind.</p>
+ *
+ * <p>An engine given a {@link Compression} compresses the file as it is written. Loading
+ * decompresses it as it is read, so the file is never held in memory whole; a file in the gzip
+ * format is recognised and loaded whether or not the engine compresses.</p>
+ *
+ * @param <T> The type of entity stored.
+ */
+abstract class FileStorageEngine<T extends Serializable & Identifiable> implements StorageEngine<T> {
+    protected final String filepath;
+
+    /** Compresses the file, or {@code null} to write it uncompressed. */
+    protected final Compression compression;
+    private boolean stale;
+
+    /**
+     * @param filepath The path of the file holding the entities.
+     */
+    protected FileStorageEngine(String filepath) {
+        this(filepath, null);
+    }
+
+    /**
+     * @param filepath The path of the file holding the entities.
+     * @param compression Compresses the file, or {@code null} to write it uncompressed.
+     */
+    protected FileStorageEngine(String filepath, Compression compression) {
+        this.filepath = filepath;
+        this.compression = compression;
+    }
+
+    /**
+     * Reads every entity from a stream positioned at the start of the file.
+     *
+     * @param in The file contents.
+     * @return The entities, in the order they were written.
+     * @throws Exception If the file could not be read or is not in the expected format.
+     */
+    protected abstract List<T> read(InputStream in) throws Exception;
+
+    /**
+     * Writes every entity to a stream.
+     *
+     * @param entities The entities to write.
+     * @param out The destination stream.
+     * @throws IOException If the entities could not be written.
+     */
+    protected abstract void write(List<T> entities, OutputStream out) throws IOException;
+
+    /**
+     * Called once a file written by {@link #write} has been moved into place, so subclasses can
+     * write files that must describe the file now in place.
+     *
+     * @throws IOException If the subclass's files could not be written.
+     */
+    protected void written() throws IOException {
+    }
+
+    @Override
+    public String location() {
+        return filepath;
+    }
+
+    /**
+     * Reads every entity from the file.
+     *
+     * @return The stored entities, or an empty list if there is no file yet.
+     * @throws UncheckedIOException If the file exists but cannot be read, for example because it
+     *                              was written by an incompatible version. The file is left as it is.
+     */
+    @Override
+    public List<T> load() {
+        try {
+            return readFile();
+        } catch (FileNotFoundException e) {
+            return new ArrayList<>();
+        } catch (Exception e) {
+            throw unreadable(filepath, e);
+        }
+    }
+
+    /**
+     * Describes why stored data could not be loaded. An engine must throw this rather than load
+     * nothing, since the repository would otherwise start empty and its next sync would overwrite
+     * the data it could not read.
+     *
+     * @param path The file that could not be read.
+     * @param cause Why it could not be read.
+     * @return An exception naming the file, and saying so if it was written in another format version.
+     */
+    static UncheckedIOException unreadable(String path, Exception cause) {
+        String message = "Cannot read " + path + "; it has been left as it is";
+        for (Throwable reason = cause; reason != null; reason = reason.getCause()) {
+            if (reason instanceof InvalidClassException) {
+                message = path + " was written in a format this version cannot read (" + reason.getMessage()
+                        + "); it has been left as it is. Move it aside to start without its data.";
+                break;
+            }
+        }
+        return new UncheckedIOException(message, cause instanceof IOException io ? io : new IOException(cause));
+    }
+
+    /**
+     * Reads every entity from the file, decompressing it if it is compressed.
+     *
+     * @return The entities, in the order they were written.
+     * @throws FileNotFoundException If there is no file.
+     * @throws Exception If the file could not be read or is not in the expected format.
+     */
+    List<T> readFile() throws Exception {
+        try (InputStream file = new BufferedInputStream(new FileInputStream(filepath));
+             InputStream in = compression != null ? compression.decompress(file) : Compressions.decompress(file)) {
+            return read(in);
+        }
+    }
+
+    @Override
+    public void upsert(T entity) {
+        stale = true;
+    }
+
+    @Override
+    public void delete(String id) {
+        stale = true;
+    }
+
+    @Override
+    public void sync(Supplier<List<T>> current, boolean fsync) throws IOException {
+        if (!stale) return;
+        writeFile(current.get(), fsync);
+    }
+
+    @Override
+    public void snapshot(List<T> entities) throws IOException {
+        writeFile(entities, false);
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+
+    private void writeFile(List<T> entities, boolean fsync) throws IOException {
+        Path target = Paths.get(filepath);
+        Path temp = Paths.get(filepath + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+            BufferedOutputStream buffered = new BufferedOutputStream(file);
+            if (compression != null) {
+                try (OutputStream out = compression.compress(buffered)) {
+                    write(entities, out);
+                }
+            } else {
+                write(entities, buffered);
+                buffered.flush();
+            }
+            if (fsync) {
+                file.getFD().sync();
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        stale = false;
+        written();
+    }
+}
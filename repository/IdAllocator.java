@@ -0,0 +1,143 @@
+package repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Hands out unique, sortable IDs of the form {@code PREFIX} followed by a fixed-width,
+ * zero-padded number (e.g. "APP00000001").
+ *
+ * <p>Numbers are leased from a high-water mark file in blocks of {@code blockSize}. The file
+ * always holds the end of the last block leased, so on startup the allocator resumes from it
+ * without scanning the repository. Within a block, IDs are taken with a single atomic increment,
+ * so concurrent callers never block each other. Only leasing the next block takes a lock: an
+ * in-process monitor plus an exclusive lock on the file, which lets several processes share one
+ * mark file without handing out the same number twice. Numbers left in a block when the programme
+ * exits are skipped, so IDs are unique and increasing but not necessarily contiguous.</p>
+ */
+class IdAllocator {
+    /** Number of digits in an allocated ID; enough for 99,999,999 entities per prefix. */
+    static final int WIDTH = 8;
+
+    /** Default number of IDs leased from the mark file at a time. */
+    static final int DEFAULT_BLOCK_SIZE = 64;
+
+    private final String prefix;
+    private final Path markPath;
+    private final int blockSize;
+
+    /** The current lease. Replaced, never modified, when a new block is leased. */
+    private volatile Block block;
+
+    /**
+     * A leased range of numbers: {@code next} counts up towards the exclusive {@code end}.
+     */
+    private record Block(AtomicLong next, long end) {
+    }
+
+    /**
+     * Creates an allocator backed by the given mark file. If the file does not exist yet (e.g. the
+     * data predates the allocator), it is seeded once from {@code seed}, which must return the
+     * highest number already in use.
+     *
+     * @param prefix The prefix of every allocated ID.
+     * @param markPath The path of the high-water mark file.
+     * @param blockSize The number of IDs to lease at a time.
+     * @param seed Supplies the highest number in use, consulted only when the mark file is missing.
+     */
+    IdAllocator(String prefix, String markPath, int blockSize, LongSupplier seed) {
+        this.prefix = prefix;
+        this.markPath = Paths.get(markPath);
+        this.blockSize = blockSize;
+        this.block = new Block(new AtomicLong(), 0);
+
+        if (Files.notExists(this.markPath)) {
+            try {
+                writeMark(seed.getAsLong() + 1);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Allocates the next ID.
+     *
+     * @return A new ID that has never been handed out for this prefix.
+     */
+    String nextId() {
+        return format(nextNumber());
+    }
+
+    /**
+     * Allocates the next number, leasing a new block when the current one is used up.
+     *
+     * @return A number that has never been handed out for this prefix.
+     */
+    long nextNumber() {
+        while (true) {
+            Block current = block;
+            long number = current.next().getAndIncrement();
+            if (number < current.end()) return number;
+            lease(current);
+        }
+    }
+
+    /**
+     * Formats a number as an ID of this allocator.
+     *
+     * @param number The number to format.
+     * @return The prefix followed by the number, zero-padded to {@link #WIDTH} digits.
+     */
+    String format(long number) {
+        String digits = Long.toString(number);
+        StringBuilder id = new StringBuilder(prefix.length() + WIDTH).append(prefix);
+        for (int i = digits.length(); i < WIDTH; i++) {
+            id.append('0');
+        }
+        return id.append(digits).toString();
+    }
+
+    /**
+     * Leases the next block from the mark file, unless another thread already replaced the
+     * exhausted block while this one waited.
+     *
+     * @param exhausted The block the caller found used up.
+     */
+    private synchronized void lease(Block exhausted) {
+        if (block != exhausted) return;
+
+        try (FileChannel channel = FileChannel.open(markPath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock fileLock = channel.lock();
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+                long start = channel.read(buffer, 0) == Long.BYTES ? buffer.flip().getLong() : 1;
+                long end = start + blockSize;
+
+                buffer.clear().putLong(end).flip();
+                channel.write(buffer, 0);
+                channel.force(false);
+                block = new Block(new AtomicLong(start), end);
+            } finally {
+                fileLock.release();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not lease IDs from " + markPath, e);
+        }
+    }
+
+    private void writeMark(long mark) throws IOException {
+        Path parent = markPath.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Files.write(markPath, ByteBuffer.allocate(Long.BYTES).putLong(mark).array());
+    }
+}
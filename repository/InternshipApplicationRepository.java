@@ -1,33 +1,322 @@
 package repository;
 
 import entity.InternshipApplication;
+import entity.enums.ApplicationStatus;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * A specialized repository for managing {@link InternshipApplication} entities.
  * It handles the specific file path and provides functionality for generating
  * sequential, unique IDs for new applications.
+ *
+ * <p>It also maintains secondary indexes by student ID, internship ID and application status,
+ * so the controllers can look up a student's or an internship's applications in time
+ * proportional to the result rather than to the number of applications stored. Archived
+ * applications leave the indexes like deleted ones, so these lookups only return applications
+ * still in the hot tier.</p>
+ *
+ * <p>For each student it also keeps the number of active applications and of accepted offers,
+ * adjusted as each application is saved or removed, so the checks made before every application
+ * take constant time. {@link #checkStudentTallies} rebuilds these counts from the applications
+ * and reports any that had drifted.</p>
+ *
+ * <p>Whether a student has applied for an internship is answered from a {@link LongHashSet} of
+ * (student, internship) pairs. Each student ID and internship ID is given a surrogate number the
+ * first time it is indexed, and a pair is packed into one {@code long}, so the check allocates
+ * nothing. The set is built with the other indexes when the repository loads.</p>
  */
 public class InternshipApplicationRepository extends Repository<InternshipApplication> {
     public static final String PREFIX = "APP";
-    private int nextId;
+
+    /** The default file path of the repository's data. */
+    public static final String FILEPATH = "./data/internshipApplications.ser";
+    private final IdAllocator idAllocator;
+
+    private final Map<String, Map<String, InternshipApplication>> byStudent = new HashMap<>();
+    private final Map<String, Map<String, InternshipApplication>> byInternship = new HashMap<>();
+    private final Map<ApplicationStatus, Map<String, InternshipApplication>> byStatus = new EnumMap<>(ApplicationStatus.class);
+
+    /** Each student's active applications and accepted offers, by student ID; students with neither are left out. */
+    private final Map<String, StudentTally> tallies = new HashMap<>();
+
+    /** Surrogate numbers for the student and internship IDs indexed so far, from 1. */
+    private final Map<String, Integer> studentNumbers = new HashMap<>();
+    private final Map<String, Integer> internshipNumbers = new HashMap<>();
+
+    /** The (student, internship) pairs that have an application, packed by {@link #pair}. */
+    private final LongHashSet applied = new LongHashSet();
+
+    /** The keys each application is currently indexed under, so stale entries can be removed after a change. */
+    private final Map<String, IndexKeys> indexedKeys = new HashMap<>();
+
+    private record IndexKeys(String studentId, String internshipId, ApplicationStatus status,
+                             boolean active, boolean accepted) {
+    }
 
     /**
-     * Constructs the InternshipApplicationRepository.
-     * It sets the file path and initializes the {@code nextId} by computing the
-     * maximum existing numeric ID and incrementing it.
+     * The counts kept for one student.
+     */
+    private static final class StudentTally {
+        int active;
+        int accepted;
+    }
+
+    /**
+     * Constructs the InternshipApplicationRepository with log-structured Java serialization at {@link #FILEPATH}.
      */
     public InternshipApplicationRepository() {
-        super("./data/internshipApplications.ser");
-        nextId = computeMaxNumericId(PREFIX) + 1;
+        this(new LogStructuredStorageEngine<>(new SerializationStorageEngine<>(FILEPATH)));
+    }
+
+    /**
+     * Constructs the InternshipApplicationRepository on the given storage engine, with a cold tier for
+     * archived applications, and sets up the ID allocator.
+     * The allocator resumes from its persisted high-water mark; the stored IDs are only scanned
+     * the first time, when no mark has been written yet.
+     *
+     * @param engine The engine that persists the InternshipApplication entities.
+     */
+    public InternshipApplicationRepository(StorageEngine<InternshipApplication> engine) {
+        super(engine, EntityCodecs.internshipApplications());
+        idAllocator = new IdAllocator(PREFIX, filepath + ".ids", IdAllocator.DEFAULT_BLOCK_SIZE,
+                () -> computeMaxNumericId(PREFIX));
+        entities.forEach(this::entityStored);
     }
 
     /**
      * Generates a new, unique, sequential ID for a new Internship Application.
-     * The ID is formatted as "APP" followed by a 4-digit zero-padded number (e.g., "APP0001").
+     * The ID is formatted as "APP" followed by an 8-digit zero-padded number (e.g., "APP00000001"),
+     * so IDs sort in the order they were generated. Safe to call from several threads at once.
      *
      * @return The newly generated unique ID string.
      */
     public String generateNextId() {
-        return String.format(PREFIX + "%04d", nextId++);
+        return idAllocator.nextId();
+    }
+
+    /**
+     * Retrieves all applications submitted by a student.
+     *
+     * @param studentId The ID of the student.
+     * @return A new list of the student's applications, in the order they were first saved.
+     */
+    public ArrayList<InternshipApplication> findByStudentId(String studentId) {
+        return read(() -> bucket(byStudent.get(studentId)));
+    }
+
+    /**
+     * Retrieves all applications submitted for an internship.
+     *
+     * @param internshipId The ID of the internship.
+     * @return A new list of the internship's applications, in the order they were first saved.
+     */
+    public ArrayList<InternshipApplication> findByInternshipId(String internshipId) {
+        return read(() -> bucket(byInternship.get(internshipId)));
+    }
+
+    /**
+     * Retrieves all applications currently in the given status.
+     * The status index is updated when an application is saved, so a status change must be
+     * followed by {@link #save} (as the controllers already do) to be reflected here.
+     *
+     * @param status The application status to look up.
+     * @return A new list of the applications in that status.
+     */
+    public ArrayList<InternshipApplication> findByStatus(ApplicationStatus status) {
+        return read(() -> bucket(byStatus.get(status)));
+    }
+
+    /**
+     * Checks whether a student has an application for an internship, in any status. Takes
+     * constant time and allocates nothing.
+     *
+     * @param studentId The ID of the student.
+     * @param internshipId The ID of the internship.
+     * @return {@code true} if the student has applied for the internship.
+     */
+    public boolean hasApplied(String studentId, String internshipId) {
+        long stamp = lock.readLock();
+        try {
+            Integer student = studentNumbers.get(studentId);
+            Integer internship = internshipNumbers.get(internshipId);
+            return student != null && internship != null && applied.contains(pair(student, internship));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Counts a student's active applications: those pending, pending withdrawal, or successful
+     * but not yet accepted.
+     *
+     * @param studentId The ID of the student.
+     * @return The number of active applications.
+     */
+    public int countActiveByStudentId(String studentId) {
+        return read(() -> {
+            StudentTally tally = tallies.get(studentId);
+            return tally == null ? 0 : tally.active;
+        });
+    }
+
+    /**
+     * Checks whether a student has accepted an offer.
+     *
+     * @param studentId The ID of the student.
+     * @return {@code true} if one of the student's applications has its offer accepted.
+     */
+    public boolean hasAcceptedOffer(String studentId) {
+        return read(() -> {
+            StudentTally tally = tallies.get(studentId);
+            return tally != null && tally.accepted > 0;
+        });
+    }
+
+    /**
+     * Rebuilds the secondary indexes and the per-student counts from the applications, and reports
+     * every student whose counts differed from the rebuilt ones. An application changed without
+     * being saved again is counted as it is now.
+     *
+     * @return A description of each student whose counts were wrong, empty if none were.
+     */
+    public List<String> checkStudentTallies() {
+        long stamp = lock.writeLock();
+        try {
+            Map<String, StudentTally> kept = new HashMap<>(tallies);
+            byStudent.clear();
+            byInternship.clear();
+            byStatus.clear();
+            tallies.clear();
+            applied.clear();
+            indexedKeys.clear();
+            entities.forEach(this::entityStored);
+
+            List<String> differences = new ArrayList<>();
+            Set<String> studentIds = new HashSet<>(kept.keySet());
+            studentIds.addAll(tallies.keySet());
+            for (String studentId : studentIds) {
+                StudentTally was = kept.getOrDefault(studentId, new StudentTally());
+                StudentTally is = tallies.getOrDefault(studentId, new StudentTally());
+                if (was.active != is.active || was.accepted != is.accepted) {
+                    differences.add(studentId + ": " + was.active + " active and " + was.accepted
+                            + " accepted, rebuilt as " + is.active + " and " + is.accepted);
+                }
+            }
+            return differences;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Re-indexes an application after it has been saved. An application saved again for the same
+     * student and internship keeps its place in their buckets, so those stay in the order the
+     * applications were first saved; only its status entry and the student's counts change.
+     *
+     * @param application The application that was stored.
+     */
+    @Override
+    protected void entityStored(InternshipApplication application) {
+        String id = application.getId();
+        IndexKeys keys = new IndexKeys(application.getStudentId(), application.getInternshipId(), application.getApplicationStatus(),
+                isActive(application), application.getOfferAccepted());
+        IndexKeys previous = indexedKeys.get(id);
+        if (previous != null && Objects.equals(previous.studentId(), keys.studentId())
+                && Objects.equals(previous.internshipId(), keys.internshipId())) {
+            byStudent.get(keys.studentId()).put(id, application);
+            byInternship.get(keys.internshipId()).put(id, application);
+            if (previous.status() != keys.status()) {
+                removeFromBucket(byStatus, previous.status(), id);
+            }
+            byStatus.computeIfAbsent(keys.status(), k -> new LinkedHashMap<>()).put(id, application);
+            count(previous, -1);
+            count(keys, 1);
+            indexedKeys.put(id, keys);
+            return;
+        }
+
+        unindex(id);
+        byStudent.computeIfAbsent(keys.studentId(), k -> new LinkedHashMap<>()).put(id, application);
+        byInternship.computeIfAbsent(keys.internshipId(), k -> new LinkedHashMap<>()).put(id, application);
+        byStatus.computeIfAbsent(keys.status(), k -> new LinkedHashMap<>()).put(id, application);
+        indexedKeys.put(id, keys);
+        applied.add(pair(number(studentNumbers, keys.studentId()), number(internshipNumbers, keys.internshipId())));
+        count(keys, 1);
+    }
+
+    /**
+     * Removes a deleted application from the secondary indexes.
+     *
+     * @param application The application that was removed.
+     */
+    @Override
+    protected void entityRemoved(InternshipApplication application) {
+        unindex(application.getId());
+    }
+
+    private void unindex(String applicationId) {
+        IndexKeys keys = indexedKeys.remove(applicationId);
+        if (keys == null) return;
+
+        removeFromBucket(byStudent, keys.studentId(), applicationId);
+        removeFromBucket(byInternship, keys.internshipId(), applicationId);
+        removeFromBucket(byStatus, keys.status(), applicationId);
+        Map<String, InternshipApplication> others = byStudent.get(keys.studentId());
+        if (others == null || others.values().stream().noneMatch(a -> Objects.equals(keys.internshipId(), a.getInternshipId()))) {
+            applied.remove(pair(studentNumbers.get(keys.studentId()), internshipNumbers.get(keys.internshipId())));
+        }
+        count(keys, -1);
+    }
+
+    /**
+     * Adds an application's indexed state to its student's counts, or takes it away again.
+     */
+    private void count(IndexKeys keys, int delta) {
+        if (!keys.active() && !keys.accepted()) return;
+
+        StudentTally tally = tallies.computeIfAbsent(keys.studentId(), k -> new StudentTally());
+        if (keys.active()) tally.active += delta;
+        if (keys.accepted()) tally.accepted += delta;
+        if (tally.active == 0 && tally.accepted == 0) {
+            tallies.remove(keys.studentId());
+        }
+    }
+
+    private static int number(Map<String, Integer> numbers, String id) {
+        return numbers.computeIfAbsent(id, k -> numbers.size() + 1);
+    }
+
+    private static long pair(int student, int internship) {
+        return (long) student << 32 | internship;
+    }
+
+    private static boolean isActive(InternshipApplication application) {
+        return switch (application.getApplicationStatus()) {
+            case PENDING, PENDING_WITHDRAWAL, SUCCESSFUL -> !application.getOfferAccepted();
+            default -> false; // UNSUCCESSFUL and WITHDRAWN are not active
+        };
+    }
+
+    private static <K> void removeFromBucket(Map<K, Map<String, InternshipApplication>> index, K key, String applicationId) {
+        Map<String, InternshipApplication> bucket = index.get(key);
+        if (bucket == null) return;
+
+        bucket.remove(applicationId);
+        if (bucket.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static ArrayList<InternshipApplication> bucket(Map<String, InternshipApplication> bucket) {
+        return bucket == null ? new ArrayList<>() : new ArrayList<>(bucket.values());
     }
-}
\ No newline at end of file
+}
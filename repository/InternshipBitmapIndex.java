@@ -0,0 +1,134 @@
+package repository;
+
+import entity.Internship;
+import entity.enums.InternshipLevel;
+import entity.enums.InternshipStatus;
+import entity.enums.Major;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bitmap index over the enum attributes of {@link Internship}: preferred major, level and
+ * status, plus visibility.
+ *
+ * <p>Each internship is assigned a row number, and every attribute value owns a {@link BitSet}
+ * with the rows that hold that value. A query over several attribute values is answered by
+ * AND-ing their bitsets, and only the internships in the resulting rows are touched.</p>
+ *
+ * <p>Rows of removed internships become tombstones and are not reused, so row numbers stay
+ * stable for the lifetime of the index.</p>
+ */
+class InternshipBitmapIndex {
+    private final List<Internship> rows = new ArrayList<>();
+    private final Map<String, Integer> rowOf = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private final BitSet visible = new BitSet();
+    private final BitSet[] byMajor = newBitSets(Major.values().length);
+    private final BitSet[] byLevel = newBitSets(InternshipLevel.values().length);
+    private final BitSet[] byStatus = newBitSets(InternshipStatus.values().length);
+
+    /**
+     * Adds an internship, or re-indexes it if it is already present.
+     *
+     * @param internship The internship to index.
+     */
+    void put(Internship internship) {
+        Integer row = rowOf.get(internship.getId());
+        if (row == null) {
+            row = rows.size();
+            rows.add(internship);
+            rowOf.put(internship.getId(), row);
+        } else {
+            rows.set(row, internship);
+            clearRow(row);
+        }
+
+        live.set(row);
+        if (internship.getVisibility()) visible.set(row);
+        if (internship.getPreferredMajor() != null) byMajor[internship.getPreferredMajor().ordinal()].set(row);
+        if (internship.getLevel() != null) byLevel[internship.getLevel().ordinal()].set(row);
+        if (internship.getInternshipStatus() != null) byStatus[internship.getInternshipStatus().ordinal()].set(row);
+    }
+
+    /**
+     * Removes an internship from the index.
+     *
+     * @param internshipId The ID of the internship to remove.
+     */
+    void remove(String internshipId) {
+        Integer row = rowOf.remove(internshipId);
+        if (row == null) return;
+
+        clearRow(row);
+        live.clear(row);
+        rows.set(row, null);
+    }
+
+    /**
+     * Returns the rows whose attributes equal every one of the given values.
+     *
+     * @param keys The attribute values to match; each must be a {@link Major},
+     *             {@link InternshipLevel} or {@link InternshipStatus}.
+     * @param visibleOnly {@code true} to further restrict the result to visible internships.
+     * @return A new bitset of matching rows.
+     */
+    BitSet match(Collection<? extends Enum<?>> keys, boolean visibleOnly) {
+        BitSet result = (BitSet) live.clone();
+        if (visibleOnly) result.and(visible);
+        for (Enum<?> key : keys) {
+            result.and(bitsFor(key));
+        }
+        return result;
+    }
+
+    /**
+     * Materializes the internships held in the given rows, in row order.
+     *
+     * @param matches The rows to read.
+     * @return A new list of the internships in those rows.
+     */
+    ArrayList<Internship> rowsOf(BitSet matches) {
+        ArrayList<Internship> result = new ArrayList<>(matches.cardinality());
+        for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+            result.add(rows.get(row));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of live internships holding the given attribute value.
+     *
+     * @param key A {@link Major}, {@link InternshipLevel} or {@link InternshipStatus} value.
+     * @return The number of matching internships.
+     */
+    int count(Enum<?> key) {
+        return bitsFor(key).cardinality();
+    }
+
+    private BitSet bitsFor(Enum<?> key) {
+        if (key instanceof Major) return byMajor[key.ordinal()];
+        if (key instanceof InternshipLevel) return byLevel[key.ordinal()];
+        if (key instanceof InternshipStatus) return byStatus[key.ordinal()];
+        throw new IllegalArgumentException("Internships are not indexed by " + key.getDeclaringClass().getSimpleName());
+    }
+
+    private void clearRow(int row) {
+        visible.clear(row);
+        for (BitSet bits : byMajor) bits.clear(row);
+        for (BitSet bits : byLevel) bits.clear(row);
+        for (BitSet bits : byStatus) bits.clear(row);
+    }
+
+    private static BitSet[] newBitSets(int count) {
+        BitSet[] bitSets = new BitSet[count];
+        for (int i = 0; i < count; i++) {
+            bitSets[i] = new BitSet();
+        }
+        return bitSets;
+    }
+}
@@ -0,0 +1,91 @@
+package repository;
+
+import entity.Internship;
+import entity.enums.InternshipLevel;
+import entity.enums.InternshipStatus;
+import entity.enums.Major;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The internships students may browse, grouped by the students who may apply for them: one
+ * bucket per preferred major and year band. A year band is the highest level its students may
+ * apply for, so a bucket holds the internships of its major at that level or below.
+ *
+ * <p>Only approved, visible internships with a preferred major and a level, that are accepting
+ * applications, are held; putting one that no longer qualifies takes it out. Each internship is
+ * therefore held by at most one bucket per level at or above its own. A bucket is sorted by ID,
+ * i.e. in the order the internships were first saved, and reading one takes time proportional to
+ * its size.</p>
+ */
+class InternshipEligibilityIndex {
+    private static final InternshipLevel[] LEVELS = InternshipLevel.values();
+
+    /** The buckets of each major in turn, each major's ordered by year band; see {@link #bucket}. */
+    private final List<TreeMap<String, Internship>> buckets = new ArrayList<>();
+
+    /** The major and level each internship is currently held under, so it can be taken out after a change. */
+    private final Map<String, Key> indexed = new HashMap<>();
+
+    private record Key(Major major, InternshipLevel level) {
+    }
+
+    InternshipEligibilityIndex() {
+        for (int i = 0; i < Major.values().length * LEVELS.length; i++) {
+            buckets.add(new TreeMap<>());
+        }
+    }
+
+    private TreeMap<String, Internship> bucket(Major major, int band) {
+        return buckets.get(major.ordinal() * LEVELS.length + band);
+    }
+
+    /**
+     * Adds an internship if students may browse it, and takes it out otherwise.
+     *
+     * @param internship The internship that was saved, or whose application window opened or closed.
+     * @param accepting {@code true} if its application window is open.
+     */
+    void put(Internship internship, boolean accepting) {
+        remove(internship.getId());
+        if (!accepting || internship.getInternshipStatus() != InternshipStatus.APPROVED || !internship.getVisibility()
+                || internship.getPreferredMajor() == null || internship.getLevel() == null) {
+            return;
+        }
+
+        Key key = new Key(internship.getPreferredMajor(), internship.getLevel());
+        for (int band = key.level().ordinal(); band < LEVELS.length; band++) {
+            bucket(key.major(), band).put(internship.getId(), internship);
+        }
+        indexed.put(internship.getId(), key);
+    }
+
+    /**
+     * Takes an internship out of the index.
+     *
+     * @param internshipId The ID of the internship.
+     */
+    void remove(String internshipId) {
+        Key key = indexed.remove(internshipId);
+        if (key == null) return;
+
+        for (int band = key.level().ordinal(); band < LEVELS.length; band++) {
+            bucket(key.major(), band).remove(internshipId);
+        }
+    }
+
+    /**
+     * Returns the internships of a major that students of a year band may browse.
+     *
+     * @param major The students' major.
+     * @param highestLevel The highest level the students may apply for.
+     * @return A new list of the internships, in ID order.
+     */
+    ArrayList<Internship> eligible(Major major, InternshipLevel highestLevel) {
+        return new ArrayList<>(bucket(major, highestLevel.ordinal()).values());
+    }
+}
@@ -1,37 +1,452 @@
 package repository;
 
 import entity.Internship;
+import entity.enums.InternshipLevel;
+import entity.enums.InternshipStatus;
+import entity.enums.Major;
+import util.filter.FilterStatistics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A specialized repository for managing {@link Internship} entities.
  * It handles the specific file path and provides functionality for generating
  * sequential, unique IDs for new internships.
+ *
+ * <p>It also keeps an {@link InternshipBitmapIndex} over major, level, status and visibility,
+ * so reports that filter on those attributes can be answered without scanning every internship.
+ * Together with a histogram of company names, the index also provides the {@link FilterStatistics}
+ * used to plan report filters.</p>
+ *
+ * <p>The internships students may browse are kept apart in an {@link InternshipEligibilityIndex},
+ * so {@link #findOpen} reads a ready list for the student's major and year rather than filtering
+ * every internship.</p>
+ *
+ * <p>Whether each internship is accepting applications is worked out when it is saved, and kept.
+ * A single scheduler thread wakes up when the next application window opens or closes, flips the
+ * kept state, updates the eligibility index and tells the {@link WindowListener}s, so no read
+ * compares dates. Only the next opening or closing of each internship is scheduled, and saving
+ * the internship again replaces it.</p>
+ *
+ * <p>The application windows are also kept in an {@link IntervalTreap}, so the internships whose
+ * window takes in a given date, or overlaps a given period, are found without comparing the
+ * dates of every internship. The same windows are ordered by close date in a {@link TreeMap}, so
+ * those closing within a period are read off directly.</p>
  */
-public class InternshipRepository extends Repository<Internship> {
+public class InternshipRepository extends Repository<Internship> implements FilterStatistics {
     /** The prefix used for all Internship IDs. */
     public static final String PREFIX = "INT";
 
-    private int nextId;
+    /** The default file path of the repository's data. */
+    public static final String FILEPATH = "./data/internships.ser";
+
+    private final IdAllocator idAllocator;
+
+    private final InternshipBitmapIndex bitmapIndex = new InternshipBitmapIndex();
+
+    private final InternshipEligibilityIndex eligibilityIndex = new InternshipEligibilityIndex();
+
+    /** The IDs of the internships whose application window is open. */
+    private final Set<String> accepting = new HashSet<>();
+
+    /** The next opening or closing of each internship's window, by internship ID. */
+    private final Map<String, Transition> transitions = new HashMap<>();
+
+    /** Each internship's application window, from its open date to its close date. */
+    private final IntervalTreap<Internship> windows = new IntervalTreap<>();
+
+    /** The internships in {@link #windows} that have a close date, by close time and then by ID. */
+    private final TreeMap<Long, TreeMap<String, Internship>> closing = new TreeMap<>();
 
+    /** The close time each internship is currently held under in {@link #closing}. */
+    private final Map<String, Long> closingTime = new HashMap<>();
+
+    private final List<WindowListener> windowListeners = new CopyOnWriteArrayList<>();
+
+    /** Runs the transitions at their times, on one thread. */
+    private final ScheduledThreadPoolExecutor windowScheduler;
 
     /**
-     * Constructs the InternshipRepository.
-     * It sets the file path and initializes the {@code nextId} by computing the
-     * maximum existing numeric ID and incrementing it.
+     * Receives the internships whose application window has just opened or closed.
+     */
+    public interface WindowListener {
+        /**
+         * Called on the scheduler thread, without any lock held.
+         *
+         * @param internship The internship.
+         * @param open {@code true} if its window opened, {@code false} if it closed.
+         */
+        void windowChanged(Internship internship, boolean open);
+    }
+
+    /**
+     * A scheduled opening or closing of one internship's window. It is only carried out if it is
+     * still the internship's latest, i.e. the internship has not been saved or removed since.
+     */
+    private static final class Transition {
+        final Internship internship;
+        ScheduledFuture<?> future;
+
+        Transition(Internship internship) {
+            this.internship = internship;
+        }
+    }
+
+    /** Number of internships per lower-cased company name. */
+    private final Map<String, Integer> companyHistogram = new HashMap<>();
+
+    /** The lower-cased company name each internship is currently counted under. */
+    private final Map<String, String> countedCompany = new HashMap<>();
+
+
+    /**
+     * Constructs the InternshipRepository with log-structured Java serialization at {@link #FILEPATH}.
      */
     public InternshipRepository() {
-        super("./data/internships.ser");
-        nextId = computeMaxNumericId(PREFIX) + 1;
+        this(new LogStructuredStorageEngine<>(new SerializationStorageEngine<>(FILEPATH)));
+    }
+
+    /**
+     * Constructs the InternshipRepository on the given storage engine, with a cold tier for archived
+     * internships, and sets up the ID allocator.
+     * The allocator resumes from its persisted high-water mark; the stored IDs are only scanned
+     * the first time, when no mark has been written yet.
+     *
+     * @param engine The engine that persists the Internship entities.
+     */
+    public InternshipRepository(StorageEngine<Internship> engine) {
+        super(engine, EntityCodecs.internships());
+        windowScheduler = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "internship-windows " + filepath);
+            thread.setDaemon(true);
+            return thread;
+        });
+        windowScheduler.setRemoveOnCancelPolicy(true);
+        idAllocator = new IdAllocator(PREFIX, filepath + ".ids", IdAllocator.DEFAULT_BLOCK_SIZE,
+                () -> computeMaxNumericId(PREFIX));
+        // the scheduler may run a transition as soon as the first one is scheduled, and it takes the write lock
+        long stamp = lock.writeLock();
+        try {
+            entities.forEach(this::entityStored);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
 
     
     /**
      * Generates a new, unique, sequential ID for a new Internship.
-     * The ID is formatted as "INT" followed by a 4-digit zero-padded number (e.g., "INT0001").
+     * The ID is formatted as "INT" followed by an 8-digit zero-padded number (e.g., "INT00000001"),
+     * so IDs sort in the order they were generated. Safe to call from several threads at once.
      *
      * @return The newly generated unique ID string.
      */
     public String generateNextId() {
-        return String.format(PREFIX + "%04d", nextId++);
+        return idAllocator.nextId();
+    }
+
+    /**
+     * Retrieves all internships whose attributes equal every one of the given values,
+     * by AND-ing the bitmap index rather than scanning.
+     *
+     * @param keys The attribute values to match, each a {@code Major}, {@code InternshipLevel}
+     *             or {@code InternshipStatus}. An empty collection matches every internship.
+     * @param visibleOnly {@code true} to only return internships that are visible to students.
+     * @return A new list of the matching internships, in the order they were first saved.
+     */
+    public ArrayList<Internship> findByAttributes(Collection<? extends Enum<?>> keys, boolean visibleOnly) {
+        return read(() -> bitmapIndex.rowsOf(bitmapIndex.match(keys, visibleOnly)));
+    }
+
+    /**
+     * Retrieves the approved, visible internships for a major, at or below the given level, that
+     * are accepting applications.
+     *
+     * <p>The internships are read from the eligibility index, so the time taken is proportional to
+     * the number returned. Each is checked against its in-memory state, so an internship changed
+     * but not yet saved again is never returned on the strength of its old state.</p>
+     *
+     * @param major The student's major.
+     * @param highestLevel The highest internship level the student may apply for.
+     * @return A new list of the matching internships, in the order they were first saved.
+     */
+    public ArrayList<Internship> findOpen(Major major, InternshipLevel highestLevel) {
+        ArrayList<Internship> open = read(() -> eligibilityIndex.eligible(major, highestLevel));
+        open.removeIf(internship -> internship.getInternshipStatus() != InternshipStatus.APPROVED
+                || !internship.getVisibility()
+                || internship.getPreferredMajor() != major
+                || internship.getLevel() == null || internship.getLevel().compareTo(highestLevel) > 0);
+        return open;
+    }
+
+    /**
+     * Checks whether an internship's application window is open, as last worked out when it was
+     * saved or when its window last opened or closed. A missing open or close date leaves that
+     * side of the window unbounded.
+     *
+     * @param internshipId The ID of the internship.
+     * @return {@code true} if the internship is accepting applications.
+     */
+    public boolean isAcceptingApplications(String internshipId) {
+        return read(() -> accepting.contains(internshipId));
+    }
+
+    /**
+     * Retrieves the internships whose application window takes in a point in time, whatever their
+     * status and visibility. A missing open or close date leaves that side of the window unbounded.
+     *
+     * <p>The windows are read from an interval tree, so the time taken grows with the number of
+     * internships returned rather than the number stored.</p>
+     *
+     * @param time The point in time, in milliseconds since the epoch.
+     * @return A new list of the internships, in order of open date.
+     */
+    public List<Internship> findWindowsOn(long time) {
+        return findWindowsOverlapping(time, time);
+    }
+
+    /**
+     * Retrieves the internships whose application window shares at least one point in time with
+     * a period, whatever their status and visibility.
+     *
+     * @param from The start of the period, in milliseconds since the epoch.
+     * @param to The end of the period, in milliseconds since the epoch, inclusive.
+     * @return A new list of the internships, in order of open date; empty if {@code to} is before {@code from}.
+     */
+    public List<Internship> findWindowsOverlapping(long from, long to) {
+        if (to < from) return new ArrayList<>();
+        return read(() -> windows.overlapping(from, to));
+    }
+
+    /**
+     * Retrieves the internships whose application window closes within a period, whatever their
+     * status and visibility. Internships without a close date never close, so are not included.
+     *
+     * <p>The internships are read from an index ordered by close date, so the time taken grows
+     * with the number of internships returned rather than the number stored.</p>
+     *
+     * @param from The start of the period, in milliseconds since the epoch.
+     * @param to The end of the period, in milliseconds since the epoch, inclusive.
+     * @return A new list of the internships, in order of close date and then of ID; empty if
+     *         {@code to} is before {@code from}.
+     */
+    public List<Internship> findWindowsClosingBetween(long from, long to) {
+        if (to < from) return new ArrayList<>();
+        return read(() -> {
+            List<Internship> found = new ArrayList<>();
+            for (TreeMap<String, Internship> sameTime : closing.subMap(from, true, to, true).values()) {
+                found.addAll(sameTime.values());
+            }
+            return found;
+        });
+    }
+
+    /**
+     * Adds a listener to be told when an internship's application window opens or closes.
+     * Saving an internship whose new dates open or close its window does not call the listeners.
+     *
+     * @param listener The listener.
+     */
+    public void addWindowListener(WindowListener listener) {
+        windowListeners.add(listener);
+    }
+
+    @Override
+    public int totalCount() {
+        return read(entities::size);
+    }
+
+    @Override
+    public int countMatching(Enum<?> key) {
+        return read(() -> bitmapIndex.count(key));
+    }
+
+    /**
+     * Counts matching internships by walking the distinct company names rather than the internships.
+     *
+     * @param term the search term
+     * @return the number of internships with a matching company name
+     */
+    @Override
+    public int countCompanyNameContaining(String term) {
+        String lowerTerm = term.toLowerCase();
+        return read(() -> {
+            int count = 0;
+            for (Map.Entry<String, Integer> company : companyHistogram.entrySet()) {
+                if (company.getKey().contains(lowerTerm)) {
+                    count += company.getValue();
+                }
+            }
+            return count;
+        });
+    }
+
+    /**
+     * Re-indexes an internship after it has been saved.
+     *
+     * @param internship The internship that was stored.
+     */
+    @Override
+    protected void entityStored(Internship internship) {
+        bitmapIndex.put(internship);
+        eligibilityIndex.put(internship, scheduleWindow(internship));
+        long opens = opens(internship);
+        long closes = closes(internship);
+        unindexClosing(internship.getId());
+        if (opens <= closes) {
+            windows.put(internship.getId(), opens, closes, internship);
+            if (internship.getAppCloseDate() != null) {
+                closing.computeIfAbsent(closes, k -> new TreeMap<>()).put(internship.getId(), internship);
+                closingTime.put(internship.getId(), closes);
+            }
+        } else {
+            windows.remove(internship.getId());
+        }
+        uncountCompany(internship.getId());
+        String company = internship.getCompanyName() == null ? "" : internship.getCompanyName().toLowerCase();
+        companyHistogram.merge(company, 1, Integer::sum);
+        countedCompany.put(internship.getId(), company);
+    }
+
+    /**
+     * Removes a deleted internship from the bitmap, eligibility, window and close-date indexes and the company histogram.
+     *
+     * @param internship The internship that was removed.
+     */
+    @Override
+    protected void entityRemoved(Internship internship) {
+        bitmapIndex.remove(internship.getId());
+        eligibilityIndex.remove(internship.getId());
+        windows.remove(internship.getId());
+        unindexClosing(internship.getId());
+        uncountCompany(internship.getId());
+        accepting.remove(internship.getId());
+        Transition pending = transitions.remove(internship.getId());
+        if (pending != null) {
+            pending.future.cancel(false);
+        }
+    }
+
+    /**
+     * Rejects an internship that has been archived. Saving it would bring a copy read from the
+     * cold tier back into memory, while applications keep the instance they resolved. The archived
+     * IDs are kept in memory, so saving a new internship reads nothing from the cold tier.
+     *
+     * @param internship The internship about to be saved.
+     * @throws IllegalStateException If the internship is archived and not in memory.
+     */
+    @Override
+    protected void checkSavable(Internship internship) {
+        if (findById(internship.getId()) == null && isArchived(internship.getId())) {
+            throw new IllegalStateException("Internship " + internship.getId() + " is archived and can no longer be changed");
+        }
+    }
+
+    /**
+     * Stops the window scheduler and closes the repository.
+     */
+    @Override
+    public void close() {
+        windowScheduler.shutdownNow();
+        super.close();
+    }
+
+    /**
+     * Works out whether an internship is accepting applications now, keeps the answer, and
+     * schedules the next opening or closing of its window in place of any scheduled before.
+     * Called with the write lock held.
+     *
+     * @return {@code true} if the window is open.
+     */
+    private boolean scheduleWindow(Internship internship) {
+        String id = internship.getId();
+        Transition previous = transitions.remove(id);
+        if (previous != null) {
+            previous.future.cancel(false);
+        }
+
+        long now = System.currentTimeMillis();
+        long opens = opens(internship);
+        long closes = closes(internship);
+        boolean open = now >= opens && now <= closes;
+        if (open) {
+            accepting.add(id);
+        } else {
+            accepting.remove(id);
+        }
+
+        // the window closes once the close time has passed, i.e. a millisecond after it
+        long next = now < opens ? opens : open && closes != Long.MAX_VALUE ? closes + 1 : -1;
+        if (next >= 0 && !windowScheduler.isShutdown()) {
+            Transition transition = new Transition(internship);
+            transition.future = windowScheduler.schedule(() -> runTransition(transition), next - now, TimeUnit.MILLISECONDS);
+            transitions.put(id, transition);
+        }
+        return open;
+    }
+
+    /**
+     * Carries out a scheduled transition, if it is still the internship's latest. A transition
+     * that runs a little early, by the scheduler's clock, finds the window unchanged and is
+     * scheduled again.
+     */
+    private void runTransition(Transition transition) {
+        Internship internship = transition.internship;
+        boolean wasOpen;
+        boolean open;
+        long stamp = lock.writeLock();
+        try {
+            if (transitions.get(internship.getId()) != transition) return;
+            transitions.remove(internship.getId());
+            wasOpen = accepting.contains(internship.getId());
+            open = scheduleWindow(internship);
+            eligibilityIndex.put(internship, open);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (open != wasOpen) {
+            for (WindowListener listener : windowListeners) {
+                listener.windowChanged(internship, open);
+            }
+        }
+    }
+
+    /** Returns the time an internship's window opens, or the earliest time if it has no open date. */
+    private static long opens(Internship internship) {
+        return internship.getAppOpenDate() == null ? Long.MIN_VALUE : internship.getAppOpenDate().getTime();
+    }
+
+    /** Returns the time an internship's window closes, or the latest time if it has no close date. */
+    private static long closes(Internship internship) {
+        return internship.getAppCloseDate() == null ? Long.MAX_VALUE : internship.getAppCloseDate().getTime();
+    }
+
+    private void unindexClosing(String internshipId) {
+        Long time = closingTime.remove(internshipId);
+        if (time == null) return;
+
+        TreeMap<String, Internship> sameTime = closing.get(time);
+        sameTime.remove(internshipId);
+        if (sameTime.isEmpty()) {
+            closing.remove(time);
+        }
+    }
+
+    private void uncountCompany(String internshipId) {
+        String company = countedCompany.remove(internshipId);
+        if (company != null) {
+            companyHistogram.computeIfPresent(company, (name, count) -> count == 1 ? null : count - 1);
+        }
     }
-}
\ No newline at end of file
+}
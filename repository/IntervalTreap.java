@@ -0,0 +1,208 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A set of closed intervals {@code [start, end]}, each identified by an ID and carrying a value,
+ * that finds the intervals overlapping a given one.
+ *
+ * <p>The intervals are kept in a treap: a binary search tree ordered by start (and then by ID),
+ * balanced in expectation by a random heap priority per node. Each node also records the largest
+ * end in its subtree, so a query skips every subtree that ends before the queried interval, and
+ * stops at the first node that starts after it. A query therefore only descends into subtrees
+ * holding at least one match, and costs O(log n) plus O(log n) per interval found at worst;
+ * adding or removing an interval costs O(log n) in expectation.</p>
+ *
+ * @param <V> The type of value carried by each interval.
+ */
+final class IntervalTreap<V> {
+    private final Random random = new Random();
+    private final Map<String, Node<V>> byId = new HashMap<>();
+    private Node<V> root;
+
+    private static final class Node<V> {
+        final String id;
+        final long start;
+        final long end;
+        final V value;
+        final int priority;
+        long maxEnd;
+        Node<V> left;
+        Node<V> right;
+
+        Node(String id, long start, long end, V value, int priority) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.value = value;
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+    }
+
+    /**
+     * Adds an interval, replacing any interval with the same ID.
+     *
+     * @param id The interval's ID.
+     * @param start The first point in the interval.
+     * @param end The last point in the interval; not before {@code start}.
+     * @param value The value to return for the interval.
+     */
+    void put(String id, long start, long end, V value) {
+        if (end < start) throw new IllegalArgumentException("Interval " + id + " ends before it starts");
+        remove(id);
+        Node<V> node = new Node<>(id, start, end, value, random.nextInt());
+        root = insert(root, node);
+        byId.put(id, node);
+    }
+
+    /**
+     * Removes an interval.
+     *
+     * @param id The interval's ID.
+     * @return {@code true} if there was an interval with the ID.
+     */
+    boolean remove(String id) {
+        Node<V> node = byId.remove(id);
+        if (node == null) return false;
+        root = delete(root, node);
+        return true;
+    }
+
+    /**
+     * Returns the values of the intervals that share at least one point with {@code [from, to]}.
+     *
+     * @param from The first point of the queried interval.
+     * @param to The last point of the queried interval.
+     * @return A new list of the values, ordered by interval start and then by ID.
+     */
+    List<V> overlapping(long from, long to) {
+        List<V> found = new ArrayList<>();
+        collect(root, from, to, found);
+        return found;
+    }
+
+    /**
+     * Returns the number of intervals.
+     *
+     * @return The interval count.
+     */
+    int size() {
+        return byId.size();
+    }
+
+    /**
+     * Checks that the tree is ordered by start and ID, that every node's priority is at most its
+     * parent's, that every recorded largest end is right, and that it holds every interval.
+     *
+     * @return The height of the tree.
+     * @throws IllegalStateException If the tree is malformed.
+     */
+    int checkStructure() {
+        int[] count = new int[1];
+        int height = checkStructure(root, null, null, count);
+        if (count[0] != byId.size()) {
+            throw new IllegalStateException("The tree holds " + count[0] + " intervals but " + byId.size() + " are indexed");
+        }
+        return height;
+    }
+
+    private static <V> int checkStructure(Node<V> node, Node<V> lower, Node<V> upper, int[] count) {
+        if (node == null) return 0;
+        if (lower != null && !before(lower, node) || upper != null && !before(node, upper)) {
+            throw new IllegalStateException("Interval " + node.id + " is out of order");
+        }
+        if (node.left != null && node.left.priority > node.priority
+                || node.right != null && node.right.priority > node.priority) {
+            throw new IllegalStateException("A child of interval " + node.id + " has a higher priority");
+        }
+        long maxEnd = node.end;
+        if (node.left != null) maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        if (node.right != null) maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        if (node.maxEnd != maxEnd) {
+            throw new IllegalStateException("Interval " + node.id + " records a largest end of " + node.maxEnd + " for " + maxEnd);
+        }
+        count[0]++;
+        return 1 + Math.max(checkStructure(node.left, lower, node, count), checkStructure(node.right, node, upper, count));
+    }
+
+    private static <V> void collect(Node<V> node, long from, long to, List<V> found) {
+        while (node != null && node.maxEnd >= from) {
+            collect(node.left, from, to, found);
+            if (node.start > to) return;
+            if (node.end >= from) found.add(node.value);
+            node = node.right;
+        }
+    }
+
+    private static <V> Node<V> insert(Node<V> tree, Node<V> node) {
+        if (tree == null) return node;
+        if (node.priority > tree.priority) {
+            Halves<V> halves = split(tree, node);
+            node.left = halves.before();
+            node.right = halves.after();
+            return update(node);
+        }
+        if (before(node, tree)) {
+            tree.left = insert(tree.left, node);
+        } else {
+            tree.right = insert(tree.right, node);
+        }
+        return update(tree);
+    }
+
+    private static <V> Node<V> delete(Node<V> tree, Node<V> node) {
+        if (tree == node) return merge(tree.left, tree.right);
+        if (before(node, tree)) {
+            tree.left = delete(tree.left, node);
+        } else {
+            tree.right = delete(tree.right, node);
+        }
+        return update(tree);
+    }
+
+    /** The two trees a split leaves: the nodes ordered before the pivot and those after it. */
+    private record Halves<V>(Node<V> before, Node<V> after) {
+    }
+
+    /** Splits a tree into the nodes ordered before the pivot and the nodes ordered after it. */
+    private static <V> Halves<V> split(Node<V> tree, Node<V> pivot) {
+        if (tree == null) return new Halves<>(null, null);
+        if (before(tree, pivot)) {
+            Halves<V> halves = split(tree.right, pivot);
+            tree.right = halves.before();
+            return new Halves<>(update(tree), halves.after());
+        }
+        Halves<V> halves = split(tree.left, pivot);
+        tree.left = halves.after();
+        return new Halves<>(halves.before(), update(tree));
+    }
+
+    private static <V> Node<V> merge(Node<V> lower, Node<V> upper) {
+        if (lower == null) return upper;
+        if (upper == null) return lower;
+        if (lower.priority > upper.priority) {
+            lower.right = merge(lower.right, upper);
+            return update(lower);
+        }
+        upper.left = merge(lower, upper.left);
+        return update(upper);
+    }
+
+    private static <V> Node<V> update(Node<V> node) {
+        long maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd > maxEnd) maxEnd = node.left.maxEnd;
+        if (node.right != null && node.right.maxEnd > maxEnd) maxEnd = node.right.maxEnd;
+        node.maxEnd = maxEnd;
+        return node;
+    }
+
+    /** Tells whether one node is ordered before another: by start, and then by ID. */
+    private static boolean before(Node<?> a, Node<?> b) {
+        return a.start < b.start || a.start == b.start && a.id.compareTo(b.id) < 0;
+    }
+}
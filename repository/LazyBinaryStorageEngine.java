@@ -0,0 +1,276 @@
+package repository;
+
+import entity.Identifiable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link BinaryStorageEngine} whose repository reads entities from the file only when they are
+ * accessed, so startup time and heap use depend on the entities a session touches rather than on
+ * the size of the file.
+ *
+ * <p>Next to the data file, the engine keeps an index at {@code location() + ".idx"} holding the ID,
+ * offset, length and {@linkplain EntityCodec#tag tag} of every record. Loading reads only this index and returns a
+ * {@link LazyEntityList}, which decodes each entity on first access and keeps the most recently used
+ * ones in a cache of {@code cacheSize} entities. Iterating over the repository's snapshot streams
+ * the file instead of materializing it.</p>
+ *
+ * <p>The index is rewritten after the data file, and records the data file's length. If the two do
+ * not match (e.g. the programme stopped between the writes), the index is rebuilt by scanning the
+ * data file once. A file still in the Java-serialization format, or a compressed file (which
+ * cannot be read at an offset), is loaded eagerly and rewritten uncompressed in the binary format
+ * with an index, so the repository is lazy from the next startup on.</p>
+ *
+ * <p>The data file stays open for as long as the repository reads from it. A rewrite replaces the
+ * file by moving a new one over it, so the open file keeps its old contents, which still hold every
+ * entity that is not pinned in memory. A rewrite copies the records of entities that were not
+ * modified without decoding them. Since every sync rewrites the file, this engine is meant to be
+ * wrapped in a {@link LogStructuredStorageEngine}.</p>
+ *
+ * @param <T> The type of entity stored.
+ */
+public class LazyBinaryStorageEngine<T extends Serializable & Identifiable> extends BinaryStorageEngine<T> {
+    /** The default number of decoded entities kept in memory. */
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+
+    /**
+     * Marks an index file written by this engine ("IPX2"). Indexes from before the records' tags
+     * were kept ("IPX1") do not match, so they are rebuilt by a scan.
+     */
+    static final int INDEX_MAGIC = 0x49505832;
+
+    private final String indexpath;
+    private final int cacheSize;
+
+    /** The list returned by the last load, which holds the data file open. */
+    private LazyEntityList<T> loaded;
+
+    /** The index of the file written last, saved once the file is in place. */
+    private RecordIndex written;
+
+    /**
+     * The location of every record in a data file.
+     */
+    private record RecordIndex(long dataLength, List<String> ids, long[] offsets, int[] lengths, byte[] tags) {
+    }
+
+    /**
+     * Creates an engine backed by the given file, caching {@link #DEFAULT_CACHE_SIZE} entities.
+     *
+     * @param filepath The path of the binary file.
+     * @param codec The codec used to encode each entity.
+     */
+    public LazyBinaryStorageEngine(String filepath, EntityCodec<T> codec) {
+        this(filepath, codec, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates an engine backed by the given file.
+     *
+     * @param filepath The path of the binary file.
+     * @param codec The codec used to encode each entity.
+     * @param cacheSize The number of recently used entities to keep decoded.
+     */
+    public LazyBinaryStorageEngine(String filepath, EntityCodec<T> codec, int cacheSize) {
+        super(filepath, codec);
+        this.indexpath = filepath + ".idx";
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Opens the data file lazily, reading only the record index. Returns an ordinary list if
+     * there is no binary data file yet, or if it could not be indexed.
+     *
+     * @return The stored entities, decoded on access where possible.
+     * @throws UncheckedIOException If the data file exists but cannot be read. It is left as it is.
+     */
+    @Override
+    public List<T> load() {
+        Path datapath = Paths.get(filepath);
+        if (!Files.exists(datapath)) {
+            return new ArrayList<>();
+        }
+
+        try {
+            if (!isBinary(datapath)) {
+                return migrate();
+            }
+            RecordIndex index = readIndex(datapath);
+            if (index == null) {
+                index = scan(datapath);
+                written = index;
+                try {
+                    written();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            loaded = LazyEntityList.open(datapath, codec, index.ids(), index.offsets(), index.lengths(), index.tags(),
+                    cacheSize);
+            return loaded;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return super.load();
+        }
+    }
+
+    /**
+     * Reads a file in the Java-serialization format, or a compressed file, and rewrites it in the
+     * binary format with an index.
+     *
+     * @return The stored entities.
+     */
+    private List<T> migrate() {
+        List<T> entities;
+        try {
+            entities = readFile();
+        } catch (Exception e) {
+            throw unreadable(filepath, e);
+        }
+        try {
+            snapshot(entities);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return entities;
+    }
+
+    private static boolean isBinary(Path datapath) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(datapath.toFile()))) {
+            return in.readInt() == MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads the record index, if it exists and describes the current data file.
+     *
+     * @param datapath The data file.
+     * @return The index, or {@code null} if it is missing or stale.
+     */
+    private RecordIndex readIndex(Path datapath) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexpath)))) {
+            if (in.readInt() != INDEX_MAGIC) return null;
+            long dataLength = in.readLong();
+            if (dataLength != Files.size(datapath)) return null;
+
+            int count = in.readInt();
+            List<String> ids = new ArrayList<>(count);
+            long[] offsets = new long[count];
+            int[] lengths = new int[count];
+            byte[] tags = new byte[count];
+            for (int i = 0; i < count; i++) {
+                ids.add(in.readUTF());
+                offsets[i] = in.readLong();
+                lengths[i] = in.readInt();
+                tags[i] = in.readByte();
+            }
+            return new RecordIndex(dataLength, ids, offsets, lengths, tags);
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Locates every record by decoding the data file once.
+     *
+     * @param datapath The data file.
+     * @return The index of the data file.
+     * @throws IOException If the data file could not be read.
+     */
+    private RecordIndex scan(Path datapath) throws IOException {
+        try (CountingInputStream counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(datapath.toFile())));
+             DataObjectInput in = new DataObjectInput(counter)) {
+            if (in.readInt() != MAGIC) {
+                throw new StreamCorruptedException(filepath + " is not a binary repository file");
+            }
+            int count = in.readInt();
+            List<String> ids = new ArrayList<>(count);
+            long[] offsets = new long[count];
+            int[] lengths = new int[count];
+            byte[] tags = new byte[count];
+            for (int i = 0; i < count; i++) {
+                offsets[i] = counter.count;
+                T entity = codec.read(in);
+                ids.add(entity.getId());
+                lengths[i] = (int) (counter.count - offsets[i]);
+                tags[i] = codec.tag(entity);
+            }
+            return new RecordIndex(counter.count, ids, offsets, lengths, tags);
+        }
+    }
+
+    /**
+     * Writes the binary format, recording where each record starts. Entities that a lazy list has
+     * not modified are copied from the old file as they are.
+     */
+    @Override
+    protected void write(List<T> entities, OutputStream out) throws IOException {
+        CountingOutputStream counter = new CountingOutputStream(out);
+        DataObjectOutput data = new DataObjectOutput(counter);
+        data.writeInt(MAGIC);
+        data.writeInt(entities.size());
+
+        LazyEntityList<T> source = entities instanceof LazyEntityList<T> lazy ? lazy : null;
+        List<String> ids = new ArrayList<>(entities.size());
+        long[] offsets = new long[entities.size()];
+        int[] lengths = new int[entities.size()];
+        byte[] tags = new byte[entities.size()];
+        for (int i = 0; i < entities.size(); i++) {
+            offsets[i] = counter.count;
+            if (source != null && source.copyRecord(i, counter)) {
+                ids.add(source.idAt(i));
+                tags[i] = source.tagAt(i);
+            } else {
+                T entity = entities.get(i);
+                codec.write(entity, data);
+                ids.add(entity.getId());
+                tags[i] = codec.tag(entity);
+            }
+            lengths[i] = (int) (counter.count - offsets[i]);
+        }
+        data.flush();
+        written = new RecordIndex(counter.count, ids, offsets, lengths, tags);
+    }
+
+    /**
+     * Saves the index of the data file just moved into place, through a temporary file.
+     */
+    @Override
+    protected void written() throws IOException {
+        RecordIndex index = written;
+        written = null;
+        if (index == null) return;
+
+        Path temp = Paths.get(indexpath + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp.toFile())))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeLong(index.dataLength());
+            out.writeInt(index.ids().size());
+            for (int i = 0; i < index.ids().size(); i++) {
+                out.writeUTF(index.ids().get(i));
+                out.writeLong(index.offsets()[i]);
+                out.writeInt(index.lengths()[i]);
+                out.writeByte(index.tags()[i]);
+            }
+        }
+        Files.move(temp, Paths.get(indexpath), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (loaded != null) {
+            loaded.close();
+        }
+    }
+}
@@ -0,0 +1,456 @@
+package repository;
+
+import entity.Identifiable;
+
+import java.io.*;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * The entities of a lazily loaded repository, read from a {@link LazyBinaryStorageEngine} file
+ * only when they are accessed.
+ *
+ * <p>Each position holds an entity ID and where its record lies in the file. {@link #get} decodes
+ * the record on first access and keeps the most recently used entities in a bounded cache.
+ * Entities that were saved since loading are held in memory ("pinned") instead, since the file
+ * does not contain their current state.</p>
+ *
+ * <p>There is at most one instance per entity ID for as long as anyone holds it: every read
+ * first checks the entities already handed out, which are tracked with weak references, so an
+ * entity evicted from the cache but still in use is not decoded a second time.</p>
+ *
+ * <p>{@link #iterator()} is a cursor that reads the file sequentially and does not add the entities
+ * it passes to the cache, so a full scan neither holds the whole repository in memory nor evicts
+ * the working set. A {@link #freeze() frozen} copy shares the file and the cache but not the
+ * positions, and serves as the repository's snapshot.</p>
+ *
+ * <p>The list is mutated only under the repository's write lock. Reads may overlap a write when the
+ * repository reads optimistically; they then fail with a runtime exception or are discarded when
+ * the repository validates its stamp.</p>
+ *
+ * @param <T> The type of entity stored.
+ */
+final class LazyEntityList<T extends Serializable & Identifiable> extends AbstractList<T> {
+    /** Marks a position whose entity is pinned in memory rather than read from the file. */
+    private static final long PINNED = -1;
+
+    /** The size of the read buffer used by the cursor. */
+    private static final int CURSOR_BUFFER_SIZE = 1 << 16;
+
+    private final Store<T> store;
+    private final boolean frozen;
+
+    private final ArrayList<String> ids;
+    private long[] offsets;
+    private int[] lengths;
+    private byte[] tags;
+    private final Map<String, T> pinned;
+
+    private LazyEntityList(Store<T> store, boolean frozen, ArrayList<String> ids, long[] offsets, int[] lengths,
+                           byte[] tags, Map<String, T> pinned) {
+        this.store = store;
+        this.frozen = frozen;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.tags = tags;
+        this.pinned = pinned;
+    }
+
+    /**
+     * Opens a lazy list over a data file whose records have already been located.
+     *
+     * @param datapath The data file.
+     * @param codec The codec the records were written with.
+     * @param ids The ID of each record, in file order.
+     * @param offsets The offset of each record in the file.
+     * @param lengths The length of each record in bytes.
+     * @param tags The {@linkplain EntityCodec#tag tag} of each record's entity.
+     * @param cacheSize The number of recently used entities to keep decoded.
+     * @param <T> The type of entity stored.
+     * @return A mutable list holding every record, none of them decoded yet.
+     * @throws IOException If the data file could not be opened.
+     */
+    static <T extends Serializable & Identifiable> LazyEntityList<T> open(Path datapath, EntityCodec<T> codec,
+                                                                          List<String> ids, long[] offsets,
+                                                                          int[] lengths, byte[] tags,
+                                                                          int cacheSize) throws IOException {
+        FileChannel channel = FileChannel.open(datapath, StandardOpenOption.READ);
+        int capacity = Math.max(ids.size(), 16);
+        return new LazyEntityList<>(new Store<>(channel, codec, cacheSize), false, new ArrayList<>(ids),
+                Arrays.copyOf(offsets, capacity), Arrays.copyOf(lengths, capacity), Arrays.copyOf(tags, capacity),
+                new HashMap<>());
+    }
+
+    @Override
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Returns the entity at a position, decoding it if it is not in memory.
+     *
+     * @param position The position of the entity.
+     * @return The entity.
+     * @throws UncheckedIOException If the entity could not be read from the file.
+     */
+    @Override
+    public T get(int position) {
+        String id = ids.get(position);
+        T entity = pinned.get(id);
+        if (entity != null) return entity;
+        return store.read(id, offsets[position], lengths[position]);
+    }
+
+    /**
+     * Returns the ID of the entity at a position without decoding the entity.
+     *
+     * @param position The position of the entity.
+     * @return The entity's ID.
+     */
+    String idAt(int position) {
+        return ids.get(position);
+    }
+
+    /**
+     * Returns the {@linkplain EntityCodec#tag tag} of the entity at a position without decoding the entity.
+     *
+     * @param position The position of the entity.
+     * @return The entity's tag.
+     */
+    byte tagAt(int position) {
+        Objects.checkIndex(position, ids.size());
+        return tags[position];
+    }
+
+    /**
+     * Replaces the entity at a position with a new state of the same entity, pinning it in memory.
+     *
+     * @return The entity previously at the position if it was in memory, otherwise {@code null}.
+     */
+    @Override
+    public T set(int position, T entity) {
+        checkMutable();
+        String id = ids.get(position);
+        T previous = pinned.get(id);
+        if (previous == null) previous = store.cached(id);
+        offsets[position] = PINNED;
+        tags[position] = store.codec.tag(entity);
+        pin(entity);
+        return previous;
+    }
+
+    @Override
+    public boolean add(T entity) {
+        checkMutable();
+        int position = ids.size();
+        if (position == offsets.length) {
+            offsets = Arrays.copyOf(offsets, position * 2);
+            lengths = Arrays.copyOf(lengths, position * 2);
+            tags = Arrays.copyOf(tags, position * 2);
+        }
+        ids.add(entity.getId());
+        offsets[position] = PINNED;
+        tags[position] = store.codec.tag(entity);
+        pin(entity);
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Removes the entity at a position. The entity is decoded if needed, so it can be returned.
+     */
+    @Override
+    public T remove(int position) {
+        checkMutable();
+        T removed = get(position);
+        int moved = ids.size() - position - 1;
+        System.arraycopy(offsets, position + 1, offsets, position, moved);
+        System.arraycopy(lengths, position + 1, lengths, position, moved);
+        System.arraycopy(tags, position + 1, tags, position, moved);
+        pinned.remove(ids.remove(position));
+        modCount++;
+        return removed;
+    }
+
+    private void pin(T entity) {
+        pinned.put(entity.getId(), entity);
+        store.adopt(entity);
+    }
+
+    private void checkMutable() {
+        if (frozen) throw new UnsupportedOperationException("A frozen entity list cannot be modified");
+    }
+
+    /**
+     * Returns an unmodifiable copy of this list. Only the positions are copied; the copy shares the
+     * file and the cache, so no entity is decoded.
+     *
+     * @return A frozen copy of the list.
+     */
+    LazyEntityList<T> freeze() {
+        int size = ids.size();
+        return new LazyEntityList<>(store, true, new ArrayList<>(ids), Arrays.copyOf(offsets, size),
+                Arrays.copyOf(lengths, size), Arrays.copyOf(tags, size), new HashMap<>(pinned));
+    }
+
+    /**
+     * Writes the stored record of the entity at a position to a stream, without decoding it.
+     *
+     * @param position The position of the entity.
+     * @param out The destination.
+     * @return {@code false} if the entity is pinned, so there is no stored record to copy.
+     * @throws IOException If the record could not be read or written.
+     */
+    boolean copyRecord(int position, OutputStream out) throws IOException {
+        if (offsets[position] == PINNED) return false;
+        out.write(store.readRecord(offsets[position], lengths[position]));
+        return true;
+    }
+
+    /**
+     * Applies the mutations in a sequence of logs to this list, with the same result as replaying
+     * them over a map of all entities in insertion order: a saved entity replaces the entity with its
+     * ID in place, unless that entity was deleted earlier in the logs, in which case it is appended.
+     * Only the logged entities are materialized.
+     *
+     * @param logs The logs to replay, in order.
+     * @throws IOException If a log could not be replayed; the list is then left unchanged.
+     */
+    void replay(List<WriteAheadLog<T>> logs) throws IOException {
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            positions.put(ids.get(i), i);
+        }
+        Map<String, T> replaced = new HashMap<>();
+        Set<String> removed = new HashSet<>();
+        Map<String, T> appended = new LinkedHashMap<>();
+        for (WriteAheadLog<T> log : logs) {
+            log.replay(entity -> {
+                String id = entity.getId();
+                if (!appended.containsKey(id) && positions.containsKey(id) && !removed.contains(id)) {
+                    replaced.put(id, entity);
+                } else {
+                    appended.put(id, entity);
+                }
+            }, id -> {
+                appended.remove(id);
+                replaced.remove(id);
+                if (positions.containsKey(id)) removed.add(id);
+            });
+        }
+
+        for (T entity : replaced.values()) {
+            set(positions.get(entity.getId()), entity);
+        }
+        if (!removed.isEmpty()) {
+            int kept = 0;
+            for (int i = 0; i < ids.size(); i++) {
+                String id = ids.get(i);
+                if (removed.contains(id)) {
+                    pinned.remove(id);
+                    continue;
+                }
+                ids.set(kept, id);
+                offsets[kept] = offsets[i];
+                lengths[kept] = lengths[i];
+                tags[kept] = tags[i];
+                kept++;
+            }
+            ids.subList(kept, ids.size()).clear();
+        }
+        for (T entity : appended.values()) {
+            add(entity);
+        }
+    }
+
+    /**
+     * Returns a cursor over the entities, in order; see the class comment.
+     *
+     * @return A sequential cursor.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Cursor();
+    }
+
+    /**
+     * Closes the data file. The list cannot read entities that are not in memory afterwards.
+     *
+     * @throws IOException If the file could not be closed.
+     */
+    void close() throws IOException {
+        store.channel.close();
+    }
+
+    /**
+     * Reads the entities in order through one buffered stream over the file, skipping the records of
+     * entities that are pinned or already in memory.
+     */
+    private final class Cursor implements Iterator<T> {
+        private final int expectedModCount = modCount;
+        private int next;
+        private DataObjectInput in;
+        private long position;
+
+        @Override
+        public boolean hasNext() {
+            return next < ids.size();
+        }
+
+        @Override
+        public T next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+            int current = next++;
+            String id = ids.get(current);
+            T entity = pinned.get(id);
+            if (entity == null) entity = store.retained(id);
+            if (entity != null) return entity;
+
+            try {
+                seek(offsets[current]);
+                entity = store.codec.read(in);
+                position += lengths[current];
+            } catch (IOException e) {
+                in = null;
+                throw new UncheckedIOException(e);
+            }
+            return store.register(id, entity, false);
+        }
+
+        private void seek(long offset) throws IOException {
+            if (in != null && offset >= position && offset - position <= CURSOR_BUFFER_SIZE) {
+                in.skipNBytes(offset - position);
+            } else {
+                in = new DataObjectInput(new BufferedInputStream(new ChannelInputStream(store.channel, offset), CURSOR_BUFFER_SIZE));
+            }
+            position = offset;
+        }
+    }
+
+    /**
+     * The part of a lazy list shared with its frozen copies: the open data file and the entities decoded from it.
+     */
+    private static final class Store<T extends Serializable & Identifiable> {
+        private final FileChannel channel;
+        private final EntityCodec<T> codec;
+
+        /** The most recently used entities, in access order. */
+        private final LinkedHashMap<String, T> recent;
+
+        /** Every entity handed out that is still reachable, so it is not decoded twice. */
+        private final Map<String, Handle<T>> handedOut = new HashMap<>();
+        private final ReferenceQueue<T> collected = new ReferenceQueue<>();
+
+        private Store(FileChannel channel, EntityCodec<T> codec, int cacheSize) {
+            this.channel = channel;
+            this.codec = codec;
+            this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+                    return size() > cacheSize;
+                }
+            };
+        }
+
+        /**
+         * Returns an entity from memory, or decodes its record and caches it.
+         */
+        T read(String id, long offset, int length) {
+            T entity = cached(id);
+            if (entity != null) return entity;
+            if (offset == PINNED) {
+                throw new IllegalStateException("Entity " + id + " has no stored record");
+            }
+
+            try {
+                entity = codec.read(new DataObjectInput(new ByteArrayInputStream(readRecord(offset, length))));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return register(id, entity, true);
+        }
+
+        byte[] readRecord(long offset, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new EOFException("Record at offset " + offset + " extends past the end of the file");
+                }
+            }
+            return buffer.array();
+        }
+
+        /**
+         * Returns the entity with an ID if it is in memory, marking it as recently used.
+         */
+        synchronized T cached(String id) {
+            T entity = recent.get(id);
+            if (entity == null) {
+                entity = retained(id);
+                if (entity != null) recent.put(id, entity);
+            }
+            return entity;
+        }
+
+        /**
+         * Returns the entity with an ID if it is in memory, without marking it as recently used.
+         */
+        synchronized T retained(String id) {
+            expunge();
+            Handle<T> handle = handedOut.get(id);
+            return handle == null ? null : handle.get();
+        }
+
+        /**
+         * Records a freshly decoded entity, unless another thread decoded the same entity first.
+         *
+         * @return The canonical instance for the ID.
+         */
+        synchronized T register(String id, T entity, boolean recentlyUsed) {
+            if (!id.equals(entity.getId())) {
+                throw new IllegalStateException("Expected entity " + id + " but read " + entity.getId());
+            }
+            T existing = retained(id);
+            if (existing != null) return existing;
+            handedOut.put(id, new Handle<>(entity, collected));
+            if (recentlyUsed) recent.put(id, entity);
+            return entity;
+        }
+
+        /**
+         * Makes a pinned entity the canonical instance for its ID.
+         */
+        synchronized void adopt(T entity) {
+            expunge();
+            recent.remove(entity.getId());
+            handedOut.put(entity.getId(), new Handle<>(entity, collected));
+        }
+
+        private void expunge() {
+            Object reference;
+            while ((reference = collected.poll()) != null) {
+                Handle<?> handle = (Handle<?>) reference;
+                handedOut.remove(handle.id, handle);
+            }
+        }
+    }
+
+    /**
+     * A weak reference to a handed-out entity that remembers its ID, so it can be removed once collected.
+     */
+    private static final class Handle<T extends Identifiable> extends WeakReference<T> {
+        private final String id;
+
+        private Handle(T entity, ReferenceQueue<T> queue) {
+            super(entity, queue);
+            this.id = entity.getId();
+        }
+    }
+}
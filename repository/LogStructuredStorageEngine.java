@@ -0,0 +1,412 @@
+package repository;
+
+import entity.Identifiable;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Adds a {@link WriteAheadLog} in front of another engine. Each sync appends only the mutated
+ * entities to the log at {@code location() + ".log"}, so the cost of a write is proportional to
+ * the change rather than to the size of the repository. If the wrapped engine is a
+ * {@link BinaryStorageEngine}, the logged entities are encoded with its codec, and if it compresses
+ * its snapshots, the log and the deltas are compressed the same way.
+ *
+ * <p>Once the log holds {@link #MIN_CHECKPOINT_RECORDS} records, it is checkpointed: the latest
+ * state of each entity mutated since the previous checkpoint is written once to a delta file,
+ * {@code location() + ".delta." + sequence}, and the log is truncated. A checkpoint therefore
+ * costs as much as the number of entities that changed, however large the repository is. The
+ * deltas form a chain on top of the wrapped engine's snapshot, and are replayed over it in
+ * sequence order on load, followed by the log.</p>
+ *
+ * <p>A background thread keeps the chain short. Once the deltas hold as many records as the
+ * repository holds entities, it folds them into a new snapshot through the wrapped engine, from
+ * the repository's contents at the last checkpoint, and then deletes them; the amortized cost of a
+ * snapshot is thus constant per mutation. Before that, once there are more than {@link #MAX_DELTAS}
+ * deltas, it merges the newest ones into a single delta, which holds each entity they share once.
+ * Either way, replaying a delta that was already folded or merged (e.g. the programme stopped
+ * before it was deleted) is harmless, since the replacement holds exactly its effects.</p>
+ *
+ * @param <T> The type of entity stored.
+ */
+public class LogStructuredStorageEngine<T extends Serializable & Identifiable> implements StorageEngine<T> {
+
+    /** The number of log records accumulated before the log is checkpointed into a delta. */
+    public static final int MIN_CHECKPOINT_RECORDS = 4096;
+
+    /** The number of deltas above which they are merged into one. */
+    public static final int MAX_DELTAS = 8;
+
+    private final StorageEngine<T> base;
+    private final EntityCodec<T> codec;
+    private final Compression compression;
+    private final WriteAheadLog<T> log;
+
+    /** Mutations recorded since the last sync. */
+    private MutationBatch<T> batch = new MutationBatch<>();
+
+    /** Mutations synced since the last checkpoint, i.e. the coalesced contents of the log. */
+    private MutationBatch<T> dirty = new MutationBatch<>();
+
+    /** The sequence numbers of the deltas on top of the snapshot, oldest first, with their record counts. */
+    private final TreeMap<Long, Integer> deltas = new TreeMap<>();
+    private long deltaRecords;
+    private long nextDelta = 1;
+
+    /** Incremented by every snapshot, so a fold started before it knows not to overwrite it. */
+    private long snapshotVersion;
+
+    /** Serializes the snapshots written by the wrapped engine. */
+    private final Object snapshotLock = new Object();
+
+    /** {@code true} while a fold or merge of the deltas is queued or running. */
+    private boolean merging;
+    private ExecutorService merger;
+
+    /**
+     * Creates a log-structured engine over the given snapshot engine.
+     *
+     * @param base The engine that stores the snapshots.
+     */
+    public LogStructuredStorageEngine(StorageEngine<T> base) {
+        this.base = base;
+        this.codec = base instanceof BinaryStorageEngine<T> binary ? binary.codec : null;
+        this.compression = base instanceof FileStorageEngine<T> file ? file.compression : null;
+        this.log = new WriteAheadLog<>(base.location() + ".log", codec, compression);
+    }
+
+    @Override
+    public String location() {
+        return base.location();
+    }
+
+    /**
+     * Returns the deltas chained on top of the snapshot at a location, oldest first, followed by
+     * the log. Used to convert the files of this engine, as well as to load them.
+     *
+     * @param location The location of the snapshot.
+     * @param codec The codec of the snapshot's entities, or {@code null} if they are only serialized.
+     * @param <T> The type of entity stored.
+     * @return The logs to replay over the snapshot, in order.
+     * @throws IOException If the directory could not be listed.
+     */
+    static <T extends Serializable> List<WriteAheadLog<T>> chain(String location, EntityCodec<T> codec) throws IOException {
+        List<WriteAheadLog<T>> logs = new ArrayList<>();
+        for (long sequence : deltaSequences(location)) {
+            logs.add(new WriteAheadLog<>(deltaPath(location, sequence), codec));
+        }
+        logs.add(new WriteAheadLog<>(location + ".log", codec));
+        return logs;
+    }
+
+    /**
+     * Deletes the deltas and the log at a location, once another engine has converted them.
+     *
+     * @param location The location of the snapshot.
+     * @throws IOException If a file could not be deleted.
+     */
+    static void deleteChain(String location) throws IOException {
+        for (long sequence : deltaSequences(location)) {
+            Files.deleteIfExists(Paths.get(deltaPath(location, sequence)));
+        }
+        Files.deleteIfExists(Paths.get(location + ".log"));
+    }
+
+    /**
+     * Lists the sequence numbers of the deltas at a location, and deletes a delta left half-written.
+     */
+    private static List<Long> deltaSequences(String location) throws IOException {
+        Path snapshot = Paths.get(location).toAbsolutePath();
+        String prefix = snapshot.getFileName() + ".delta.";
+        List<Long> sequences = new ArrayList<>();
+        if (!Files.isDirectory(snapshot.getParent())) return sequences;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(snapshot.getParent(), prefix + "*")) {
+            for (Path file : files) {
+                String suffix = file.getFileName().toString().substring(prefix.length());
+                try {
+                    sequences.add(Long.parseLong(suffix));
+                } catch (NumberFormatException e) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        sequences.sort(null);
+        return sequences;
+    }
+
+    private static String deltaPath(String location, long sequence) {
+        return location + ".delta." + sequence;
+    }
+
+    /**
+     * Loads the last snapshot and replays the deltas and the log over it. A replayed upsert
+     * replaces an entity in place, so entities keep the order in which they were first inserted.
+     * A lazily loaded snapshot stays lazy; only the replayed entities are held in memory.
+     *
+     * @return The stored entities, with every delta and logged mutation applied.
+     * @throws UncheckedIOException If a delta or the log holds a record that cannot be decoded.
+     *                              The files are left as they are.
+     */
+    @Override
+    public synchronized List<T> load() {
+        try {
+            for (long sequence : deltaSequences(location())) {
+                deltas.put(sequence, 0);
+                nextDelta = sequence + 1;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        List<WriteAheadLog<T>> logs = new ArrayList<>();
+        for (long sequence : deltas.keySet()) {
+            logs.add(new WriteAheadLog<>(deltaPath(location(), sequence), codec));
+        }
+        logs.add(log);
+
+        List<T> snapshot = base.load();
+        try {
+            if (snapshot instanceof LazyEntityList<T> lazy) {
+                lazy.replay(logs);
+            } else {
+                Map<String, T> byId = new LinkedHashMap<>();
+                for (T entity : snapshot) {
+                    byId.put(entity.getId(), entity);
+                }
+                for (WriteAheadLog<T> chained : logs) {
+                    chained.replay(entity -> byId.put(entity.getId(), entity), byId::remove);
+                }
+                snapshot = new ArrayList<>(byId.values());
+            }
+
+            int i = 0;
+            for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+                delta.setValue(logs.get(i++).size());
+                deltaRecords += delta.getValue();
+            }
+            log.replay(entity -> dirty.upsert(entity.getId(), entity), dirty::delete);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return snapshot;
+    }
+
+    @Override
+    public synchronized void upsert(T entity) {
+        batch.upsert(entity.getId(), entity);
+    }
+
+    @Override
+    public synchronized void delete(String id) {
+        batch.delete(id);
+    }
+
+    /**
+     * Appends the recorded mutations to the log in one write, and checkpoints the log once it
+     * holds {@link #MIN_CHECKPOINT_RECORDS} records.
+     */
+    @Override
+    public synchronized void sync(Supplier<List<T>> current, boolean fsync) throws IOException {
+        if (batch.isEmpty()) return;
+
+        log.appendBatch(batch, fsync);
+        dirty.addAll(batch);
+        batch = new MutationBatch<>();
+
+        if (log.size() >= MIN_CHECKPOINT_RECORDS) {
+            checkpoint(current, fsync);
+        }
+    }
+
+    /**
+     * Writes the entities mutated since the previous checkpoint to a new delta, truncates the log,
+     * and starts a fold or merge of the deltas if the chain has grown long. The delta is written
+     * under a temporary name, and forced to the device before the log it replaces is truncated
+     * if the log is.
+     */
+    private void checkpoint(Supplier<List<T>> current, boolean fsync) throws IOException {
+        long sequence = nextDelta++;
+        Path temp = Paths.get(deltaPath(location(), sequence) + ".tmp");
+        Files.deleteIfExists(temp);
+        WriteAheadLog<T> delta = new WriteAheadLog<>(temp.toString(), codec, compression);
+        delta.appendBatch(dirty, fsync);
+        Files.move(temp, Paths.get(deltaPath(location(), sequence)), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+        deltas.put(sequence, delta.size());
+        deltaRecords += delta.size();
+        dirty = new MutationBatch<>();
+        log.truncate();
+
+        if (merging) return;
+        List<T> entities = current.get();
+        if (deltaRecords >= entities.size()) {
+            startMerge(() -> fold(entities, sequence, snapshotVersion));
+        } else if (deltas.size() > MAX_DELTAS) {
+            List<Long> inputs = newestDeltas();
+            startMerge(() -> mergeDeltas(inputs, snapshotVersion));
+        }
+    }
+
+    /**
+     * Chooses the deltas to merge: the two newest, and then each older one that holds at most twice
+     * as many records as those chosen so far, so that each record is merged a logarithmic number of
+     * times before it is folded.
+     *
+     * @return The sequence numbers of the chosen deltas, oldest first.
+     */
+    private List<Long> newestDeltas() {
+        List<Long> inputs = new ArrayList<>();
+        long records = 0;
+        for (Map.Entry<Long, Integer> delta : deltas.descendingMap().entrySet()) {
+            if (inputs.size() >= 2 && delta.getValue() > 2 * records) break;
+            inputs.add(0, delta.getKey());
+            records += delta.getValue();
+        }
+        return inputs;
+    }
+
+    private void startMerge(Runnable task) {
+        merging = true;
+        if (merger == null) {
+            merger = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "delta-merger " + location());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        merger.execute(task);
+    }
+
+    /**
+     * Writes the repository's contents at a checkpoint as the new snapshot, then deletes the deltas
+     * up to that checkpoint, which the snapshot now holds. Skipped if another snapshot was written
+     * since the checkpoint.
+     *
+     * @param entities The repository's contents when the last delta to fold was written.
+     * @param last The sequence number of that delta.
+     * @param version The snapshot version at that checkpoint.
+     */
+    private void fold(List<T> entities, long last, long version) {
+        try {
+            synchronized (snapshotLock) {
+                synchronized (this) {
+                    if (version != snapshotVersion) return;
+                }
+                base.snapshot(entities);
+            }
+            synchronized (this) {
+                dropDeltas(new ArrayList<>(deltas.headMap(last, true).keySet()));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            synchronized (this) {
+                merging = false;
+            }
+        }
+    }
+
+    /**
+     * Merges deltas into one, which takes the place of the newest of them, and deletes the others.
+     * Skipped if a snapshot was written in the meantime.
+     *
+     * @param inputs The sequence numbers of the deltas to merge, oldest first.
+     * @param version The snapshot version when the merge started.
+     */
+    private void mergeDeltas(List<Long> inputs, long version) {
+        long last = inputs.get(inputs.size() - 1);
+        Path temp = Paths.get(deltaPath(location(), last) + ".tmp");
+        try {
+            MutationBatch<T> merged = new MutationBatch<>();
+            for (long sequence : inputs) {
+                new WriteAheadLog<>(deltaPath(location(), sequence), codec).replay(
+                        entity -> merged.upsert(entity.getId(), entity), merged::delete);
+            }
+            Files.deleteIfExists(temp);
+            WriteAheadLog<T> delta = new WriteAheadLog<>(temp.toString(), codec, compression);
+            delta.appendBatch(merged, true);
+
+            synchronized (this) {
+                if (version != snapshotVersion || !deltas.keySet().containsAll(inputs)) {
+                    Files.deleteIfExists(temp);
+                    return;
+                }
+                Files.move(temp, Paths.get(deltaPath(location(), last)), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                deltaRecords += delta.size() - deltas.put(last, delta.size());
+                dropDeltas(inputs.subList(0, inputs.size() - 1));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            synchronized (this) {
+                merging = false;
+            }
+        }
+    }
+
+    /**
+     * Forgets deltas whose effects are held elsewhere, and deletes their files.
+     */
+    private void dropDeltas(List<Long> sequences) throws IOException {
+        for (long sequence : sequences) {
+            Integer records = deltas.remove(sequence);
+            if (records != null) deltaRecords -= records;
+            Files.deleteIfExists(Paths.get(deltaPath(location(), sequence)));
+        }
+    }
+
+    /**
+     * Writes a fresh snapshot through the wrapped engine, then deletes the deltas and truncates the
+     * log. They are only discarded once the snapshot is in place; if the programme stops in
+     * between, replaying them over the new snapshot is harmless.
+     */
+    @Override
+    public void snapshot(List<T> entities) throws IOException {
+        synchronized (snapshotLock) {
+            base.snapshot(entities);
+            synchronized (this) {
+                snapshotVersion++;
+                dropDeltas(new ArrayList<>(deltas.keySet()));
+                dirty = new MutationBatch<>();
+                log.truncate();
+            }
+        }
+    }
+
+    /**
+     * Waits for a running fold or merge to finish, then closes the wrapped engine.
+     */
+    @Override
+    public void close() throws IOException {
+        ExecutorService stopping;
+        synchronized (this) {
+            stopping = merger;
+            merger = null;
+        }
+        if (stopping != null) {
+            stopping.shutdown();
+            try {
+                stopping.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        base.close();
+    }
+}
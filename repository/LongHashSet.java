@@ -0,0 +1,116 @@
+package repository;
+
+/**
+ * A set of non-zero {@code long} keys in one open-addressed table, with linear probing. Unlike a
+ * {@code HashSet<Long>}, it boxes nothing, so a lookup allocates no memory, and each key costs
+ * one array slot.
+ *
+ * <p>The table is kept at most half full and doubles when it fills past that. Zero marks an empty
+ * slot, so it cannot be a key. A removal shifts the keys after it back into the gap rather than
+ * leaving a marker, so lookups stay short however many keys have been removed.</p>
+ */
+final class LongHashSet {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] slots = new long[MIN_CAPACITY];
+    private int size;
+
+    /**
+     * Adds a key.
+     *
+     * @param key The key to add; must not be zero.
+     * @return {@code true} if the key was not already in the set.
+     */
+    boolean add(long key) {
+        if (key == 0) throw new IllegalArgumentException("Zero cannot be a key");
+        int slot = find(slots, key);
+        if (slots[slot] == key) return false;
+
+        slots[slot] = key;
+        if (++size * 2 > slots.length) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a key is in the set.
+     *
+     * @param key The key to look for.
+     * @return {@code true} if the set holds the key.
+     */
+    boolean contains(long key) {
+        return key != 0 && slots[find(slots, key)] == key;
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key The key to remove.
+     * @return {@code true} if the set held the key.
+     */
+    boolean remove(long key) {
+        if (key == 0) return false;
+        int gap = find(slots, key);
+        if (slots[gap] != key) return false;
+
+        int mask = slots.length - 1;
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            long next = slots[slot];
+            if (next == 0) break;
+            // move a key back into the gap unless its home slot lies after the gap (cyclically)
+            int home = home(next, mask);
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                slots[gap] = next;
+                gap = slot;
+            }
+        }
+        slots[gap] = 0;
+        size--;
+        return true;
+    }
+
+    /**
+     * Removes every key.
+     */
+    void clear() {
+        slots = new long[MIN_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Returns the number of keys in the set.
+     *
+     * @return The key count.
+     */
+    int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] larger = new long[slots.length * 2];
+        for (long key : slots) {
+            if (key != 0) {
+                larger[find(larger, key)] = key;
+            }
+        }
+        slots = larger;
+    }
+
+    /** Returns the slot that holds the key, or the empty slot where it would go. */
+    private static int find(long[] slots, long key) {
+        int mask = slots.length - 1;
+        int slot = home(key, mask);
+        while (slots[slot] != 0 && slots[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int home(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,605 @@
+package repository;
+
+import entity.Identifiable;
+
+import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A log-structured merge engine, for repositories whose entities change far more often than
+ * they are added, such as the internship applications.
+ *
+ * <p>Each sync appends the mutations, encoded with the engine's codec, to a {@link WriteAheadLog}
+ * at {@code location() + ".log"} and applies them to a memtable, which maps each mutated ID to its encoded entity (or to a
+ * tombstone if it was deleted) in ID order. Once the memtable holds {@code memtableSize} IDs, it is
+ * written out as an immutable {@link SortedSegment}, named {@code location() + ".seg." + number},
+ * and the log is truncated. No sync ever rewrites entities that did not change.</p>
+ *
+ * <p>The file at {@code location()} is a manifest listing the live segments, newest first; it is
+ * replaced atomically whenever the list changes, and a segment file is only deleted once no
+ * manifest names it. When there are more than {@value #MAX_SEGMENTS} segments, a background thread
+ * merges the newest ones (together with every older segment no more than twice as large as what
+ * it has merged so far) into a single segment, so each entity is rewritten a logarithmic number of
+ * times in total. A merge that includes the oldest segment drops the tombstones.</p>
+ *
+ * <p>Loading merges the memtable and every segment in one pass, so entities are returned in ID
+ * order, which is the order they were created in for sequentially generated IDs. The engine serves
+ * only the repository's write and merge path: the repository holds the loaded entities and answers
+ * every read itself. Each segment's Bloom filter and sparse index are used when an ID is deleted,
+ * to tell whether a segment may still hold it and so needs a tombstone, reading at most one small
+ * block per segment that may hold the ID. A snapshot and log written by the other engines are
+ * converted on the first load.</p>
+ *
+ * @param <T> The type of entity stored.
+ */
+public class LsmStorageEngine<T extends Serializable & Identifiable> implements StorageEngine<T> {
+    /** Marks a manifest written by this engine ("IPL1"). */
+    static final int MANIFEST_MAGIC = 0x49504C31;
+
+    /** The default number of IDs the memtable holds before it is written out as a segment. */
+    public static final int DEFAULT_MEMTABLE_SIZE = 2048;
+
+    /** The number of segments above which a background merge is started. */
+    public static final int MAX_SEGMENTS = 4;
+
+    private final String filepath;
+    private final EntityCodec<T> codec;
+    private final int memtableSize;
+    private final WriteAheadLog<T> log;
+
+    /** Mutations recorded since the last sync. */
+    private MutationBatch<T> batch = new MutationBatch<>();
+
+    /** The encoded entities synced since the last segment was written, or {@link SortedSegment#TOMBSTONE}s. */
+    private TreeMap<String, byte[]> memtable = new TreeMap<>();
+
+    /** The live segments, newest first. */
+    private List<SortedSegment> segments = new ArrayList<>();
+    private long nextSegment = 1;
+
+    /** {@code false} until the stored data has been read, and again once the engine is closed. */
+    private boolean open;
+
+    /** The segments being merged, or {@code null} while no merge is running. */
+    private List<SortedSegment> merging;
+    private ExecutorService compactor;
+
+    /**
+     * Creates an engine backed by the given manifest, holding {@link #DEFAULT_MEMTABLE_SIZE} IDs in memory.
+     *
+     * @param filepath The path of the manifest; the log and the segments are named after it.
+     * @param codec The codec used to encode each entity.
+     */
+    public LsmStorageEngine(String filepath, EntityCodec<T> codec) {
+        this(filepath, codec, DEFAULT_MEMTABLE_SIZE);
+    }
+
+    /**
+     * Creates an engine backed by the given manifest.
+     *
+     * @param filepath The path of the manifest; the log and the segments are named after it.
+     * @param codec The codec used to encode each entity.
+     * @param memtableSize The number of IDs synced before the memtable is written out as a segment.
+     */
+    public LsmStorageEngine(String filepath, EntityCodec<T> codec, int memtableSize) {
+        this.filepath = filepath;
+        this.codec = codec;
+        this.memtableSize = memtableSize;
+        this.log = new WriteAheadLog<>(filepath + ".log", codec);
+    }
+
+    @Override
+    public String location() {
+        return filepath;
+    }
+
+    /**
+     * Opens the segments the manifest lists, replays the log into the memtable, and merges them.
+     * Segment files the manifest does not list (left behind by a merge or a write that was cut
+     * short) are deleted. If the file is still a snapshot written by another engine, it is read
+     * together with its log and converted.
+     *
+     * @return The stored entities in ID order.
+     * @throws UncheckedIOException If the stored data cannot be read. It is left alone, and the
+     *                              engine stays closed.
+     */
+    @Override
+    public synchronized List<T> load() {
+        try {
+            Path manifest = Paths.get(filepath);
+            if (Files.exists(manifest) && !isManifest(manifest)) {
+                return migrate();
+            }
+            if (Files.exists(manifest)) {
+                readManifest();
+            }
+            deleteUnlisted();
+            log.replay(this::apply, this::applyDelete);
+            open = true;
+
+            List<T> entities = new ArrayList<>();
+            mergeInto(cursors(memtable.entrySet(), segments), true, (id, record) -> entities.add(decode(record)));
+            return entities;
+        } catch (IOException e) {
+            throw FileStorageEngine.unreadable(filepath, e);
+        }
+    }
+
+    private static boolean isManifest(Path manifest) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(manifest.toFile()))) {
+            return in.readInt() == MANIFEST_MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    private void readManifest() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filepath)))) {
+            in.readInt();
+            nextSegment = in.readLong();
+            int count = in.readInt();
+            List<SortedSegment> listed = new ArrayList<>(count);
+            try {
+                for (int i = 0; i < count; i++) {
+                    long number = in.readLong();
+                    listed.add(SortedSegment.open(segmentPath(number), number));
+                }
+            } catch (IOException e) {
+                for (SortedSegment segment : listed) {
+                    segment.close();
+                }
+                throw e;
+            }
+            segments = listed;
+        }
+    }
+
+    private void deleteUnlisted() throws IOException {
+        Path manifest = Paths.get(filepath).toAbsolutePath();
+        String prefix = manifest.getFileName() + ".seg.";
+        Set<Path> listed = new HashSet<>();
+        for (SortedSegment segment : segments) {
+            listed.add(segmentPath(segment.number()).toAbsolutePath());
+        }
+        if (!Files.isDirectory(manifest.getParent())) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(manifest.getParent(), prefix + "*")) {
+            for (Path file : files) {
+                if (!listed.contains(file.toAbsolutePath())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts a snapshot written by the {@link BinaryStorageEngine} or the
+     * {@link SerializationStorageEngine}, together with the deltas and log of a
+     * {@link LogStructuredStorageEngine} over it, into a single segment.
+     */
+    private List<T> migrate() throws IOException {
+        Map<String, T> byId = new LinkedHashMap<>();
+        try {
+            for (T entity : new BinaryStorageEngine<>(filepath, codec).readFile()) {
+                byId.put(entity.getId(), entity);
+            }
+        } catch (Exception e) {
+            throw new IOException("Cannot convert " + filepath, e);
+        }
+        for (WriteAheadLog<T> chained : LogStructuredStorageEngine.chain(filepath, codec)) {
+            chained.replay(entity -> byId.put(entity.getId(), entity), byId::remove);
+        }
+
+        List<T> entities = new ArrayList<>(byId.values());
+        deleteUnlisted();
+        snapshot(entities);
+        LogStructuredStorageEngine.deleteChain(filepath);
+        return entities;
+    }
+
+    @Override
+    public synchronized void upsert(T entity) {
+        batch.upsert(entity.getId(), entity);
+    }
+
+    @Override
+    public synchronized void delete(String id) {
+        batch.delete(id);
+    }
+
+    /**
+     * Appends the recorded mutations to the log in one write and applies them to the memtable,
+     * then writes the memtable out as a segment if it is full.
+     */
+    @Override
+    public synchronized void sync(Supplier<List<T>> current, boolean fsync) throws IOException {
+        ensureOpen();
+        if (batch.isEmpty()) return;
+
+        log.appendBatch(batch, fsync);
+        for (Map.Entry<String, T> mutation : batch.latest().entrySet()) {
+            if (mutation.getValue() == null) {
+                applyDelete(mutation.getKey());
+            } else {
+                memtable.put(mutation.getKey(), encode(mutation.getValue()));
+            }
+        }
+        batch = new MutationBatch<>();
+
+        if (memtable.size() >= memtableSize) {
+            writeMemtable();
+        }
+    }
+
+    private void apply(T entity) {
+        try {
+            memtable.put(entity.getId(), encode(entity));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records a delete in the memtable. A tombstone is only needed if a segment may still hold
+     * the ID; an entity that never left the memtable is simply dropped from it.
+     */
+    private void applyDelete(String id) {
+        try {
+            if (inSegments(id)) {
+                memtable.put(id, SortedSegment.TOMBSTONE);
+            } else {
+                memtable.remove(id);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean inSegments(String id) throws IOException {
+        for (SortedSegment segment : segments) {
+            byte[] record = segment.get(id);
+            if (record != null) return record != SortedSegment.TOMBSTONE;
+        }
+        return false;
+    }
+
+    /**
+     * Writes the memtable out as the newest segment, lists it in the manifest, and truncates the
+     * log, whose mutations the segment now holds. Starts a merge if there are too many segments.
+     */
+    private void writeMemtable() throws IOException {
+        SortedSegment segment = writeSegment(memtable.size(), sink -> {
+            for (Map.Entry<String, byte[]> entry : memtable.entrySet()) {
+                sink.append(entry.getKey(), entry.getValue());
+            }
+        });
+        List<SortedSegment> listed = new ArrayList<>(segments.size() + 1);
+        listed.add(segment);
+        listed.addAll(segments);
+        replaceSegments(listed, List.of(), segment);
+
+        memtable = new TreeMap<>();
+        log.truncate();
+        startMerge();
+    }
+
+    /**
+     * Starts a background merge if there are more than {@value #MAX_SEGMENTS} segments and no
+     * merge is running. The merge takes the two newest segments, and then each older one that holds
+     * at most twice as many records as those taken so far.
+     */
+    private void startMerge() {
+        if (merging != null || segments.size() <= MAX_SEGMENTS) return;
+
+        List<SortedSegment> inputs = new ArrayList<>();
+        long records = 0;
+        for (SortedSegment segment : segments) {
+            if (inputs.size() >= 2 && segment.size() > 2 * records) break;
+            inputs.add(segment);
+            records += segment.size();
+        }
+        boolean oldest = inputs.size() == segments.size();
+        int expected = (int) Math.min(records, Integer.MAX_VALUE);
+        long number = nextSegment++;
+        merging = inputs;
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "lsm-compactor " + filepath);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        compactor.execute(() -> merge(inputs, oldest, number, expected));
+    }
+
+    /**
+     * Merges segments into one, without holding the engine's lock while reading and writing, and
+     * then swaps it in for them. If a snapshot replaced the segments in the meantime, the merged
+     * segment is discarded instead.
+     */
+    private void merge(List<SortedSegment> inputs, boolean dropTombstones, long number, int records) {
+        Path path = segmentPath(number);
+        SortedSegment merged;
+        try {
+            try (SortedSegment.Writer writer = new SortedSegment.Writer(path, records)) {
+                mergeInto(cursors(List.of(), inputs), dropTombstones, writer::append);
+                writer.finish();
+            }
+            merged = SortedSegment.open(path, number);
+        } catch (IOException e) {
+            e.printStackTrace();
+            synchronized (this) {
+                merging = null;
+                retire(inputs);
+                deleteQuietly(path);
+            }
+            return;
+        }
+
+        synchronized (this) {
+            merging = null;
+            int first = segments.indexOf(inputs.get(0));
+            if (!open || first < 0 || !segments.subList(first, Math.min(segments.size(), first + inputs.size())).equals(inputs)) {
+                retire(inputs);
+                retire(List.of(merged));
+                return;
+            }
+            List<SortedSegment> listed = new ArrayList<>(segments.subList(0, first));
+            listed.add(merged);
+            listed.addAll(segments.subList(first + inputs.size(), segments.size()));
+            try {
+                replaceSegments(listed, inputs, merged);
+            } catch (IOException e) {
+                e.printStackTrace();
+                retire(List.of(merged));
+                return;
+            }
+            if (compactor != null) {
+                // not closing, so a further merge may start
+                startMerge();
+            }
+        }
+    }
+
+    /**
+     * Writes the entities as a single segment, which replaces every existing segment, and
+     * discards the memtable and the log. The engine is open afterwards, even if it was not loaded.
+     */
+    @Override
+    public synchronized void snapshot(List<T> entities) throws IOException {
+        TreeMap<String, T> sorted = new TreeMap<>();
+        for (T entity : entities) {
+            sorted.put(entity.getId(), entity);
+        }
+        SortedSegment segment = writeSegment(sorted.size(), sink -> {
+            for (Map.Entry<String, T> entry : sorted.entrySet()) {
+                sink.append(entry.getKey(), encode(entry.getValue()));
+            }
+        });
+        replaceSegments(new ArrayList<>(List.of(segment)), segments, segment);
+
+        memtable = new TreeMap<>();
+        batch = new MutationBatch<>();
+        log.truncate();
+        open = true;
+    }
+
+    /**
+     * Waits for a running merge to finish, without starting another, then closes every segment.
+     * The engine cannot record mutations afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        ExecutorService stopping;
+        synchronized (this) {
+            stopping = compactor;
+            compactor = null;
+        }
+        if (stopping != null) {
+            stopping.shutdown();
+            try {
+                stopping.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            open = false;
+            for (SortedSegment segment : segments) {
+                segment.close();
+            }
+            segments = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Receives the records of a segment being written, in ID order.
+     */
+    private interface RecordSink {
+        void append(String id, byte[] record) throws IOException;
+    }
+
+    /**
+     * Produces the records of a segment being written.
+     */
+    private interface SegmentSource {
+        void writeTo(RecordSink sink) throws IOException;
+    }
+
+    /**
+     * Writes a new segment under the next segment number and opens it. The file is written under
+     * a temporary name first, so a partial segment is never mistaken for a complete one.
+     */
+    private SortedSegment writeSegment(int records, SegmentSource source) throws IOException {
+        long number = nextSegment++;
+        Path path = segmentPath(number);
+        Path temp = Paths.get(path + ".tmp");
+        try (SortedSegment.Writer writer = new SortedSegment.Writer(temp, records)) {
+            source.writeTo(writer::append);
+            writer.finish();
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return SortedSegment.open(path, number);
+    }
+
+    /**
+     * Lists new segments in the manifest, then deletes the segments they replace. A replaced
+     * segment that a running merge still reads is left to the merge to delete. If the manifest
+     * cannot be written, the new segment is deleted and nothing else changes.
+     *
+     * @param listed The segments to list, newest first.
+     * @param replaced The segments no longer listed.
+     * @param added The segment added by this change.
+     */
+    private void replaceSegments(List<SortedSegment> listed, List<SortedSegment> replaced, SortedSegment added)
+            throws IOException {
+        try {
+            writeManifest(listed);
+        } catch (IOException e) {
+            retire(List.of(added));
+            throw e;
+        }
+        segments = listed;
+        List<SortedSegment> unused = new ArrayList<>(replaced);
+        if (merging != null) {
+            unused.removeAll(merging);
+        }
+        retire(unused);
+    }
+
+    private void writeManifest(List<SortedSegment> listed) throws IOException {
+        Path temp = Paths.get(filepath + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file));
+            out.writeInt(MANIFEST_MAGIC);
+            out.writeLong(nextSegment);
+            out.writeInt(listed.size());
+            for (SortedSegment segment : listed) {
+                out.writeLong(segment.number());
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temp, Paths.get(filepath), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Closes and deletes the given segments, skipping any that are still listed.
+     */
+    private void retire(List<SortedSegment> unused) {
+        for (SortedSegment segment : unused) {
+            if (segments.contains(segment)) continue;
+            try {
+                segment.delete();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Returns cursors over the given sources, newest first: the memtable entries, then the segments.
+     */
+    private static List<SortedSegment.Cursor> cursors(Collection<Map.Entry<String, byte[]>> memtableEntries,
+                                                      List<SortedSegment> sources) {
+        List<SortedSegment.Cursor> cursors = new ArrayList<>(sources.size() + 1);
+        if (!memtableEntries.isEmpty()) {
+            Iterator<Map.Entry<String, byte[]>> entries = memtableEntries.iterator();
+            cursors.add(new SortedSegment.Cursor() {
+                private Map.Entry<String, byte[]> current;
+
+                @Override
+                public boolean next() {
+                    current = entries.hasNext() ? entries.next() : null;
+                    return current != null;
+                }
+
+                @Override
+                public String id() {
+                    return current.getKey();
+                }
+
+                @Override
+                public byte[] record() {
+                    return current.getValue();
+                }
+            });
+        }
+        for (SortedSegment segment : sources) {
+            cursors.add(segment.cursor());
+        }
+        return cursors;
+    }
+
+    /**
+     * Merges sorted cursors, passing on each ID once, with the record of the newest cursor that holds it.
+     *
+     * @param cursors The cursors, newest first.
+     * @param dropTombstones {@code true} to leave out deleted IDs, when no older data can hold them.
+     * @param sink Receives the merged records in ID order.
+     */
+    private static void mergeInto(List<SortedSegment.Cursor> cursors, boolean dropTombstones, RecordSink sink)
+            throws IOException {
+        record Head(SortedSegment.Cursor cursor, int age) {
+        }
+        PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, cursors.size()),
+                Comparator.comparing((Head head) -> head.cursor().id()).thenComparingInt(Head::age));
+        for (int age = 0; age < cursors.size(); age++) {
+            if (cursors.get(age).next()) {
+                heads.add(new Head(cursors.get(age), age));
+            }
+        }
+        while (!heads.isEmpty()) {
+            Head newest = heads.poll();
+            String id = newest.cursor().id();
+            byte[] record = newest.cursor().record();
+            if (!(dropTombstones && record == SortedSegment.TOMBSTONE)) {
+                sink.append(id, record);
+            }
+            if (newest.cursor().next()) heads.add(newest);
+            while (!heads.isEmpty() && heads.peek().cursor().id().equals(id)) {
+                Head older = heads.poll();
+                if (older.cursor().next()) heads.add(older);
+            }
+        }
+    }
+
+    private T decode(byte[] record) throws IOException {
+        return codec.read(new DataObjectInput(new ByteArrayInputStream(record)));
+    }
+
+    private byte[] encode(T entity) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataObjectOutput out = new DataObjectOutput(buffer);
+        codec.write(entity, out);
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (!open) throw new IOException(filepath + " is not open");
+    }
+
+    private Path segmentPath(long number) {
+        return Paths.get(filepath + ".seg." + number);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
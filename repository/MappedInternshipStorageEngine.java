@@ -0,0 +1,404 @@
+package repository;
+
+import entity.Internship;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Stores internships as fixed-width rows in a memory-mapped file, so a changed internship is
+ * written in place rather than by rewriting the file.
+ *
+ * <p>The file at {@code location()} holds a {@value #HEADER_SIZE}-byte header followed by one
+ * {@value #ROW_SIZE}-byte row per internship, in insertion order. A row holds a pointer to the
+ * internship's record, encoded with {@link EntityCodecs#internships()}, in a separate heap file
+ * ({@code location() + ".heap." + generation}), and whether the row is in use. The rows locate the
+ * records and nothing more: students browse through the {@link InternshipEligibilityIndex}, which
+ * the repository keeps in memory and which reflects saves not yet flushed, so no browsing fields
+ * are kept in the rows to scan.</p>
+ *
+ * <p>Each mutation is written as it arrives: an upsert appends the new record to the heap and then
+ * overwrites the row (or appends one), and a delete frees the row. Freed rows and superseded
+ * records are reclaimed by a compaction, which writes a new heap generation and a new row file and
+ * moves the row file into place. The engine takes no file lock, so only one process may open the
+ * files at a time.</p>
+ *
+ * <p>A snapshot or log written by the other engines is converted when the engine first loads it.</p>
+ */
+public class MappedInternshipStorageEngine implements StorageEngine<Internship> {
+    /** Marks a row file written by this engine ("IPM1"). */
+    static final int MAGIC = 0x49504D31;
+
+    /** The size of the file header in bytes: the magic number, row size, heap generation and row count. */
+    static final int HEADER_SIZE = 20;
+
+    /** The size of each row in bytes: the record pointer and the state. */
+    static final int ROW_SIZE = 9;
+
+    /** The heap size below which superseded records are never compacted away. */
+    private static final long MIN_COMPACTION_BYTES = 1 << 20;
+
+    /** The number of rows the file grows by at least. */
+    private static final int MIN_CAPACITY = 1024;
+
+    // header fields
+    private static final int HEADER_ROW_SIZE = 4;
+    private static final int HEADER_GENERATION = 8;
+    private static final int HEADER_ROW_COUNT = 16;
+
+    // row fields
+    static final int POINTER = 0;
+    private static final int STATE = 8;
+
+    private static final byte FREE = 0;
+    private static final byte LIVE = 1;
+
+    /** A record pointer holds the heap offset above the record length, which takes the low bits. */
+    private static final int LENGTH_BITS = 24;
+
+    private final String filepath;
+    private final EntityCodec<Internship> codec = EntityCodecs.internships();
+
+    private FileChannel rowChannel;
+    private MappedByteBuffer rows;
+    private int capacity;
+    private int rowCount;
+    private long generation;
+
+    private FileChannel heap;
+    private long heapLength;
+    private long liveBytes;
+    private int liveRows;
+
+    /** The ID in each row, or {@code null} for a free row. */
+    private final ArrayList<String> rowIds = new ArrayList<>();
+    private final Map<String, Integer> rowOf = new HashMap<>();
+
+    /**
+     * Creates an engine backed by the given row file.
+     *
+     * @param filepath The path of the row file; the heap files are named after it.
+     */
+    public MappedInternshipStorageEngine(String filepath) {
+        this.filepath = filepath;
+    }
+
+    @Override
+    public String location() {
+        return filepath;
+    }
+
+    /**
+     * Maps the row file and decodes every live internship from the heap. If the file is still a
+     * snapshot written by another engine, it is read together with its log and converted.
+     *
+     * @return The stored internships in insertion order.
+     * @throws UncheckedIOException If the stored data cannot be read. It is left alone.
+     */
+    @Override
+    public synchronized List<Internship> load() {
+        try {
+            return isRowFile() ? open() : migrate();
+        } catch (IOException e) {
+            throw FileStorageEngine.unreadable(filepath, e);
+        }
+    }
+
+    private boolean isRowFile() throws IOException {
+        Path path = Paths.get(filepath);
+        if (!Files.exists(path)) return false;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(filepath))) {
+            return in.readInt() == MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Maps the files and decodes every live row. A header, row or record pointer that does not fit
+     * the files makes the buffers throw, which is reported as an {@link IOException}, and the files
+     * are closed again.
+     */
+    private List<Internship> open() throws IOException {
+        int row = 0;
+        try {
+            openFiles();
+            List<Internship> internships = new ArrayList<>(rowCount);
+            MappedByteBuffer records = heap.map(FileChannel.MapMode.READ_ONLY, 0, heapLength);
+            for (; row < rowCount; row++) {
+                int base = rowBase(row);
+                if (rows.get(base + STATE) != LIVE) {
+                    rowIds.add(null);
+                    continue;
+                }
+                long pointer = rows.getLong(base + POINTER);
+                byte[] record = new byte[recordLength(pointer)];
+                records.get((int) recordOffset(pointer), record);
+                Internship internship = codec.read(new DataObjectInput(new ByteArrayInputStream(record)));
+
+                rowIds.add(internship.getId());
+                rowOf.put(internship.getId(), row);
+                liveRows++;
+                liveBytes += record.length;
+                internships.add(internship);
+            }
+            return internships;
+        } catch (IOException | RuntimeException e) {
+            closeFiles();
+            rowIds.clear();
+            rowOf.clear();
+            liveRows = 0;
+            liveBytes = 0;
+            if (e instanceof IOException io) throw io;
+            throw new IOException(filepath + " is corrupt at row " + row, e);
+        }
+    }
+
+    /**
+     * Opens and maps the row file, and opens the heap generation its header names.
+     */
+    private void openFiles() throws IOException {
+        rowChannel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (rowChannel.size() < HEADER_SIZE) {
+            throw new StreamCorruptedException(filepath + " is shorter than its header");
+        }
+        map((int) ((rowChannel.size() - HEADER_SIZE) / ROW_SIZE));
+        if (rows.getInt(HEADER_ROW_SIZE) != ROW_SIZE) {
+            throw new StreamCorruptedException(filepath + " has rows of " + rows.getInt(HEADER_ROW_SIZE) + " bytes");
+        }
+        generation = rows.getLong(HEADER_GENERATION);
+        rowCount = rows.getInt(HEADER_ROW_COUNT);
+        if (rowCount < 0 || rowCount > capacity) {
+            throw new StreamCorruptedException(filepath + " lists " + rowCount + " rows but holds " + capacity);
+        }
+        heap = FileChannel.open(heapPath(generation), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        heapLength = heap.size();
+    }
+
+    /**
+     * Converts a snapshot written by the {@link BinaryStorageEngine} or the
+     * {@link SerializationStorageEngine}, together with the deltas and log of a
+     * {@link LogStructuredStorageEngine} over it.
+     * If the snapshot cannot be read it is left alone, and the engine stays closed.
+     */
+    private List<Internship> migrate() throws IOException {
+        Map<String, Internship> byId = new LinkedHashMap<>();
+        if (Files.exists(Paths.get(filepath))) {
+            try {
+                for (Internship internship : new BinaryStorageEngine<>(filepath, codec).readFile()) {
+                    byId.put(internship.getId(), internship);
+                }
+            } catch (Exception e) {
+                throw new IOException("Cannot convert " + filepath, e);
+            }
+        }
+        for (WriteAheadLog<Internship> log : LogStructuredStorageEngine.chain(filepath, codec)) {
+            log.replay(internship -> byId.put(internship.getId(), internship), byId::remove);
+        }
+
+        List<Internship> internships = new ArrayList<>(byId.values());
+        snapshot(internships);
+        LogStructuredStorageEngine.deleteChain(filepath);
+        return internships;
+    }
+
+    /**
+     * Appends the internship's record to the heap, then updates its row in place, or appends a
+     * row if the internship is new.
+     */
+    @Override
+    public synchronized void upsert(Internship internship) throws IOException {
+        ensureOpen();
+        byte[] record = encode(internship);
+        long offset = heapLength;
+        writeFully(heap, ByteBuffer.wrap(record), offset);
+        heapLength += record.length;
+        long pointer = pointer(offset, record.length);
+
+        Integer row = rowOf.get(internship.getId());
+        if (row == null) {
+            row = rowCount;
+            if (row == capacity) {
+                map(Math.max(capacity * 2, MIN_CAPACITY));
+            }
+            writeRow(rows, rowBase(row), pointer);
+            rowIds.add(internship.getId());
+            rowOf.put(internship.getId(), row);
+            rowCount++;
+            rows.putInt(HEADER_ROW_COUNT, rowCount);
+            liveRows++;
+        } else {
+            liveBytes -= recordLength(rows.getLong(rowBase(row) + POINTER));
+            writeRow(rows, rowBase(row), pointer);
+        }
+        liveBytes += record.length;
+    }
+
+    @Override
+    public synchronized void delete(String id) throws IOException {
+        ensureOpen();
+        Integer row = rowOf.remove(id);
+        if (row == null) return;
+
+        int base = rowBase(row);
+        liveBytes -= recordLength(rows.getLong(base + POINTER));
+        rows.put(base + STATE, FREE);
+        rowIds.set(row, null);
+        liveRows--;
+    }
+
+    /**
+     * Forces the heap and the mapping to the device if requested, and compacts once superseded
+     * records outweigh live ones (and fill at least {@value #MIN_COMPACTION_BYTES} bytes), or once
+     * free rows outnumber live ones.
+     */
+    @Override
+    public synchronized void sync(Supplier<List<Internship>> current, boolean fsync) throws IOException {
+        ensureOpen();
+        if (fsync) {
+            heap.force(false);
+            rows.force();
+        }
+
+        boolean heapWasted = heapLength >= MIN_COMPACTION_BYTES && heapLength - liveBytes > liveBytes;
+        boolean rowsWasted = rowCount - liveRows > Math.max(liveRows, MIN_CAPACITY);
+        if (heapWasted || rowsWasted) {
+            snapshot(current.get());
+        }
+    }
+
+    /**
+     * Writes the internships to a new heap generation and a new row file, moves the row file into
+     * place, and then maps it. The heap is forced to the device before the row file that points
+     * into it is moved, and the previous heap is only deleted afterwards.
+     */
+    @Override
+    public synchronized void snapshot(List<Internship> entities) throws IOException {
+        long nextGeneration = generation + 1;
+        Path nextHeap = heapPath(nextGeneration);
+        ByteBuffer newRows = ByteBuffer.allocate(HEADER_SIZE + Math.max(entities.size(), MIN_CAPACITY) * ROW_SIZE);
+        newRows.putInt(0, MAGIC);
+        newRows.putInt(HEADER_ROW_SIZE, ROW_SIZE);
+        newRows.putLong(HEADER_GENERATION, nextGeneration);
+        newRows.putInt(HEADER_ROW_COUNT, entities.size());
+
+        try (FileOutputStream file = new FileOutputStream(nextHeap.toFile())) {
+            OutputStream out = new BufferedOutputStream(file);
+            long offset = 0;
+            for (int row = 0; row < entities.size(); row++) {
+                byte[] record = encode(entities.get(row));
+                out.write(record);
+                writeRow(newRows, rowBase(row), pointer(offset, record.length));
+                offset += record.length;
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+
+        Path temp = Paths.get(filepath + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, newRows, 0);
+            channel.force(false);
+        }
+        Files.move(temp, Paths.get(filepath), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        Path previousHeap = heapPath(generation);
+        closeFiles();
+        openFiles();
+        rowIds.clear();
+        rowOf.clear();
+        for (int row = 0; row < entities.size(); row++) {
+            rowIds.add(entities.get(row).getId());
+            rowOf.put(entities.get(row).getId(), row);
+        }
+        liveRows = entities.size();
+        liveBytes = heapLength;
+        if (!previousHeap.equals(heapPath(generation))) {
+            Files.deleteIfExists(previousHeap);
+        }
+    }
+
+    /**
+     * Unmaps nothing (mappings are released by the garbage collector) but closes both files.
+     * The engine cannot record mutations afterwards.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closeFiles();
+    }
+
+    private void closeFiles() throws IOException {
+        rows = null;
+        if (rowChannel != null) rowChannel.close();
+        if (heap != null) heap.close();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (rows == null) throw new IOException(filepath + " is not open");
+    }
+
+    /**
+     * Maps the header and the given number of rows, growing the file if needed.
+     */
+    private void map(int rowCapacity) throws IOException {
+        capacity = rowCapacity;
+        rows = rowChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * ROW_SIZE);
+    }
+
+    private Path heapPath(long heapGeneration) {
+        return Paths.get(filepath + ".heap." + heapGeneration);
+    }
+
+    private static int rowBase(int row) {
+        return HEADER_SIZE + row * ROW_SIZE;
+    }
+
+    private byte[] encode(Internship internship) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataObjectOutput out = new DataObjectOutput(buffer);
+        codec.write(internship, out);
+        out.flush();
+        if (buffer.size() >= 1 << LENGTH_BITS) {
+            throw new IOException("Internship " + internship.getId() + " is too large to store");
+        }
+        return buffer.toByteArray();
+    }
+
+    private static long pointer(long offset, int length) {
+        return offset << LENGTH_BITS | length;
+    }
+
+    private static long recordOffset(long pointer) {
+        return pointer >>> LENGTH_BITS;
+    }
+
+    private static int recordLength(long pointer) {
+        return (int) (pointer & ((1 << LENGTH_BITS) - 1));
+    }
+
+    /**
+     * Writes a whole row: the record pointer, then the state, so a row is only marked live once
+     * it is complete.
+     */
+    private static void writeRow(ByteBuffer rows, int base, long pointer) {
+        rows.putLong(base + POINTER, pointer);
+        rows.put(base + STATE, LIVE);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.rewind();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package repository;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A batch of pending mutations, coalesced to the latest state of each entity ID.
+ *
+ * <p>Coalescing keeps each ID's first position in the batch, which matches how a repository
+ * orders its entities: an update replaces the entity in place. The exception is an entity that
+ * is deleted and then saved again, which a repository appends at the end. For such an ID the
+ * batch remembers that the stored copy must be deleted first, and moves the new state to the
+ * end, so replaying the batch reproduces the in-memory order.</p>
+ *
+ * @param <T> The type of entity in the batch.
+ */
+class MutationBatch<T> {
+    /** The latest state of each mutated ID, in batch order; a {@code null} value marks a delete. */
+    private final Map<String, T> latest = new LinkedHashMap<>();
+
+    /** IDs that were deleted and then saved again within this batch. */
+    private final Set<String> deletedFirst = new LinkedHashSet<>();
+
+    /**
+     * Records that an entity was inserted or replaced.
+     *
+     * @param id The entity's ID.
+     * @param entity The entity's latest state.
+     */
+    void upsert(String id, T entity) {
+        if (latest.containsKey(id) && latest.get(id) == null) {
+            latest.remove(id);
+            deletedFirst.add(id);
+        }
+        latest.put(id, entity);
+    }
+
+    /**
+     * Records that an entity was deleted.
+     *
+     * @param id The deleted entity's ID.
+     */
+    void delete(String id) {
+        latest.put(id, null);
+    }
+
+    /**
+     * Records every mutation of a later batch on top of this one, so this batch ends up holding
+     * the combined effect of both.
+     *
+     * @param later The batch recorded after this one.
+     */
+    void addAll(MutationBatch<T> later) {
+        for (String id : later.deletedFirst) {
+            delete(id);
+        }
+        for (Map.Entry<String, T> mutation : later.latest.entrySet()) {
+            if (mutation.getValue() == null) {
+                delete(mutation.getKey());
+            } else {
+                upsert(mutation.getKey(), mutation.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns the IDs whose stored copy must be deleted before the rest of the batch is applied.
+     *
+     * @return The IDs deleted and then saved again within this batch.
+     */
+    Set<String> deletedFirst() {
+        return deletedFirst;
+    }
+
+    /**
+     * Returns the latest state of each mutated ID, in the order the batch should be applied.
+     *
+     * @return A map from ID to the entity's latest state, or to {@code null} if it was deleted.
+     */
+    Map<String, T> latest() {
+        return latest;
+    }
+
+    /**
+     * Returns the number of IDs mutated in this batch.
+     *
+     * @return The number of coalesced mutations.
+     */
+    int size() {
+        return latest.size();
+    }
+
+    /**
+     * Checks whether any mutation has been recorded.
+     *
+     * @return {@code true} if the batch is empty.
+     */
+    boolean isEmpty() {
+        return latest.isEmpty();
+    }
+}
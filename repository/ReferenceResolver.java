@@ -0,0 +1,91 @@
+package repository;
+
+import entity.CompanyRep;
+import entity.Identifiable;
+import entity.Internship;
+import entity.InternshipApplication;
+import entity.Student;
+
+import java.io.Serializable;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Re-attaches cross-repository references after all repositories have been loaded.
+ *
+ * <p>On disk, an {@link InternshipApplication} only stores the IDs of its {@link Internship}
+ * and {@link Student}, and an {@link Internship} only stores the IDs of its {@link CompanyRep}
+ * and applications. This keeps each file free of copies of entities owned by another file.
+ * Once the three repositories are loaded, this class replaces those IDs with the canonical
+ * instances held by the owning repository, so every part of the system shares one object per entity.</p>
+ *
+ * <p>If the users were loaded lazily, linking every internship and application to its user would
+ * decode all of them. Internships and applications are then given a lookup into the user repository
+ * instead, which returns the same canonical instance whenever one is in use.</p>
+ */
+public class ReferenceResolver {
+
+    private ReferenceResolver() {
+    }
+
+    /**
+     * Resolves every stored ID reference against the given repositories, and sets the archive
+     * linkers that resolve the references of entities later read from a cold tier.
+     * References whose target no longer exists are left empty.
+     *
+     * <p>A reference to an archived entity is resolved from the cold tier. An application whose
+     * internship was archived is given a lookup instead, so the internships of old accepted offers
+     * are only read when they are first displayed; the application then keeps the instance read.
+     * Archived internships cannot be saved, see {@link InternshipRepository#checkSavable}.</p>
+     *
+     * @param userRepository the repository holding students and company representatives
+     * @param internshipRepository the repository holding internships
+     * @param internshipApplicationRepository the repository holding internship applications
+     */
+    public static void resolve(UserRepository userRepository, InternshipRepository internshipRepository,
+                               InternshipApplicationRepository internshipApplicationRepository) {
+        boolean lazyUsers = userRepository.isLazy();
+        Function<String, CompanyRep> companyReps = id -> userRepository.findById(id) instanceof CompanyRep rep ? rep : null;
+        Function<String, Student> students = id -> userRepository.findById(id) instanceof Student student ? student : null;
+        Function<String, Internship> archivedInternships = internshipRepository::findArchived;
+
+        Consumer<Internship> linkInternship = internship -> {
+            if (lazyUsers) {
+                internship.setCompRepLookup(companyReps);
+            } else {
+                internship.setCompRepIC(companyReps.apply(internship.getCompRepId()));
+            }
+
+            internship.getInternshipApplications().clear();
+            for (String applicationId : internship.getInternshipApplicationIds()) {
+                InternshipApplication application = findAnywhere(internshipApplicationRepository, applicationId);
+                if (application != null) {
+                    internship.getInternshipApplications().add(application);
+                }
+            }
+        };
+        Consumer<InternshipApplication> linkApplication = application -> {
+            Internship internship = internshipRepository.findById(application.getInternshipId());
+            if (internship != null) {
+                application.setInternship(internship);
+            } else {
+                application.setInternshipLookup(archivedInternships);
+            }
+            if (lazyUsers) {
+                application.setStudentLookup(students);
+            } else {
+                application.setStudent(students.apply(application.getStudentId()));
+            }
+        };
+
+        internshipRepository.setArchiveLinker(linkInternship);
+        internshipApplicationRepository.setArchiveLinker(linkApplication);
+        internshipRepository.entities.forEach(linkInternship);
+        internshipApplicationRepository.entities.forEach(linkApplication);
+    }
+
+    private static <T extends Serializable & Identifiable> T findAnywhere(Repository<T> repository, String id) {
+        T entity = repository.findById(id);
+        return entity != null ? entity : repository.findArchived(id);
+    }
+}
@@ -4,11 +4,46 @@ import entity.Identifiable;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * The base class for all application repositories
- * It provides core CRUD (Create, Read, Update, Delete) and file persistence functionality
- * using Java serialization for any entity that is both {@link Serializable} and {@link Identifiable}.
+ * It provides core CRUD (Create, Read, Update, Delete) functionality for any entity that is both
+ * {@link Serializable} and {@link Identifiable}, and delegates file persistence to a {@link StorageEngine}.
+ *
+ * <p>By default a repository uses Java serialization, either rewriting the whole file on every
+ * mutation ({@link SerializationStorageEngine}) or appending each mutation to a log
+ * ({@link LogStructuredStorageEngine}), which periodically checkpoints the entities mutated since
+ * its previous checkpoint to a delta file. Any other engine, such as the
+ * {@link BinaryStorageEngine}, can be passed to {@link #Repository(StorageEngine)} instead.</p>
+ *
+ * <p>Independently of the mode, a repository may be switched to write-behind with
+ * {@link #enableWriteBehind(long, int, boolean)}. Mutations then only update memory, and a
+ * background flusher persists all dirty entities in one batched write.</p>
+ *
+ * <p>Repositories are safe to share between threads. Writes (and the subclass index hooks they
+ * trigger) run one at a time under the write side of a {@link StampedLock}. {@link #findById}
+ * uses an optimistic read that only falls back to the read lock if a write overlapped it, and
+ * {@link #snapshot()} needs no lock at all once published. Snapshot files are written from an
+ * immutable snapshot, so persistence never observes a half-applied change to the list.
+ * The engine is only ever called by one flush at a time.</p>
+ *
+ * <p>If the engine loads lazily, like the {@link LazyBinaryStorageEngine}, {@code entities} is a
+ * {@link LazyEntityList} that decodes entities as they are looked up, and the snapshot is a frozen
+ * copy of it that streams the file when iterated. The repository then only reads entity IDs in
+ * bulk, and never the entities themselves.</p>
+ *
+ * <p>A repository constructed with an archive codec also has a cold tier. {@link #archive} moves
+ * the entities that are no longer in use into compressed segment files (see {@link ColdStore}),
+ * after which every query of the repository, and every index a subclass keeps, skips them. They
+ * are only read again through {@link #findArchived} and {@link #findAllArchived}.</p>
  *
  * @param <T> The type of the entity managed by this repository, which must implement
  * {@link Serializable} and {@link Identifiable}.
@@ -19,9 +54,41 @@ public class Repository<T extends Serializable & Identifiable> {
     /** The file path used for saving and loading the entities. */
     protected final String filepath;
 
-    /** The in-memory collection of all entities managed by this repository. */
+    /** The collection of all entities managed by this repository, in memory unless loaded lazily. */
     protected List<T> entities;
-    
+
+    /** Maps each entity ID to its position in {@code entities}, so lookups and upserts avoid a linear scan. */
+    protected final Map<String, Integer> idIndex = new HashMap<>();
+
+    /** Persists the entities; only called while holding {@code flushLock}. */
+    private final StorageEngine<T> engine;
+
+    /** The archived entities, or {@code null} if this repository does not archive. */
+    private final ColdStore<T> coldStore;
+
+    /** Mutations awaiting the next flush. */
+    private MutationBatch<T> pendingWrites = new MutationBatch<>();
+
+    /** Completed once the mutations currently in {@code pendingWrites} have been flushed. */
+    private CompletableFuture<Void> pendingFlush = new CompletableFuture<>();
+
+    /** Guards {@code entities}, the indexes and the write-behind state; see the class comment. */
+    protected final StampedLock lock = new StampedLock();
+
+    /** Serializes flushes, so batches reach the file in the order they were collected. */
+    private final Object flushLock = new Object();
+
+    /** The background flusher, or {@code null} while write-behind is disabled. */
+    private ScheduledExecutorService flusher;
+    private int maxPendingWrites;
+    private boolean fsyncOnFlush;
+
+    /** The published read-only view of {@code entities}, or {@code null} until the next reader rebuilds it. */
+    private volatile List<T> snapshot;
+
+    /** Incremented each time the set of entity instances changes, i.e. each time a new snapshot is needed. */
+    private volatile long version;
+
 
     /**
      * Constructs a Repository, loads existing entities from the specified file,
@@ -30,93 +97,607 @@ public class Repository<T extends Serializable & Identifiable> {
      * @param filepath The path to the file used for serialization storage.
      */
     protected Repository(String filepath) {
-        this.filepath = filepath;
-        this.entities = loadFromFile();
+        this(new SerializationStorageEngine<>(filepath));
     }
 
     /**
-     * Loads the list of entities from the serialization file specified by {@code filepath}.
-     * If the file does not exist, an empty list is returned.
+     * Constructs a Repository in either snapshot or log-structured mode.
+     * In log-structured mode, the mutation log at {@code filepath + ".log"} is replayed
+     * over the loaded snapshot.
      *
-     * @return The list of entities loaded from the file, or an empty list upon failure or file absence.
+     * @param filepath The path to the file used for serialization storage.
+     * @param logStructured {@code true} to append each mutation to a log instead of rewriting the file.
      */
-    @SuppressWarnings("unchecked")
-    protected List<T> loadFromFile() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filepath))) {
-            return (List<T>) ois.readObject();
-        } catch (FileNotFoundException e) {
-            return new ArrayList<>();
-        } catch (Exception e) {
+    protected Repository(String filepath, boolean logStructured) {
+        this(logStructured
+                ? new LogStructuredStorageEngine<>(new SerializationStorageEngine<>(filepath))
+                : new SerializationStorageEngine<>(filepath));
+    }
+
+    /**
+     * Constructs a Repository backed by the given storage engine and loads its entities.
+     *
+     * @param engine The engine that persists this repository's entities.
+     */
+    protected Repository(StorageEngine<T> engine) {
+        this(engine, null);
+    }
+
+    /**
+     * Constructs a Repository backed by the given storage engine, loads its entities, and opens
+     * the cold tier of archived entities next to the engine's file.
+     *
+     * @param engine The engine that persists this repository's entities.
+     * @param archiveCodec The codec used to encode archived entities, or {@code null} for no cold tier.
+     */
+    protected Repository(StorageEngine<T> engine, EntityCodec<T> archiveCodec) {
+        this.engine = engine;
+        this.filepath = engine.location();
+        List<T> loaded = engine.load();
+        this.entities = loaded instanceof LazyEntityList ? loaded : new ArrayList<>(loaded);
+        rebuildIndex();
+        this.coldStore = archiveCodec == null ? null : openColdStore(archiveCodec);
+    }
+
+    private ColdStore<T> openColdStore(EntityCodec<T> archiveCodec) {
+        try {
+            return new ColdStore<>(filepath, archiveCodec);
+        } catch (IOException e) {
             e.printStackTrace();
-            return new ArrayList<>();
+            return null;
         }
     }
 
     /**
-     * Saves the current in-memory list of entities to the file specified by {@code filepath}.
-     * This method is typically called after any modification to the {@code entities} list.
+     * Hook invoked after an entity has been inserted or replaced in memory, so subclasses can
+     * maintain secondary indexes. When an entity is replaced, the hook receives the new instance
+     * and should re-index it under its ID. It is not invoked while the constructor is loading; subclasses
+     * index the loaded {@code entities} in their own constructor instead.
+     *
+     * @param entity The entity that was stored.
      */
-    protected void saveToFile() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filepath))) {
-            oos.writeObject(entities);
-        } catch (Exception e) {
-            e.printStackTrace();
+    protected void entityStored(T entity) {
+    }
+
+    /**
+     * Hook invoked after an entity has been removed from memory. Like {@link #entityStored},
+     * it is not invoked while the constructor is loading.
+     *
+     * @param entity The entity that was removed.
+     */
+    protected void entityRemoved(T entity) {
+    }
+
+    /**
+     * Rebuilds the ID index from scratch using the current contents of {@code entities}.
+     * Called after the entities are (re)loaded from file.
+     */
+    protected void rebuildIndex() {
+        idIndex.clear();
+        for (int i = 0; i < entities.size(); i++) {
+            idIndex.put(idAt(i), i);
         }
     }
 
+    /**
+     * Returns the ID of the entity at a position in {@code entities}, without decoding a lazily loaded entity.
+     *
+     * @param position The position of the entity.
+     * @return The entity's ID.
+     */
+    private String idAt(int position) {
+        return entities instanceof LazyEntityList<T> lazy ? lazy.idAt(position) : entities.get(position).getId();
+    }
+
+    /**
+     * Tells whether this repository reads its entities on demand rather than holding them all in memory.
+     *
+     * @return {@code true} if the entities were loaded lazily.
+     */
+    boolean isLazy() {
+        return entities instanceof LazyEntityList;
+    }
+
     /**
      * Saves an entity (either inserting a new one or updating an existing one).
-     * The method checks if an entity with the same ID already exists. If so, it updates it;
-     * otherwise, it adds the new entity to the list and persists the changes.
+     * The method looks up the ID in the index. If an entity with the same ID already exists,
+     * it is replaced in place; otherwise, the new entity is appended to the list. The changes are then persisted.
+     *
+     * <p>In write-behind mode the change is only recorded in memory, and the returned future
+     * completes once a background flush has persisted it. Otherwise the change is flushed by the
+     * calling thread, outside the write lock, before this method returns.</p>
      *
      * @param entity The entity to be saved or updated.
+     * @return A future that completes when the change is durable.
+     * @throws IllegalStateException If {@link #checkSavable} rejects the entity.
      */
-    public void save(T entity) {
-        String id = entity.getId();
+    public CompletableFuture<Void> save(T entity) {
+        checkSavable(entity);
+        CompletableFuture<Void> durable;
+        boolean writeBehind;
+        long stamp = lock.writeLock();
+        try {
+            upsertInMemory(entity);
+            durable = markDirty(entity.getId(), entity);
+            writeBehind = flusher != null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
 
-        for (int i = 0; i < entities.size(); i++) {
-            if (entities.get(i).getId().equals(id)) {
-                entities.set(i, entity);
-                saveToFile();
-                return;
-            }
+        if (!writeBehind) {
+            flush();
         }
+        return durable;
+    }
 
-        entities.add(entity);
-        saveToFile();
+    /**
+     * Checks that an entity may be saved, before {@link #save} stores it or a {@link UnitOfWork}
+     * registers it. Accepts every entity unless a subclass overrides it.
+     *
+     * @param entity The entity about to be saved.
+     * @throws IllegalStateException If the entity may not be saved.
+     */
+    protected void checkSavable(T entity) {
     }
 
     /**
      * Retrieves an entity by its unique ID.
      *
+     * <p>If the entities are all in memory, the lookup is first tried without locking and only
+     * repeated under the read lock if a write overlapped it. A lazily loaded repository may decode
+     * the entity from its file and cache it, which must never overlap a write, so it always takes
+     * the read lock.</p>
+     *
      * @param id The unique ID string of the entity to find.
      * @return The found entity, or {@code null} if no entity with the given ID exists.
      */
     public T findById(String id) {
-        return entities.stream()
-                .filter(entity -> entity.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        long stamp = isLazy() ? 0 : lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T found = lookup(id);
+                if (lock.validate(stamp)) return found;
+            } catch (RuntimeException e) {
+                // a write overlapped the read and left the structures mid-update; retry under the read lock
+            }
+        }
+        return read(() -> lookup(id));
+    }
+
+    private T lookup(String id) {
+        Integer position = idIndex.get(id);
+        return position == null ? null : entities.get(position);
+    }
+
+    /**
+     * Runs a query under the read lock, excluding writers but not other readers.
+     * Subclasses use this for queries over their secondary indexes.
+     *
+     * @param query The query to run.
+     * @param <R> The query's result type.
+     * @return The query's result.
+     */
+    protected <R> R read(Supplier<R> query) {
+        long stamp = lock.readLock();
+        try {
+            return query.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
     /**
      * Deletes a specified entity from the repository and persists the change.
+     * As with {@link #save(Serializable)}, persistence is deferred in write-behind mode.
      *
      * @param entity The entity instance to be deleted.
+     * @return A future that completes when the change is durable.
+     */
+    public CompletableFuture<Void> delete(T entity) {
+        CompletableFuture<Void> durable;
+        boolean writeBehind;
+        long stamp = lock.writeLock();
+        try {
+            if (!removeInMemory(entity.getId())) return CompletableFuture.completedFuture(null);
+            durable = markDirty(entity.getId(), null);
+            writeBehind = flusher != null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        if (!writeBehind) {
+            flush();
+        }
+        return durable;
+    }
+
+    /**
+     * Applies several mutations under a single write lock and persists them as one batch, so
+     * readers never see only part of them. Used by {@link UnitOfWork}, which flushes afterwards.
+     *
+     * @param mutations The latest state of each entity to save keyed by ID, or {@code null} to delete it.
+     * @return A future that completes when the changes are durable.
+     */
+    CompletableFuture<Void> applyAll(Map<String, T> mutations) {
+        CompletableFuture<Void> durable;
+        long stamp = lock.writeLock();
+        try {
+            for (Map.Entry<String, T> mutation : mutations.entrySet()) {
+                if (mutation.getValue() == null) {
+                    removeInMemory(mutation.getKey());
+                } else {
+                    upsertInMemory(mutation.getValue());
+                }
+                markDirty(mutation.getKey(), mutation.getValue());
+            }
+            durable = pendingFlush;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return durable;
+    }
+
+    /**
+     * Moves every entity matching a predicate to the cold tier. The entities are written to a new
+     * compressed segment, which is forced to the device, and then removed from memory (and from the
+     * subclass indexes) and deleted from the engine like any other deleted entity. A crash between
+     * the two steps leaves an entity in both tiers, where the hot copy shadows the archived one.
+     *
+     * <p>The entities are chosen from the {@link #snapshot()} without a lock, so the predicate may
+     * look up other entities, including archived ones. Writing and removing them then runs under the
+     * write lock, skipping any entity that was replaced or removed in the meantime, so no save can
+     * slip in between writing an entity and removing it. An archived entity that is saved again
+     * afterwards simply returns to the hot tier. Does nothing if the repository has no cold tier.</p>
+     *
+     * @param cold Tells whether an entity is no longer in use.
+     * @return The number of entities archived.
+     */
+    public int archive(Predicate<? super T> cold) {
+        if (coldStore == null) return 0;
+
+        List<T> chosen = new ArrayList<>();
+        for (T entity : snapshot()) {
+            if (cold.test(entity)) chosen.add(entity);
+        }
+        if (chosen.isEmpty()) return 0;
+
+        List<T> archived = new ArrayList<>();
+        boolean writeBehind;
+        long stamp = lock.writeLock();
+        try {
+            for (T entity : chosen) {
+                if (lookup(entity.getId()) == entity) archived.add(entity);
+            }
+            if (archived.isEmpty()) return 0;
+
+            coldStore.archive(archived);
+            removeAllInMemory(archived);
+            for (T entity : archived) {
+                markDirty(entity.getId(), null);
+            }
+            writeBehind = flusher != null;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        coldStore.forget(archived);
+
+        if (!writeBehind) {
+            flush();
+        }
+        return archived.size();
+    }
+
+    /**
+     * Looks up an archived entity by its ID. Entities in memory are not returned; callers that
+     * need either tier try {@link #findById} first.
+     *
+     * @param id The unique ID string of the entity to find.
+     * @return The archived entity, with its references re-attached by the archive linker,
+     *         or {@code null} if none has that ID.
+     */
+    public T findArchived(String id) {
+        if (coldStore == null) return null;
+        try {
+            return coldStore.find(id);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Tells whether an entity is archived, from the IDs the cold tier keeps in memory, so without
+     * reading any segment. An archived entity that has since been saved back into memory is still
+     * reported, so callers that need to know which tier is current try {@link #findById} first.
+     *
+     * @param id The unique ID string of the entity.
+     * @return {@code true} if the cold tier holds the entity.
+     */
+    public boolean isArchived(String id) {
+        return coldStore != null && coldStore.contains(id);
+    }
+
+    /**
+     * Retrieves every archived entity that has not since been saved back into memory, by reading
+     * all of the cold tier. Meant for reports that ask for archived entities explicitly.
+     *
+     * @return A new list of the archived entities.
+     */
+    public ArrayList<T> findAllArchived() {
+        if (coldStore == null) return new ArrayList<>();
+        try {
+            return new ArrayList<>(coldStore.findAll(id -> findById(id) != null));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Sets the linker that re-attaches the references of each entity read from the cold tier,
+     * since archived entities, like loaded ones, only hold the IDs of the entities they refer to.
+     *
+     * @param linker Re-attaches an archived entity's references.
+     */
+    public void setArchiveLinker(Consumer<? super T> linker) {
+        if (coldStore != null) {
+            coldStore.setLinker(linker);
+        }
+    }
+
+    /**
+     * Switches this repository to write-behind mode. From then on, {@code save} and {@code delete}
+     * only update memory, and a daemon thread persists the dirty entities every
+     * {@code flushIntervalMillis}, or sooner once {@code maxPendingWrites} mutations are waiting.
+     * A JVM shutdown hook flushes whatever is still pending when the programme exits.
+     *
+     * @param flushIntervalMillis The maximum time a mutation waits before being flushed.
+     * @param maxPendingWrites The number of pending mutations that triggers an early flush.
+     * @param fsync {@code true} to force each batch to the storage device, surviving power loss
+     *              rather than only a crash of the programme.
+     */
+    public void enableWriteBehind(long flushIntervalMillis, int maxPendingWrites, boolean fsync) {
+        long stamp = lock.writeLock();
+        try {
+            if (flusher != null) return;
+
+            this.maxPendingWrites = maxPendingWrites;
+            this.fsyncOnFlush = fsync;
+            this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "repository-flusher " + filepath);
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+    }
+
+    /**
+     * Persists every pending mutation in one batch and completes the futures handed out for
+     * them. Does nothing if no mutations are pending. If another flush is in progress, waits
+     * for it first, so on return every mutation made before the call is durable.
+     *
+     * @return A future that completes once the flushed mutations are durable.
+     */
+    public CompletableFuture<Void> flush() {
+        synchronized (flushLock) {
+            MutationBatch<T> batch;
+            CompletableFuture<Void> done;
+            long stamp = lock.writeLock();
+            try {
+                batch = pendingWrites;
+                done = pendingFlush;
+                pendingWrites = new MutationBatch<>();
+                pendingFlush = new CompletableFuture<>();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            if (batch.isEmpty()) {
+                done.complete(null);
+                return done;
+            }
+
+            try {
+                for (String id : batch.deletedFirst()) {
+                    engine.delete(id);
+                }
+                for (Map.Entry<String, T> mutation : batch.latest().entrySet()) {
+                    if (mutation.getValue() == null) {
+                        engine.delete(mutation.getKey());
+                    } else {
+                        engine.upsert(mutation.getValue());
+                    }
+                }
+                engine.sync(this::snapshot, fsyncOnFlush);
+                done.complete(null);
+            } catch (Exception e) {
+                e.printStackTrace();
+                done.completeExceptionally(e);
+            }
+            return done;
+        }
+    }
+
+    /**
+     * Flushes any pending write-behind mutations, stops the background flusher and closes the
+     * storage engine. Safe to call more than once.
+     */
+    public void close() {
+        ScheduledExecutorService stopping;
+        long stamp = lock.writeLock();
+        try {
+            stopping = flusher;
+            flusher = null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (stopping != null) {
+            stopping.shutdown();
+        }
+        flush();
+        synchronized (flushLock) {
+            try {
+                engine.close();
+                if (coldStore != null) coldStore.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Records a mutation for the next flush, coalescing it with any earlier mutation of the
+     * same entity. Because only the latest state of each ID is written, concurrent writers
+     * flushing in a different order than they mutated still leave the file matching memory.
+     * Always called while holding the write lock.
+     *
+     * @param id The ID of the mutated entity.
+     * @param entity The entity's latest state, or {@code null} if it was deleted.
+     * @return A future that completes when the next flush has persisted the mutation.
+     */
+    private CompletableFuture<Void> markDirty(String id, T entity) {
+        if (entity == null) {
+            pendingWrites.delete(id);
+        } else {
+            pendingWrites.upsert(id, entity);
+        }
+        if (flusher != null && pendingWrites.size() >= maxPendingWrites) {
+            flusher.execute(this::flush);
+        }
+        return pendingFlush;
+    }
+
+    /**
+     * Inserts or replaces an entity in the in-memory list and index, without persisting it.
+     *
+     * @param entity The entity to insert or replace.
+     */
+    private void upsertInMemory(T entity) {
+        String id = entity.getId();
+        Integer position = idIndex.get(id);
+
+        if (position != null) {
+            if (entities.set(position, entity) != entity) invalidateSnapshot();
+        } else {
+            idIndex.put(id, entities.size());
+            entities.add(entity);
+            invalidateSnapshot();
+        }
+        entityStored(entity);
+    }
+
+    /**
+     * Removes an entity from the in-memory list and index, without persisting the change.
+     * Entities stored after the removed one shift down by one, so their index entries are updated as well.
+     *
+     * @param id The ID of the entity to remove.
+     * @return {@code true} if an entity with that ID was present.
+     */
+    private boolean removeInMemory(String id) {
+        Integer position = idIndex.remove(id);
+        if (position == null) return false;
+
+        T removed = entities.remove((int) position);
+        for (int i = position; i < entities.size(); i++) {
+            idIndex.put(idAt(i), i);
+        }
+        invalidateSnapshot();
+        entityRemoved(removed);
+        return true;
+    }
+
+    /**
+     * Removes several entities from the in-memory list and index at once, without persisting the
+     * change. An in-memory list is compacted and re-indexed in one pass, rather than once per entity.
+     *
+     * @param removed The entities to remove; each must be present.
      */
-    public void delete(T entity) {
-        entities.remove(entity);
-        saveToFile();
+    private void removeAllInMemory(Collection<T> removed) {
+        Set<String> ids = new HashSet<>();
+        for (T entity : removed) {
+            ids.add(entity.getId());
+        }
+        if (entities instanceof ArrayList<T> list) {
+            list.removeIf(entity -> ids.contains(entity.getId()));
+        } else {
+            for (int i = entities.size() - 1; i >= 0; i--) {
+                if (ids.contains(idAt(i))) entities.remove(i);
+            }
+        }
+        rebuildIndex();
+        invalidateSnapshot();
+        for (T entity : removed) {
+            entityRemoved(entity);
+        }
     }
 
 
     /**
      * Retrieves all entities currently managed by the repository.
+     * Callers that only iterate should prefer {@link #snapshot()}, which does not copy.
      *
      * @return A new {@code ArrayList} containing all entities.
      */
     public ArrayList<T> findAll() {
-        return new ArrayList<>(entities);
+        return new ArrayList<>(snapshot());
+    }
+
+    /**
+     * Returns an immutable view of all entities, in the same order as {@link #findAll()}.
+     *
+     * <p>The view is copied at most once per {@link #version()}: every reader in between shares it
+     * without copying or locking, and a later write never changes a view that has already been
+     * handed out. Saving an entity instance that is already stored (the usual update path) does
+     * not start a new version, since the view holds the same instance.</p>
+     *
+     * <p>For a lazily loaded repository, the view decodes entities as they are accessed, and
+     * iterating over it (or streaming it) reads the file sequentially without keeping what it
+     * has read, so callers that filter all entities do not need them all in memory.</p>
+     *
+     * @return An unmodifiable list of all entities.
+     */
+    public List<T> snapshot() {
+        List<T> view = snapshot;
+        if (view == null) {
+            long stamp = lock.readLock();
+            try {
+                view = snapshot;
+                if (view == null) {
+                    view = entities instanceof LazyEntityList<T> lazy
+                            ? lazy.freeze()
+                            : Collections.unmodifiableList(new ArrayList<>(entities));
+                    snapshot = view;
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return view;
+    }
+
+    /**
+     * Returns the current snapshot version. Two calls returning the same value are guaranteed to
+     * see the same {@link #snapshot()}.
+     *
+     * @return The number of structural changes since the repository was loaded.
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Drops the published snapshot after an entity was added, removed or replaced by another instance.
+     * Always called while holding the write lock.
+     */
+    private void invalidateSnapshot() {
+        snapshot = null;
+        version++;
     }
 
 
@@ -124,16 +705,15 @@ public class Repository<T extends Serializable & Identifiable> {
      * Computes the maximum numeric part of entity IDs that start with a given prefix.
      * This is typically used by subclasses to determine the next available ID for new entities.
      *
-     * @param prefix The ID prefix 
+     * @param prefix The ID prefix
      * @return The highest numeric ID found, or 0 if no matching IDs are found.
      */
     protected int computeMaxNumericId(String prefix) {
-        return entities.stream()
-                .map(Identifiable::getId)
+        return idIndex.keySet().stream()
                 .filter(id -> id.startsWith(prefix))
                 .map(id -> id.substring(prefix.length()))
                 .mapToInt(Integer::parseInt)
                 .max()
                 .orElse(0);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,51 @@
+package repository;
+
+import entity.Identifiable;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores all entities as one Java-serialized {@code List}, rewriting the file on every sync.
+ * This is the format the repositories have always used, so it reads existing {@code .ser} files
+ * written since the entities became {@code Externalizable}; an older file fails to load.
+ *
+ * @param <T> The type of entity stored.
+ */
+public class SerializationStorageEngine<T extends Serializable & Identifiable> extends FileStorageEngine<T> {
+
+    /**
+     * Creates an engine backed by the given file.
+     *
+     * @param filepath The path of the serialized file.
+     */
+    public SerializationStorageEngine(String filepath) {
+        super(filepath);
+    }
+
+    /**
+     * Creates an engine backed by the given file, which it compresses.
+     *
+     * @param filepath The path of the serialized file.
+     * @param compression Compresses the file, or {@code null} to write it uncompressed.
+     */
+    public SerializationStorageEngine(String filepath, Compression compression) {
+        super(filepath, compression);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected List<T> read(InputStream in) throws Exception {
+        try (ObjectInputStream ois = new ObjectInputStream(in)) {
+            return new ArrayList<>((List<T>) ois.readObject());
+        }
+    }
+
+    @Override
+    protected void write(List<T> entities, OutputStream out) throws IOException {
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(new ArrayList<>(entities));
+        oos.flush();
+    }
+}
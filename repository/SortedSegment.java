@@ -0,0 +1,319 @@
+package repository;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * An immutable file of encoded entities sorted by ID, written by an {@link LsmStorageEngine} when
+ * its memtable fills up or when it merges older segments.
+ *
+ * <p>The file holds the records in ID order, each as the ID in modified UTF-8, the record length
+ * (or {@code -1} for a deleted ID) and the encoded entity. After the records come a sparse index,
+ * holding the ID and offset of every {@value #INDEX_INTERVAL}th record, and a {@link BloomFilter}
+ * of all IDs in the segment. A fixed-size footer locates the index and ends with the magic number,
+ * so a file cut short is recognised. The index and the filter are held in memory while the
+ * segment is open; looking up an ID reads at most one block of {@value #INDEX_INTERVAL} records.</p>
+ */
+final class SortedSegment {
+    /** Marks a segment file ("IPS1"). */
+    static final int MAGIC = 0x49505331;
+
+    /** Every this many records, the index holds a record's ID and offset. */
+    static final int INDEX_INTERVAL = 16;
+
+    /** Returned by {@link #get} and {@link Cursor#record()} for an ID that was deleted. */
+    static final byte[] TOMBSTONE = new byte[0];
+
+    /** The size of the footer: the index offset, the record count and the magic number. */
+    private static final int FOOTER_SIZE = 16;
+
+    private final Path path;
+    private final long number;
+    private final FileChannel channel;
+    private final int recordCount;
+    private final long dataEnd;
+    private final String[] indexIds;
+    private final long[] indexOffsets;
+    private final BloomFilter bloom;
+
+    private SortedSegment(Path path, long number, FileChannel channel, int recordCount, long dataEnd,
+                          String[] indexIds, long[] indexOffsets, BloomFilter bloom) {
+        this.path = path;
+        this.number = number;
+        this.channel = channel;
+        this.recordCount = recordCount;
+        this.dataEnd = dataEnd;
+        this.indexIds = indexIds;
+        this.indexOffsets = indexOffsets;
+        this.bloom = bloom;
+    }
+
+    /**
+     * A sequential reader over records sorted by ID.
+     */
+    interface Cursor {
+        /**
+         * Moves to the next record.
+         *
+         * @return {@code false} if there are no more records.
+         * @throws IOException If the next record could not be read.
+         */
+        boolean next() throws IOException;
+
+        /**
+         * @return The ID of the current record.
+         */
+        String id();
+
+        /**
+         * @return The current record, or {@link #TOMBSTONE} if its ID was deleted.
+         */
+        byte[] record();
+    }
+
+    /**
+     * Opens a segment file, reading its index and filter.
+     *
+     * @param path The segment file.
+     * @param number The segment's number in its engine's manifest.
+     * @return The open segment.
+     * @throws IOException If the file could not be read or is not a complete segment.
+     */
+    static SortedSegment open(Path path, long number) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < 4 + FOOTER_SIZE) {
+                throw new StreamCorruptedException(path + " is not a complete segment");
+            }
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+            readFully(channel, footer, size - FOOTER_SIZE);
+            long dataEnd = footer.getLong(0);
+            int recordCount = footer.getInt(8);
+            if (footer.getInt(12) != MAGIC || dataEnd < 4 || dataEnd > size - FOOTER_SIZE) {
+                throw new StreamCorruptedException(path + " is not a complete segment");
+            }
+
+            ByteBuffer trailer = ByteBuffer.allocate((int) (size - FOOTER_SIZE - dataEnd));
+            readFully(channel, trailer, dataEnd);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(trailer.array()));
+            int indexSize = in.readInt();
+            String[] indexIds = new String[indexSize];
+            long[] indexOffsets = new long[indexSize];
+            for (int i = 0; i < indexSize; i++) {
+                indexIds[i] = in.readUTF();
+                indexOffsets[i] = in.readLong();
+            }
+            BloomFilter bloom = BloomFilter.read(in);
+            return new SortedSegment(path, number, channel, recordCount, dataEnd, indexIds, indexOffsets, bloom);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the segment's number in its engine's manifest; a higher number is a newer segment.
+     *
+     * @return The segment number.
+     */
+    long number() {
+        return number;
+    }
+
+    /**
+     * Returns the number of records in the segment, including deleted IDs.
+     *
+     * @return The record count.
+     */
+    int size() {
+        return recordCount;
+    }
+
+    /**
+     * Looks up the record of an ID.
+     *
+     * @param id The ID to look up.
+     * @return The encoded entity, {@link #TOMBSTONE} if the segment records that the ID was deleted,
+     *         or {@code null} if the segment holds nothing for the ID.
+     * @throws IOException If the segment could not be read.
+     */
+    byte[] get(String id) throws IOException {
+        if (!bloom.mightContain(id)) return null;
+
+        int slot = Arrays.binarySearch(indexIds, id);
+        if (slot < 0) {
+            slot = -slot - 2;
+            if (slot < 0) return null;
+        }
+        long start = indexOffsets[slot];
+        long end = slot + 1 < indexOffsets.length ? indexOffsets[slot + 1] : dataEnd;
+        ByteBuffer block = ByteBuffer.allocate((int) (end - start));
+        readFully(channel, block, start);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(block.array()));
+        while (in.available() > 0) {
+            int order = in.readUTF().compareTo(id);
+            int length = in.readInt();
+            if (order == 0) {
+                return readRecord(in, length);
+            }
+            if (order > 0) return null;
+            if (length > 0) in.skipNBytes(length);
+        }
+        return null;
+    }
+
+    /**
+     * Returns a cursor over every record in ID order. Cursors read the file independently of each
+     * other and of {@link #get}, so a merge can run while the segment is being read.
+     *
+     * @return A cursor positioned before the first record.
+     */
+    Cursor cursor() {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new ChannelInputStream(channel, 4), 64 * 1024));
+        return new Cursor() {
+            private int read;
+            private String id;
+            private byte[] record;
+
+            @Override
+            public boolean next() throws IOException {
+                if (read == recordCount) return false;
+                id = in.readUTF();
+                record = readRecord(in, in.readInt());
+                read++;
+                return true;
+            }
+
+            @Override
+            public String id() {
+                return id;
+            }
+
+            @Override
+            public byte[] record() {
+                return record;
+            }
+        };
+    }
+
+    /**
+     * Closes the file and deletes it. Called once no manifest names the segment any more.
+     *
+     * @throws IOException If the file could not be deleted.
+     */
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException If the file could not be closed.
+     */
+    void close() throws IOException {
+        channel.close();
+    }
+
+    private static byte[] readRecord(DataInputStream in, int length) throws IOException {
+        if (length < 0) return TOMBSTONE;
+        byte[] record = new byte[length];
+        in.readFully(record);
+        return record;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) throw new EOFException();
+        }
+    }
+
+    /**
+     * Writes a segment file from records supplied in ID order. The file is forced to the device
+     * when it is finished, so it can be named in a manifest straight away.
+     */
+    static final class Writer implements Closeable {
+        private final FileOutputStream file;
+        private final CountingOutputStream counter;
+        private final DataOutputStream out;
+        private final BloomFilter bloom;
+        private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+        private final DataOutputStream indexOut = new DataOutputStream(index);
+        private int recordCount;
+        private int indexSize;
+        private String lastId;
+
+        /**
+         * Starts a segment file.
+         *
+         * @param path The file to write; any existing file is replaced.
+         * @param expectedRecords An upper bound on the number of records, used to size the filter.
+         * @throws IOException If the file could not be created.
+         */
+        Writer(Path path, int expectedRecords) throws IOException {
+            this.file = new FileOutputStream(path.toFile());
+            this.counter = new CountingOutputStream(new BufferedOutputStream(file, 64 * 1024));
+            this.out = new DataOutputStream(counter);
+            this.bloom = new BloomFilter(expectedRecords);
+            out.writeInt(MAGIC);
+        }
+
+        /**
+         * Appends a record. IDs must be appended in ascending order.
+         *
+         * @param id The entity ID.
+         * @param record The encoded entity, or {@link #TOMBSTONE} to record that the ID was deleted.
+         * @throws IOException If the record could not be written.
+         */
+        void append(String id, byte[] record) throws IOException {
+            if (lastId != null && lastId.compareTo(id) >= 0) {
+                throw new IllegalArgumentException("Segment records out of order: " + id + " after " + lastId);
+            }
+            if (recordCount % INDEX_INTERVAL == 0) {
+                indexOut.writeUTF(id);
+                indexOut.writeLong(counter.count);
+                indexSize++;
+            }
+            out.writeUTF(id);
+            if (record == TOMBSTONE) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(record.length);
+                out.write(record);
+            }
+            bloom.add(id);
+            lastId = id;
+            recordCount++;
+        }
+
+        /**
+         * Writes the index, the filter and the footer, and forces the file to the device.
+         *
+         * @throws IOException If the file could not be completed.
+         */
+        void finish() throws IOException {
+            long dataEnd = counter.count;
+            out.writeInt(indexSize);
+            index.writeTo(out);
+            bloom.write(out);
+            out.writeLong(dataEnd);
+            out.writeInt(recordCount);
+            out.writeInt(MAGIC);
+            out.flush();
+            file.getFD().sync();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
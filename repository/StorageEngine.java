@@ -0,0 +1,83 @@
+package repository;
+
+import entity.Identifiable;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The persistence strategy behind a {@link Repository}. A repository keeps its entities in memory
+ * and hands every mutation to its engine, which decides how (and when) it reaches the disk.
+ *
+ * <p>Mutations are recorded with {@link #upsert} and {@link #delete}, and only guaranteed to be
+ * durable once {@link #sync} returns. An engine may therefore write each mutation as it arrives,
+ * buffer them until the sync, or ignore them and rewrite its whole file from the repository's
+ * current contents. The repository never calls an engine from two threads at once.</p>
+ *
+ * @param <T> The type of entity stored, which must implement {@link Serializable} and {@link Identifiable}.
+ */
+public interface StorageEngine<T extends Serializable & Identifiable> {
+
+    /**
+     * Returns the path this engine stores into. Related files, such as a log or an ID
+     * high-water mark, are named after it.
+     *
+     * @return The engine's base file path.
+     */
+    String location();
+
+    /**
+     * Loads every stored entity, with all durable mutations applied.
+     *
+     * @return The stored entities in insertion order, or an empty list if nothing is stored yet.
+     */
+    List<T> load();
+
+    /**
+     * Records that an entity was inserted or replaced.
+     *
+     * @param entity The entity's latest state.
+     * @throws IOException If the mutation could not be recorded.
+     */
+    void upsert(T entity) throws IOException;
+
+    /**
+     * Records that an entity was deleted.
+     *
+     * @param id The ID of the deleted entity.
+     * @throws IOException If the mutation could not be recorded.
+     */
+    void delete(String id) throws IOException;
+
+    /**
+     * Makes every mutation recorded so far durable.
+     *
+     * @param current Supplies the repository's full current contents, for engines that rewrite
+     *                everything; engines that do not need it should not call it.
+     * @param fsync {@code true} to force the data to the storage device before returning.
+     * @throws IOException If the mutations could not be persisted.
+     */
+    void sync(Supplier<List<T>> current, boolean fsync) throws IOException;
+
+    /**
+     * Replaces everything stored with the given entities, superseding all recorded mutations.
+     *
+     * @param entities The complete contents to store.
+     * @throws IOException If the snapshot could not be written.
+     */
+    void snapshot(List<T> entities) throws IOException;
+
+    /**
+     * Releases any resources held by the engine. Apart from the {@link LazyBinaryStorageEngine},
+     * which keeps its data file open for reading entities on demand, the
+     * {@link MappedInternshipStorageEngine}, which keeps its rows mapped, and the
+     * {@link LsmStorageEngine}, which keeps its segments open and merges them in the background,
+     * the engines in this package hold no open files between calls, so closing one is cheap and it
+     * remains usable afterwards.
+     *
+     * @throws IOException If a resource could not be released.
+     */
+    void close() throws IOException;
+}
@@ -0,0 +1,201 @@
+package repository;
+
+import entity.Identifiable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects changes to several repositories and commits them together, so that either all of
+ * them reach the disk or none do.
+ *
+ * <p>Changes are only registered until {@link #commit()}. The commit first writes every change
+ * to a journal, which is moved into place atomically, so after a crash it is either complete or
+ * absent. It then applies the changes to each repository in a single batch and flushes each
+ * repository once. Finally it deletes the journal. If the programme stops before the journal is
+ * deleted, {@link #recover} replays it on the next startup.</p>
+ *
+ * <p>Each entity is recorded once per commit, however often it is registered; the last state
+ * registered wins. Commits are serialized, since they share the journal file.</p>
+ */
+public class UnitOfWork {
+    /** The default location of the commit journal. */
+    public static final String JOURNAL_PATH = "./data/uow.journal";
+
+    private static final Object COMMIT_LOCK = new Object();
+
+    private final String journalPath;
+    private final Map<Repository<?>, Changes<?>> changes = new LinkedHashMap<>();
+
+    /**
+     * The changes registered for one repository, keyed by entity ID; a {@code null} value marks a delete.
+     */
+    private static class Changes<T extends Serializable & Identifiable> {
+        private final Repository<T> repository;
+        private final Map<String, T> mutations = new LinkedHashMap<>();
+
+        private Changes(Repository<T> repository) {
+            this.repository = repository;
+        }
+    }
+
+    /**
+     * One journalled change: the repository's file path, the entity ID, and the entity's new
+     * state, or {@code null} for a delete.
+     */
+    private record JournalEntry(String location, String id, Serializable entity) implements Serializable {
+    }
+
+    /**
+     * Creates a unit of work that journals to {@link #JOURNAL_PATH}.
+     */
+    public UnitOfWork() {
+        this(JOURNAL_PATH);
+    }
+
+    /**
+     * Creates a unit of work that journals to the given file.
+     *
+     * @param journalPath The path of the commit journal.
+     */
+    public UnitOfWork(String journalPath) {
+        this.journalPath = journalPath;
+    }
+
+    /**
+     * Registers an entity to be saved when the unit of work commits.
+     *
+     * @param repository The repository the entity belongs to.
+     * @param entity The entity to save.
+     * @param <T> The entity type.
+     * @throws IllegalStateException If the repository does not accept the entity.
+     */
+    public <T extends Serializable & Identifiable> void save(Repository<T> repository, T entity) {
+        repository.checkSavable(entity);
+        changesFor(repository).mutations.put(entity.getId(), entity);
+    }
+
+    /**
+     * Registers an entity to be deleted when the unit of work commits.
+     *
+     * @param repository The repository the entity belongs to.
+     * @param entity The entity to delete.
+     * @param <T> The entity type.
+     */
+    public <T extends Serializable & Identifiable> void delete(Repository<T> repository, T entity) {
+        changesFor(repository).mutations.put(entity.getId(), null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Serializable & Identifiable> Changes<T> changesFor(Repository<T> repository) {
+        return (Changes<T>) changes.computeIfAbsent(repository, Changes::new);
+    }
+
+    /**
+     * Journals the registered changes, applies them to every repository and persists them.
+     * If the journal cannot be written, the changes are still applied, but without the
+     * all-or-nothing guarantee. Registered changes are cleared afterwards, so the unit of work
+     * can be reused.
+     */
+    public void commit() {
+        if (changes.isEmpty()) return;
+
+        synchronized (COMMIT_LOCK) {
+            boolean journalled = writeJournal();
+            for (Changes<?> repositoryChanges : changes.values()) {
+                apply(repositoryChanges);
+            }
+            for (Repository<?> repository : changes.keySet()) {
+                repository.flush().join();
+            }
+            if (journalled) {
+                deleteJournal(journalPath);
+            }
+        }
+        changes.clear();
+    }
+
+    private static <T extends Serializable & Identifiable> void apply(Changes<T> repositoryChanges) {
+        repositoryChanges.repository.applyAll(repositoryChanges.mutations);
+    }
+
+    private boolean writeJournal() {
+        List<JournalEntry> entries = new ArrayList<>();
+        for (Changes<?> repositoryChanges : changes.values()) {
+            for (Map.Entry<String, ?> mutation : repositoryChanges.mutations.entrySet()) {
+                entries.add(new JournalEntry(repositoryChanges.repository.filepath, mutation.getKey(),
+                        (Serializable) mutation.getValue()));
+            }
+        }
+
+        Path temp = Paths.get(journalPath + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(file));
+            out.writeObject(entries);
+            out.flush();
+            file.getFD().sync();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        try {
+            Files.move(temp, Paths.get(journalPath), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Completes a commit that was interrupted, by replaying its journal into the given
+     * repositories and then deleting it. Does nothing if there is no journal. Must be called
+     * after the repositories are loaded and before references between them are resolved.
+     *
+     * @param journalPath The path of the commit journal.
+     * @param repositories Every repository a unit of work may have written to.
+     */
+    @SuppressWarnings("unchecked")
+    public static void recover(String journalPath, Repository<?>... repositories) {
+        List<JournalEntry> entries;
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(journalPath)))) {
+            entries = (List<JournalEntry>) in.readObject();
+        } catch (FileNotFoundException e) {
+            return;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return;
+        }
+
+        UnitOfWork replay = new UnitOfWork(journalPath);
+        for (JournalEntry entry : entries) {
+            for (Repository<?> repository : repositories) {
+                if (repository.filepath.equals(entry.location())) {
+                    replay.register(repository, entry);
+                }
+            }
+        }
+        replay.commit();
+        deleteJournal(journalPath);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Serializable & Identifiable> void register(Repository<T> repository, JournalEntry entry) {
+        changesFor(repository).mutations.put(entry.id(), (T) entry.entity());
+    }
+
+    private static void deleteJournal(String journalPath) {
+        try {
+            Files.deleteIfExists(Paths.get(journalPath));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -1,29 +1,81 @@
 package repository;
 
+import entity.CareerCentreStaff;
 import entity.CompanyRep;
 import entity.User;
 
 import java.util.ArrayList;
-
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * A specialized repository for managing {@link User} entities.
  * It extends the generic {@link Repository} and handles the specific file
  * path for user data, as well as providing a utility method for
  * retrieving only {@link CompanyRep} instances.
+ *
+ * <p>The IDs of the {@link CareerCentreStaff} are indexed, since every notification to staff
+ * needs them. When the users are loaded lazily, the index is built from the type tags in the
+ * engine's record index, so no user is decoded for it.</p>
  */
 public class UserRepository extends Repository<User> {
 
+    /** The default file path of the user data. */
+    public static final String FILEPATH = "./data/users.ser";
+
+    /** The IDs of the career centre staff, in the order they were loaded or added. */
+    private final Set<String> staffIds = new LinkedHashSet<>();
+
     /**
      * Constructs the UserRepository, specifying the file path for user data.
-     * Entities are loaded upon instantiation.
+     * Entities are loaded upon instantiation, and mutations are appended to a log.
      */
     public UserRepository() {
-        super("./data/users.ser");
+        this(new LogStructuredStorageEngine<>(new SerializationStorageEngine<>(FILEPATH)));
+    }
+
+    /**
+     * Constructs the UserRepository on the given storage engine.
+     *
+     * @param engine The engine that persists the users.
+     */
+    public UserRepository(StorageEngine<User> engine) {
+        super(engine);
+        long stamp = lock.writeLock();
+        try {
+            LazyEntityList<User> lazy = entities instanceof LazyEntityList<User> list ? list : null;
+            for (int i = 0; i < entities.size(); i++) {
+                if (lazy != null ? lazy.tagAt(i) == EntityCodecs.STAFF : entities.get(i) instanceof CareerCentreStaff) {
+                    staffIds.add(lazy != null ? lazy.idAt(i) : entities.get(i).getId());
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
 
+    @Override
+    protected void entityStored(User user) {
+        if (user instanceof CareerCentreStaff) {
+            staffIds.add(user.getId());
+        }
+    }
+
+    @Override
+    protected void entityRemoved(User user) {
+        staffIds.remove(user.getId());
+    }
+
+    /**
+     * Returns the IDs of all career centre staff, without reading the other users.
+     *
+     * @return The staff IDs.
+     */
+    public List<String> getCareerCentreStaffIds() {
+        return read(() -> new ArrayList<>(staffIds));
+    }
 
-    
     /**
      * Retrieves all entities that are instances of {@link CompanyRep}.
      * This is necessary because the repository stores the base {@link User} type,
@@ -33,7 +85,7 @@ public class UserRepository extends Repository<User> {
      */
     public ArrayList<CompanyRep> getAllCompanyReps() {
         return new ArrayList<>(
-            entities.stream()
+            snapshot().stream()
                 .filter(user -> user instanceof CompanyRep)
                 .map(user -> (CompanyRep) user)
                 .toList()
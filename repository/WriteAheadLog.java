@@ -0,0 +1,297 @@
+package repository;
+
+import java.io.*;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * An append-only log of repository mutations, stored next to a repository's snapshot file.
+ *
+ * <p>Every {@code save} appends one upsert record holding the serialized entity, and every
+ * {@code delete} appends one delete record holding the entity ID. Records are appended in
+ * batches, one per repository flush. The cost of a write is therefore
+ * proportional to the changed entity rather than to the size of the repository. On startup the
+ * log is replayed over the last snapshot, and after a compaction it is truncated.</p>
+ *
+ * <p>Record layout: a one-byte opcode, followed by either a length-prefixed serialized entity
+ * ({@link #UPSERT}), a length-prefixed entity encoded with the log's {@link EntityCodec}
+ * ({@link #ENCODED_UPSERT}), or the entity ID as modified UTF-8 ({@link #DELETE}). A log created
+ * with a codec writes encoded upserts, and still replays serialized ones. A record that was only
+ * partially written (e.g. the programme was killed mid-append) is cut off during replay, so that
+ * later appends are not hidden behind it. A complete record that cannot be decoded is not cut
+ * off: replay fails and leaves the file as it is, since the records after it may still be
+ * valid.</p>
+ *
+ * <p>A log created with a {@link Compression} appends each batch as {@link #FRAME} records instead:
+ * the opcode, the number of records in the frame, and the length-prefixed, compressed records,
+ * up to {@value #FRAME_BYTES} bytes of them before compression. Only one frame is held in memory,
+ * and a torn frame is cut off as a whole. Frames and plain records replay the same way, whether
+ * or not the log compresses, so compression can be turned on or off without converting the log.</p>
+ *
+ * @param <T> The type of entity recorded in the log.
+ */
+class WriteAheadLog<T extends Serializable> {
+    static final byte UPSERT = 1;
+    static final byte DELETE = 2;
+    static final byte ENCODED_UPSERT = 3;
+    static final byte FRAME = 4;
+
+    /** The size of the records compressed into one frame, before compression. */
+    static final int FRAME_BYTES = 64 * 1024;
+
+    private final String logpath;
+    private final EntityCodec<T> codec;
+    private final Compression compression;
+    private int recordCount;
+
+    /**
+     * Creates a log backed by the given file, which records upserts with Java serialization.
+     * The file is created lazily on the first append.
+     *
+     * @param logpath The path of the log file.
+     */
+    WriteAheadLog(String logpath) {
+        this(logpath, null);
+    }
+
+    /**
+     * Creates a log backed by the given file, which records upserts with a codec.
+     * The file is created lazily on the first append.
+     *
+     * @param logpath The path of the log file.
+     * @param codec The codec used to encode upserted entities, or {@code null} to serialize them.
+     */
+    WriteAheadLog(String logpath, EntityCodec<T> codec) {
+        this(logpath, codec, null);
+    }
+
+    /**
+     * Creates a log backed by the given file, which records upserts with a codec and compresses
+     * the records it appends. The file is created lazily on the first append.
+     *
+     * @param logpath The path of the log file.
+     * @param codec The codec used to encode upserted entities, or {@code null} to serialize them.
+     * @param compression Compresses the appended records, or {@code null} to append them uncompressed.
+     */
+    WriteAheadLog(String logpath, EntityCodec<T> codec, Compression compression) {
+        this.logpath = logpath;
+        this.codec = codec;
+        this.compression = compression;
+    }
+
+    /**
+     * Replays every complete record in the log, in the order they were written, and truncates a
+     * torn final record.
+     *
+     * @param onUpsert Called with each entity that was saved.
+     * @param onDelete Called with the ID of each entity that was deleted.
+     * @throws IOException If a record could not be decoded (e.g. an unknown opcode, a class that
+     *                     changed incompatibly, or an encoded upsert in a log without a codec). The
+     *                     records before it have been replayed, and the file is left untouched.
+     */
+    void replay(Consumer<T> onUpsert, Consumer<String> onDelete) throws IOException {
+        recordCount = 0;
+        long validLength = 0;
+        try (CountingInputStream counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(logpath)));
+             DataInputStream in = new DataInputStream(counter)) {
+            while (true) {
+                int op = in.read();
+                if (op == -1) break;
+
+                if (op == FRAME) {
+                    recordCount += replayFrame(in, onUpsert, onDelete);
+                } else {
+                    replayRecord(op, in, onUpsert, onDelete);
+                    recordCount++;
+                }
+                validLength = counter.count;
+            }
+        } catch (FileNotFoundException e) {
+            // nothing has been logged yet
+        } catch (EOFException e) {
+            // a torn final record: everything before it has been applied
+            discardTail(validLength);
+        } catch (ClassNotFoundException | RuntimeException e) {
+            throw new IOException("Cannot replay the record at offset " + validLength + " of " + logpath, e);
+        }
+    }
+
+    /**
+     * Reads a whole frame before replaying any of its records, so a torn frame replays nothing.
+     *
+     * @return The number of records in the frame.
+     */
+    private int replayFrame(DataInputStream in, Consumer<T> onUpsert, Consumer<String> onDelete)
+            throws IOException, ClassNotFoundException {
+        int count = in.readInt();
+        byte[] compressed = new byte[in.readInt()];
+        in.readFully(compressed);
+
+        InputStream bytes = new ByteArrayInputStream(compressed);
+        try (DataInputStream records = new DataInputStream(
+                compression != null ? compression.decompress(bytes) : Compressions.decompress(bytes))) {
+            for (int i = 0; i < count; i++) {
+                int op = records.read();
+                if (op == FRAME) {
+                    throw new StreamCorruptedException("Nested log frame in " + logpath);
+                }
+                replayRecord(op, records, onUpsert, onDelete);
+            }
+        } catch (EOFException e) {
+            throw new StreamCorruptedException("Truncated log frame in " + logpath);
+        }
+        return count;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void replayRecord(int op, DataInputStream in, Consumer<T> onUpsert, Consumer<String> onDelete)
+            throws IOException, ClassNotFoundException {
+        if (op == UPSERT) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                onUpsert.accept((T) ois.readObject());
+            }
+        } else if (op == ENCODED_UPSERT && codec != null) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            onUpsert.accept(codec.read(new DataObjectInput(new ByteArrayInputStream(bytes))));
+        } else if (op == ENCODED_UPSERT) {
+            throw new StreamCorruptedException("Encoded upsert in " + logpath + ", which has no codec");
+        } else if (op == DELETE) {
+            onDelete.accept(in.readUTF());
+        } else if (op == -1) {
+            throw new EOFException();
+        } else {
+            throw new StreamCorruptedException("Unknown log opcode " + op + " in " + logpath);
+        }
+    }
+
+    /**
+     * Truncates the log file to the given length if it is longer, dropping a torn final record.
+     *
+     * @param validLength The length of the log up to the end of the last complete record.
+     */
+    private void discardTail(long validLength) {
+        try (RandomAccessFile file = new RandomAccessFile(logpath, "rw")) {
+            if (file.length() > validLength) {
+                file.setLength(validLength);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Appends a batch of mutations in a single write: first a delete for each entity that was
+     * deleted and saved again, then the latest state of every mutated entity.
+     *
+     * @param batch The coalesced mutations to append.
+     * @param fsync {@code true} to force the records to the storage device before returning.
+     * @throws IOException If the records could not be written.
+     */
+    void appendBatch(MutationBatch<T> batch, boolean fsync) throws IOException {
+        FileOutputStream file = new FileOutputStream(logpath, true);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            FrameWriter frame = compression != null ? new FrameWriter(out) : null;
+            DataOutputStream records = frame != null ? frame.records : out;
+            for (String id : batch.deletedFirst()) {
+                writeDelete(records, id);
+                if (frame != null) frame.recordWritten();
+            }
+            for (Map.Entry<String, T> mutation : batch.latest().entrySet()) {
+                if (mutation.getValue() == null) {
+                    writeDelete(records, mutation.getKey());
+                } else {
+                    writeUpsert(records, mutation.getValue());
+                }
+                if (frame != null) frame.recordWritten();
+            }
+            if (frame != null) frame.write();
+            out.flush();
+            if (fsync) {
+                file.getFD().sync();
+            }
+        }
+        recordCount += batch.deletedFirst().size() + batch.size();
+    }
+
+    private void writeUpsert(DataOutputStream out, T entity) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        if (codec != null) {
+            DataObjectOutput encoded = new DataObjectOutput(buffer);
+            codec.write(entity, encoded);
+            encoded.flush();
+            out.writeByte(ENCODED_UPSERT);
+            out.writeInt(buffer.size());
+            buffer.writeTo(out);
+            return;
+        }
+        try (ObjectOutputStream oos = new ObjectOutputStream(buffer)) {
+            oos.writeObject(entity);
+        }
+        out.writeByte(UPSERT);
+        out.writeInt(buffer.size());
+        buffer.writeTo(out);
+    }
+
+    private void writeDelete(DataOutputStream out, String id) throws IOException {
+        out.writeByte(DELETE);
+        out.writeUTF(id);
+    }
+
+    /**
+     * Collects records into frames, and appends each frame once it holds {@link #FRAME_BYTES}.
+     */
+    private final class FrameWriter {
+        private final DataOutputStream out;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final DataOutputStream records = new DataOutputStream(buffer);
+        private int count;
+
+        FrameWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void recordWritten() throws IOException {
+            count++;
+            if (buffer.size() >= FRAME_BYTES) {
+                write();
+            }
+        }
+
+        /** Appends the records collected so far as one frame, if there are any. */
+        void write() throws IOException {
+            if (count == 0) return;
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(buffer.size() / 2);
+            try (OutputStream compressing = compression.compress(compressed)) {
+                buffer.writeTo(compressing);
+            }
+            out.writeByte(FRAME);
+            out.writeInt(count);
+            out.writeInt(compressed.size());
+            compressed.writeTo(out);
+            buffer.reset();
+            count = 0;
+        }
+    }
+
+    /**
+     * Discards all records. Called once their effects have been captured in a new snapshot.
+     *
+     * @throws IOException If the log file could not be truncated.
+     */
+    void truncate() throws IOException {
+        new FileOutputStream(logpath).close();
+        recordCount = 0;
+    }
+
+    /**
+     * Returns the number of records currently in the log.
+     *
+     * @return The record count since the last truncation.
+     */
+    int size() {
+        return recordCount;
+    }
+}
@@ -0,0 +1,116 @@
+package repository;
+
+import entity.Internship;
+import entity.InternshipApplication;
+import entity.Student;
+import entity.enums.ApplicationStatus;
+import entity.enums.Major;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static repository.Checks.checkEquals;
+
+/**
+ * Checks the secondary indexes of the {@link InternshipApplicationRepository} after random
+ * applications, deletions and status changes, some saved on the stored instance and some on a
+ * new one with the same ID, as the controllers do. A student's or an internship's applications
+ * must come back in the order of {@code findAll()}, i.e. the order they were first saved, however
+ * often they were saved again; the status index and the per-student counts must match the
+ * applications' current states.
+ *
+ * <p>Run with {@code java repository.ApplicationIndexTest [seed]}.</p>
+ */
+public class ApplicationIndexTest {
+    private static final int OPERATIONS = 3_000;
+    private static final int STUDENTS = 12;
+    private static final int INTERNSHIPS = 10;
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+        Random random = new Random(seed);
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < STUDENTS; i++) {
+            students.add(new Student("U" + i, "Student " + i, "password", 1 + i % 4, Major.values()[i % Major.values().length]));
+        }
+        List<Internship> internships = new ArrayList<>();
+        for (int i = 0; i < INTERNSHIPS; i++) {
+            internships.add(Checks.internship("INT" + i, i));
+        }
+
+        String path = Checks.tempDir("application-index-test") + "internshipApplications.ser";
+        InternshipApplicationRepository repository = new InternshipApplicationRepository(new SerializationStorageEngine<>(path));
+        ApplicationStatus[] statuses = ApplicationStatus.values();
+        int next = 0;
+        for (int operation = 0; operation < OPERATIONS; operation++) {
+            List<InternshipApplication> stored = repository.findAll();
+            int choice = random.nextInt(10);
+            if (choice < 3 || stored.isEmpty()) {
+                Student student = students.get(random.nextInt(STUDENTS));
+                Internship internship = internships.get(random.nextInt(INTERNSHIPS));
+                if (!repository.hasApplied(student.getId(), internship.getId())) {
+                    repository.save(new InternshipApplication(String.format("APP%05d", next++), internship, student));
+                }
+            } else if (choice < 6) {
+                InternshipApplication application = stored.get(random.nextInt(stored.size()));
+                application.setApplicationStatus(statuses[random.nextInt(statuses.length)]);
+                application.setOfferAccepted(application.getApplicationStatus() == ApplicationStatus.SUCCESSFUL && random.nextBoolean());
+                repository.save(application);
+            } else if (choice < 9) {
+                InternshipApplication application = stored.get(random.nextInt(stored.size()));
+                InternshipApplication copy = new InternshipApplication(application.getId(), application.getInternship(),
+                        application.getStudent());
+                copy.setApplicationStatus(statuses[random.nextInt(statuses.length)]);
+                repository.save(copy);
+            } else {
+                repository.delete(stored.get(random.nextInt(stored.size())));
+            }
+            verify(repository, students, internships, "after operation " + operation);
+        }
+
+        checkEquals(List.of(), repository.checkStudentTallies(), "counts corrected by a rebuild");
+        verify(repository, students, internships, "after a rebuild");
+        repository.close();
+        System.out.println("ApplicationIndexTest passed: " + OPERATIONS + " operations, " + next + " applications saved");
+    }
+
+    private static void verify(InternshipApplicationRepository repository, List<Student> students,
+                               List<Internship> internships, String when) {
+        List<InternshipApplication> all = repository.findAll();
+        for (Student student : students) {
+            String id = student.getId();
+            checkEquals(ids(all, a -> id.equals(a.getStudentId())), ids(repository.findByStudentId(id), a -> true),
+                    "applications of " + id + " " + when);
+            long active = all.stream().filter(a -> id.equals(a.getStudentId()) && !a.getOfferAccepted()
+                    && switch (a.getApplicationStatus()) {
+                        case PENDING, PENDING_WITHDRAWAL, SUCCESSFUL -> true;
+                        default -> false;
+                    }).count();
+            checkEquals((int) active, repository.countActiveByStudentId(id), "active applications of " + id + " " + when);
+            checkEquals(all.stream().anyMatch(a -> id.equals(a.getStudentId()) && a.getOfferAccepted()),
+                    repository.hasAcceptedOffer(id), "accepted offer of " + id + " " + when);
+        }
+        for (Internship internship : internships) {
+            String id = internship.getId();
+            checkEquals(ids(all, a -> id.equals(a.getInternshipId())), ids(repository.findByInternshipId(id), a -> true),
+                    "applications for " + id + " " + when);
+        }
+        for (ApplicationStatus status : ApplicationStatus.values()) {
+            List<String> expected = ids(all, a -> a.getApplicationStatus() == status);
+            List<String> found = ids(repository.findByStatus(status), a -> true);
+            expected.sort(null);
+            found.sort(null);
+            checkEquals(expected, found, status + " applications " + when);
+        }
+    }
+
+    private static List<String> ids(List<InternshipApplication> applications, Predicate<InternshipApplication> filter) {
+        List<String> ids = new ArrayList<>();
+        for (InternshipApplication application : applications) {
+            if (filter.test(application)) ids.add(application.getId());
+        }
+        return ids;
+    }
+}
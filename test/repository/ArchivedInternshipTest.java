@@ -0,0 +1,80 @@
+package repository;
+
+import entity.Internship;
+import entity.InternshipApplication;
+
+import static repository.Checks.check;
+import static repository.Checks.checkEquals;
+
+/**
+ * Checks that an application whose internship was archived resolves it once and keeps the
+ * instance, and that the archived internship cannot be saved back into memory, either directly or
+ * through a {@link UnitOfWork}, also once the repository is opened again and only knows the
+ * archived IDs from the cold segments' indexes.
+ *
+ * <p>Run with {@code java repository.ArchivedInternshipTest}.</p>
+ */
+public class ArchivedInternshipTest {
+
+    public static void main(String[] args) {
+        String dir = Checks.tempDir("archived-test");
+        UserRepository users = new UserRepository(new SerializationStorageEngine<>(dir + "users.ser"));
+        InternshipRepository internships = new InternshipRepository(new SerializationStorageEngine<>(dir + "internships.ser"));
+        InternshipApplicationRepository applications = new InternshipApplicationRepository(
+                new SerializationStorageEngine<>(dir + "internshipApplications.ser"));
+
+        Internship archived = Checks.internship("INT1", 1);
+        Internship hot = Checks.internship("INT2", 2);
+        internships.save(archived);
+        internships.save(hot);
+        applications.save(new InternshipApplication("APP1", archived, null));
+        checkEquals(1, internships.archive(internship -> internship.getId().equals("INT1")), "internships archived");
+        ReferenceResolver.resolve(users, internships, applications);
+
+        InternshipApplication application = applications.findById("APP1");
+        Internship resolved = application.getInternship();
+        check(resolved != null, "the archived internship was not resolved");
+        checkEquals("INT1", resolved.getId(), "resolved internship");
+        check(application.getInternship() == resolved, "the application read its archived internship again");
+
+        boolean rejected = false;
+        try {
+            internships.save(resolved);
+        } catch (IllegalStateException e) {
+            rejected = true;
+        }
+        check(rejected, "an archived internship was saved");
+        rejected = false;
+        try {
+            new UnitOfWork(dir + "uow.journal").save(internships, resolved);
+        } catch (IllegalStateException e) {
+            rejected = true;
+        }
+        check(rejected, "an archived internship was registered with a unit of work");
+        check(internships.findById("INT1") == null, "the archived internship is back in memory");
+        check(internships.isArchived("INT1"), "the archived internship is not known to be archived");
+        check(!internships.isArchived("INT2") && !internships.isArchived("INT3"), "an internship in memory or a new one is archived");
+
+        hot.setNumOfSlots(5);
+        internships.save(hot);
+        checkEquals(5, internships.findById("INT2").getNumOfSlots(), "slots of an internship in memory");
+
+        applications.close();
+        internships.close();
+        users.close();
+
+        internships = new InternshipRepository(new SerializationStorageEngine<>(dir + "internships.ser"));
+        check(internships.isArchived("INT1"), "the archived internship is not known to be archived after reopening");
+        rejected = false;
+        try {
+            internships.save(Checks.internship("INT1", 1));
+        } catch (IllegalStateException e) {
+            rejected = true;
+        }
+        check(rejected, "an archived internship was saved after reopening");
+        internships.save(Checks.internship("INT3", 3));
+        check(internships.findById("INT3") != null, "a new internship was not saved");
+        internships.close();
+        System.out.println("ArchivedInternshipTest passed");
+    }
+}
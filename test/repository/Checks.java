@@ -0,0 +1,120 @@
+package repository;
+
+import entity.Identifiable;
+import entity.Internship;
+import entity.enums.InternshipLevel;
+import entity.enums.InternshipStatus;
+import entity.enums.Major;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Assertions and fixtures shared by the runnable tests under {@code test/}, which need no test
+ * framework: each test is a class with a {@code main} method that throws on the first failed check.
+ */
+final class Checks {
+
+    private Checks() {
+    }
+
+    static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    static void checkEquals(Object expected, Object actual, String message) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(message + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    /**
+     * Checks that a repository's ID index matches its entity list: every entity is indexed at its
+     * own position and the index holds no other entries. Takes the read lock, so it may run while
+     * other threads write.
+     */
+    static <T extends Serializable & Identifiable> void checkIndex(Repository<T> repository, String when) {
+        repository.read(() -> {
+            checkEquals(repository.entities.size(), repository.idIndex.size(), "index size " + when);
+            for (int i = 0; i < repository.entities.size(); i++) {
+                checkEquals(i, repository.idIndex.get(repository.entities.get(i).getId()), "indexed position " + when);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Creates an empty directory for a test's data files, deleted when the JVM exits.
+     *
+     * @param name A prefix for the directory name.
+     * @return The directory, with a trailing separator so file names can be appended.
+     */
+    static String tempDir(String name) {
+        try {
+            Path dir = Files.createTempDirectory(name);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> deleteRecursively(dir)));
+            return dir + "/";
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns a factory for every storage engine that can store internships, by name, each
+     * creating an engine with its default settings over the file at the path it is given.
+     */
+    static Map<String, Function<String, StorageEngine<Internship>>> internshipEngines() {
+        Map<String, Function<String, StorageEngine<Internship>>> engines = new LinkedHashMap<>();
+        engines.put("serialization", SerializationStorageEngine::new);
+        engines.put("binary", path -> new BinaryStorageEngine<>(path, EntityCodecs.internships()));
+        engines.put("log-structured", path -> new LogStructuredStorageEngine<>(new SerializationStorageEngine<>(path)));
+        engines.put("lazy-binary", path -> new LazyBinaryStorageEngine<>(path, EntityCodecs.internships()));
+        engines.put("mapped", MappedInternshipStorageEngine::new);
+        engines.put("lsm", path -> new LsmStorageEngine<>(path, EntityCodecs.internships()));
+        return engines;
+    }
+
+    /**
+     * Returns an approved, visible internship with no company representative, whose fields all
+     * derive from a seed so that two internships with the same ID and seed are equal field by field.
+     */
+    static Internship internship(String id, int seed) {
+        Internship internship = new Internship(id, "Title " + seed, "Description " + seed,
+                InternshipLevel.values()[seed % InternshipLevel.values().length],
+                Major.values()[seed % Major.values().length],
+                new Date(1_700_000_000_000L + seed * 86_400_000L), new Date(1_700_000_000_000L + (seed + 30) * 86_400_000L),
+                InternshipStatus.APPROVED, "Company " + seed % 17, null, 1 + seed % 10);
+        internship.setVisibility(true);
+        return internship;
+    }
+
+    /**
+     * Describes every persisted field of an internship, so two internships can be compared field by field.
+     */
+    static String describe(Internship internship) {
+        return internship.getId() + "|" + internship.getInternshipTitle() + "|" + internship.getDescription()
+                + "|" + internship.getLevel() + "|" + internship.getPreferredMajor()
+                + "|" + internship.getAppOpenDate() + "|" + internship.getAppCloseDate()
+                + "|" + internship.getCompanyName() + "|" + internship.getCompRepId()
+                + "|" + internship.getInternshipStatus() + "|" + internship.getNumOfSlots()
+                + "|" + internship.getVisibility() + "|" + internship.getInternshipApplicationIds();
+    }
+}
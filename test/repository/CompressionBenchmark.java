@@ -0,0 +1,113 @@
+package repository;
+
+import entity.Identifiable;
+import entity.InternshipApplication;
+import entity.User;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+/**
+ * Measures what each DEFLATE level costs and saves: the bytes on disk, the time to write the file
+ * and the best of three load times, for binary snapshots of applications, internships and users,
+ * a serialized snapshot of applications, and a log of applications appended in batches of
+ * {@link #BATCH} as the {@link LogStructuredStorageEngine} appends them, with its checkpoints.
+ * Each is written uncompressed and at levels 1, 6 and 9.
+ *
+ * <p>Run with {@code java repository.CompressionBenchmark [internships]}; there are three
+ * applications per internship and a fifth as many students.</p>
+ */
+public class CompressionBenchmark {
+    private static final int BATCH = 200;
+    private static final int LOADS = 3;
+    private static final int[] LEVELS = {-1, 1, 6, 9};
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        SampleData data = SampleData.generate(count / 5, count, 3 * count, 20);
+        List<User> users = data.users();
+
+        System.out.printf("%,d internships, %,d applications, %,d users%n", count, data.applications.size(), users.size());
+        System.out.printf("  %-24s %-6s %10s %10s %10s%n", "file", "level", "size", "write", "load");
+        for (int level : LEVELS) {
+            measure("binary applications", level, data.applications,
+                    (path, compression) -> new BinaryStorageEngine<>(path, EntityCodecs.internshipApplications(), compression),
+                    false);
+        }
+        for (int level : LEVELS) {
+            measure("binary internships", level, data.internships,
+                    (path, compression) -> new BinaryStorageEngine<>(path, EntityCodecs.internships(), compression), false);
+        }
+        for (int level : LEVELS) {
+            measure("binary users", level, users,
+                    (path, compression) -> new BinaryStorageEngine<>(path, EntityCodecs.users(), compression), false);
+        }
+        for (int level : LEVELS) {
+            measure("serialized applications", level, data.applications,
+                    (path, compression) -> new SerializationStorageEngine<InternshipApplication>(path, compression), false);
+        }
+        for (int level : LEVELS) {
+            measure("log of applications", level, data.applications,
+                    (path, compression) -> new LogStructuredStorageEngine<>(
+                            new BinaryStorageEngine<>(path, EntityCodecs.internshipApplications(), compression)), true);
+        }
+    }
+
+    /**
+     * Writes the entities with an engine at one level, either as a snapshot or as logged batches,
+     * reloads them and prints the results.
+     */
+    private static <T extends Serializable & Identifiable> void measure(
+            String name, int level, List<T> entities, BiFunction<String, Compression, StorageEngine<T>> factory,
+            boolean logged) throws IOException {
+        Compression compression = level < 0 ? null : Compressions.deflate(level);
+        String dir = Checks.tempDir("compression-bench");
+        String path = dir + "entities.ser";
+
+        StorageEngine<T> engine = factory.apply(path, compression);
+        engine.load();
+        long start = System.nanoTime();
+        if (logged) {
+            for (int i = 0; i < entities.size(); i += BATCH) {
+                for (T entity : entities.subList(i, Math.min(entities.size(), i + BATCH))) {
+                    engine.upsert(entity);
+                }
+                int written = Math.min(entities.size(), i + BATCH);
+                engine.sync(() -> entities.subList(0, written), false);
+            }
+        } else {
+            engine.snapshot(entities);
+        }
+        long writeNanos = System.nanoTime() - start;
+        engine.close();
+
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < LOADS; round++) {
+            engine = factory.apply(path, compression);
+            start = System.nanoTime();
+            int loaded = engine.load().size();
+            best = Math.min(best, System.nanoTime() - start);
+            engine.close();
+            Checks.checkEquals(entities.size(), loaded, name + " loaded");
+        }
+
+        System.out.printf("  %-24s %-6s %,7d KB %7.0f ms %7.0f ms%n", name, level < 0 ? "none" : String.valueOf(level),
+                sizeOf(Paths.get(dir)) / 1024, writeNanos / 1e6, best / 1e6);
+    }
+
+    private static long sizeOf(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            long bytes = 0;
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                bytes += Files.size(file);
+            }
+            return bytes;
+        }
+    }
+}
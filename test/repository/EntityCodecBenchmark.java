@@ -0,0 +1,339 @@
+package repository;
+
+import entity.CompanyRep;
+import entity.Identifiable;
+import entity.Internship;
+import entity.InternshipApplication;
+import entity.Notification;
+import entity.Student;
+import entity.User;
+import entity.enums.ApplicationStatus;
+import entity.enums.InternshipLevel;
+import entity.enums.InternshipStatus;
+import entity.enums.Major;
+import entity.enums.RegistrationStatus;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Compares the size and speed of three encodings of the same users, internships and applications:
+ * reflective Java serialization, as the entities were stored before they encoded their own fields;
+ * Java serialization of the {@code Externalizable} entities, as the {@link SerializationStorageEngine}
+ * writes them; and the {@link EntityCodecs}, as the {@link BinaryStorageEngine} writes them.
+ *
+ * <p>The reflective format is reproduced with plain {@link Serializable} classes holding the same
+ * fields the entities held then, with references already stored as IDs. Each encoding writes
+ * every entity of a kind to one stream and reads it back; the best of several rounds is reported
+ * as entities per second. Every decoded entity is checked against the original.</p>
+ *
+ * <p>Run with {@code java repository.EntityCodecBenchmark [entitiesPerKind rounds]}.</p>
+ */
+public class EntityCodecBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        // one representative per five internships, so there are as many users as internships
+        SampleData data = SampleData.generate(count - count / 5, count, count, 12);
+        for (Student student : data.students) {
+            student.getNotifications().add(new Notification("Your application for " + student.getId() + " was received."));
+            student.getNotifications().add(new Notification("A new internship matching your major is open."));
+        }
+        List<User> users = data.users();
+
+        System.out.printf("%,d entities of each kind, best of %d rounds%n", count, rounds);
+        System.out.printf("  %-13s %-14s %8s %14s %14s%n", "entities", "format", "B/entity", "encode/s", "decode/s");
+        compare("users", users, EntityCodecs.users(), EntityCodecBenchmark::reflective, rounds);
+        compare("internships", data.internships, EntityCodecs.internships(), ReflectiveInternship::new, rounds);
+        compare("applications", data.applications, EntityCodecs.internshipApplications(), ReflectiveApplication::new, rounds);
+    }
+
+    private static <T extends Identifiable> void compare(String name, List<T> entities, EntityCodec<T> codec,
+                                                         Function<T, Serializable> reflective, int rounds) throws Exception {
+        List<Serializable> copies = new ArrayList<>();
+        for (T entity : entities) {
+            copies.add(reflective.apply(entity));
+        }
+        List<?> decoded = measure(name, "reflective", rounds, out -> writeObjects(copies, out),
+                in -> readObjects(in, copies.size()));
+        for (int i = 0; i < copies.size(); i++) {
+            Checks.checkEquals(copies.get(i).toString(), decoded.get(i).toString(), "reflective " + name + " " + i);
+        }
+        decoded = measure(name, "externalizable", rounds, out -> writeObjects(entities, out),
+                in -> readObjects(in, entities.size()));
+        for (int i = 0; i < entities.size(); i++) {
+            checkRoundTrip(entities.get(i), decoded.get(i));
+        }
+        decoded = measure(name, "binary codec", rounds, out -> {
+            DataObjectOutput data = new DataObjectOutput(out);
+            for (T entity : entities) {
+                codec.write(entity, data);
+            }
+            data.flush();
+        }, in -> {
+            DataObjectInput data = new DataObjectInput(in);
+            List<T> read = new ArrayList<>(entities.size());
+            for (int i = 0; i < entities.size(); i++) {
+                read.add(codec.read(data));
+            }
+            return read;
+        });
+        for (int i = 0; i < entities.size(); i++) {
+            checkRoundTrip(entities.get(i), decoded.get(i));
+        }
+    }
+
+    private interface Encoder {
+        void encode(OutputStream out) throws IOException;
+    }
+
+    private interface Decoder {
+        List<?> decode(InputStream in) throws Exception;
+    }
+
+    /**
+     * Encodes and decodes the entities repeatedly and prints the encoded size and best rates.
+     *
+     * @return The entities decoded in the last round.
+     */
+    private static List<?> measure(String name, String format, int rounds, Encoder encoder, Decoder decoder)
+            throws Exception {
+        long encodeBest = Long.MAX_VALUE;
+        long decodeBest = Long.MAX_VALUE;
+        byte[] encoded = null;
+        List<?> decoded = null;
+        for (int round = 0; round < rounds; round++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            long start = System.nanoTime();
+            encoder.encode(out);
+            encodeBest = Math.min(encodeBest, System.nanoTime() - start);
+            encoded = out.toByteArray();
+
+            start = System.nanoTime();
+            decoded = decoder.decode(new ByteArrayInputStream(encoded));
+            decodeBest = Math.min(decodeBest, System.nanoTime() - start);
+        }
+        int count = decoded.size();
+        System.out.printf("  %-13s %-14s %8d %,14.0f %,14.0f%n", name, format, encoded.length / count,
+                count / (encodeBest / 1e9), count / (decodeBest / 1e9));
+        return decoded;
+    }
+
+    private static void writeObjects(List<?> objects, OutputStream out) throws IOException {
+        ObjectOutputStream stream = new ObjectOutputStream(out);
+        for (Object object : objects) {
+            stream.writeObject(object);
+        }
+        stream.flush();
+    }
+
+    private static List<?> readObjects(InputStream in, int count) throws IOException, ClassNotFoundException {
+        ObjectInputStream stream = new ObjectInputStream(in);
+        List<Object> objects = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            objects.add(stream.readObject());
+        }
+        return objects;
+    }
+
+    /**
+     * Checks that a decoded entity has every persisted field of the original.
+     */
+    private static void checkRoundTrip(Object original, Object decoded) {
+        Checks.checkEquals(original.getClass(), decoded.getClass(), "decoded type");
+        if (original instanceof User user) {
+            Checks.checkEquals(reflective(user).toString(), reflective((User) decoded).toString(), "user " + user.getId());
+        } else if (original instanceof Internship internship) {
+            Checks.checkEquals(new ReflectiveInternship(internship).toString(),
+                    new ReflectiveInternship((Internship) decoded).toString(), "internship " + internship.getId());
+        } else {
+            InternshipApplication application = (InternshipApplication) original;
+            Checks.checkEquals(new ReflectiveApplication(application).toString(),
+                    new ReflectiveApplication((InternshipApplication) decoded).toString(), "application " + application.getId());
+        }
+    }
+
+    private static Serializable reflective(User user) {
+        if (user instanceof Student student) return new ReflectiveStudent(student);
+        if (user instanceof CompanyRep rep) return new ReflectiveCompanyRep(rep);
+        throw new IllegalArgumentException("No reflective copy of " + user.getClass().getName());
+    }
+
+    private static class ReflectiveUser implements Serializable {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final String userId;
+        private final String fullName;
+        private final String password;
+
+        ReflectiveUser(User user) {
+            userId = user.getId();
+            fullName = user.getFullName();
+            password = user.getPassword();
+        }
+
+        @Override
+        public String toString() {
+            return userId + "|" + fullName + "|" + password;
+        }
+    }
+
+    private static class ReflectiveNotification implements Serializable {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final String message;
+        private final Date timestamp;
+        private final boolean read;
+
+        ReflectiveNotification(Notification notification) {
+            message = notification.getMessage();
+            timestamp = notification.getTimestamp();
+            read = notification.isRead();
+        }
+
+        @Override
+        public String toString() {
+            return message + "|" + timestamp + "|" + read;
+        }
+    }
+
+    private static List<ReflectiveNotification> copy(List<Notification> notifications) {
+        List<ReflectiveNotification> copies = new ArrayList<>();
+        for (Notification notification : notifications) {
+            copies.add(new ReflectiveNotification(notification));
+        }
+        return copies;
+    }
+
+    private static class ReflectiveStudent extends ReflectiveUser {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int yearOfStudy;
+        private final Major major;
+        private final ArrayList<ReflectiveNotification> notifications;
+
+        ReflectiveStudent(Student student) {
+            super(student);
+            yearOfStudy = student.getYearOfStudy();
+            major = student.getMajor();
+            notifications = new ArrayList<>(copy(student.getNotifications()));
+        }
+
+        @Override
+        public String toString() {
+            return super.toString() + "|" + yearOfStudy + "|" + major + "|" + notifications;
+        }
+    }
+
+    private static class ReflectiveCompanyRep extends ReflectiveUser {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final RegistrationStatus registrationStatus;
+        private final int numOfInternships;
+        private final String companyName;
+        private final String department;
+        private final String position;
+        private final boolean registered;
+        private final ArrayList<ReflectiveNotification> notifications;
+
+        ReflectiveCompanyRep(CompanyRep rep) {
+            super(rep);
+            registrationStatus = rep.getRegistrationStatus();
+            numOfInternships = rep.getNumOfInternships();
+            companyName = rep.getCompanyName();
+            department = rep.getDepartment();
+            position = rep.getPosition();
+            registered = rep.isRegistered();
+            notifications = new ArrayList<>(copy(rep.getNotifications()));
+        }
+
+        @Override
+        public String toString() {
+            return super.toString() + "|" + registrationStatus + "|" + numOfInternships + "|" + companyName + "|"
+                    + department + "|" + position + "|" + registered + "|" + notifications;
+        }
+    }
+
+    private static class ReflectiveInternship implements Serializable {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final String internshipId;
+        private final int numOfSlots;
+        private final String internshipTitle;
+        private final String description;
+        private final InternshipLevel level;
+        private final Major preferredMajor;
+        private final Date appOpenDate;
+        private final Date appCloseDate;
+        private final String companyName;
+        private final String compRepId;
+        private final InternshipStatus internshipStatus;
+        private final ArrayList<String> internshipApplicationIds = new ArrayList<>();
+        private final boolean visibility;
+
+        /**
+         * Copies an internship. The application IDs come from the live applications if there
+         * are any, and otherwise from the IDs read with the internship.
+         */
+        ReflectiveInternship(Internship internship) {
+            internshipId = internship.getId();
+            numOfSlots = internship.getNumOfSlots();
+            internshipTitle = internship.getInternshipTitle();
+            description = internship.getDescription();
+            level = internship.getLevel();
+            preferredMajor = internship.getPreferredMajor();
+            appOpenDate = internship.getAppOpenDate();
+            appCloseDate = internship.getAppCloseDate();
+            companyName = internship.getCompanyName();
+            compRepId = internship.getCompRepId();
+            internshipStatus = internship.getInternshipStatus();
+            for (InternshipApplication application : internship.getInternshipApplications()) {
+                internshipApplicationIds.add(application.getId());
+            }
+            if (internshipApplicationIds.isEmpty()) {
+                internshipApplicationIds.addAll(internship.getInternshipApplicationIds());
+            }
+            visibility = internship.getVisibility();
+        }
+
+        @Override
+        public String toString() {
+            return internshipId + "|" + numOfSlots + "|" + internshipTitle + "|" + description + "|" + level + "|"
+                    + preferredMajor + "|" + appOpenDate + "|" + appCloseDate + "|" + companyName + "|" + compRepId + "|"
+                    + internshipStatus + "|" + internshipApplicationIds + "|" + visibility;
+        }
+    }
+
+    private static class ReflectiveApplication implements Serializable {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final String internshipApplicationId;
+        private final String internshipId;
+        private final String studentId;
+        private final ApplicationStatus applicationStatus;
+        private final boolean offerAccepted;
+
+        ReflectiveApplication(InternshipApplication application) {
+            internshipApplicationId = application.getId();
+            internshipId = application.getInternshipId();
+            studentId = application.getStudentId();
+            applicationStatus = application.getApplicationStatus();
+            offerAccepted = application.getOfferAccepted();
+        }
+
+        @Override
+        public String toString() {
+            return internshipApplicationId + "|" + internshipId + "|" + studentId + "|" + applicationStatus + "|" + offerAccepted;
+        }
+    }
+}
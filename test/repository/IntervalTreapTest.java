@@ -0,0 +1,172 @@
+package repository;
+
+import entity.Internship;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static repository.Checks.check;
+import static repository.Checks.checkEquals;
+
+/**
+ * Checks the {@link IntervalTreap} against a plain map of intervals: point and overlap queries
+ * after random insertions, replacements and removals, the tree's order, priorities and recorded
+ * ends after each change, and its height, also when intervals arrive in order of start. Then
+ * checks the window queries of the {@link InternshipRepository}, including those by close date,
+ * after internships are saved, have their dates edited and are deleted.
+ *
+ * <p>Run with {@code java repository.IntervalTreapTest [seed]}.</p>
+ */
+public class IntervalTreapTest {
+    private static final int OPERATIONS = 20_000;
+    private static final int IDS = 400;
+    private static final int SORTED = 100_000;
+    private static final int INTERNSHIP_OPERATIONS = 1_500;
+    private static final long DAY = 86_400_000L;
+
+    private record Interval(String id, long start, long end) {
+    }
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+        checkTreap(new Random(seed));
+        checkSortedInsertions();
+        checkRepository(new Random(seed));
+        System.out.println("IntervalTreapTest passed");
+    }
+
+    private static void checkTreap(Random random) {
+        IntervalTreap<String> treap = new IntervalTreap<>();
+        Map<String, Interval> expected = new HashMap<>();
+        for (int operation = 0; operation < OPERATIONS; operation++) {
+            String id = "I" + random.nextInt(IDS);
+            if (random.nextInt(4) == 0) {
+                checkEquals(expected.remove(id) != null, treap.remove(id), "removal of " + id);
+            } else {
+                long start = random.nextInt(10_000);
+                Interval interval = new Interval(id, start, start + random.nextInt(random.nextBoolean() ? 50 : 2_000));
+                treap.put(id, interval.start(), interval.end(), id);
+                expected.put(id, interval);
+            }
+            checkEquals(expected.size(), treap.size(), "intervals after operation " + operation);
+            int height = treap.checkStructure();
+            check(height <= maxHeight(expected.size()), "height " + height + " for " + expected.size() + " intervals");
+
+            long from = random.nextInt(11_000) - 500;
+            long to = random.nextBoolean() ? from : from + random.nextInt(1_000);
+            checkEquals(overlapping(expected, from, to), treap.overlapping(from, to),
+                    "intervals overlapping [" + from + ", " + to + "] after operation " + operation);
+        }
+    }
+
+    /**
+     * Inserts intervals in order of start, the order in which an unbalanced tree would degrade
+     * into a list, and removes every other one.
+     */
+    private static void checkSortedInsertions() {
+        IntervalTreap<String> treap = new IntervalTreap<>();
+        for (int i = 0; i < SORTED; i++) {
+            treap.put("I" + i, i, i + 10, "I" + i);
+        }
+        int height = treap.checkStructure();
+        check(height <= maxHeight(SORTED), "height " + height + " for " + SORTED + " sorted intervals");
+        for (int i = 0; i < SORTED; i += 2) {
+            treap.remove("I" + i);
+        }
+        height = treap.checkStructure();
+        check(height <= maxHeight(SORTED / 2), "height " + height + " after removing half the sorted intervals");
+        List<String> expected = new ArrayList<>();
+        for (int i = 991; i <= 1_005; i += 2) {
+            expected.add("I" + i);
+        }
+        checkEquals(expected, treap.overlapping(1_000, 1_005), "sorted intervals found");
+    }
+
+    /** A bound that a treap's height exceeds with negligible probability. */
+    private static int maxHeight(int size) {
+        return 8 + 4 * (32 - Integer.numberOfLeadingZeros(size));
+    }
+
+    private static List<String> overlapping(Map<String, Interval> intervals, long from, long to) {
+        List<Interval> found = new ArrayList<>();
+        for (Interval interval : intervals.values()) {
+            if (interval.start() <= to && interval.end() >= from) found.add(interval);
+        }
+        found.sort(Comparator.comparingLong(Interval::start).thenComparing(Interval::id));
+        List<String> ids = new ArrayList<>();
+        for (Interval interval : found) {
+            ids.add(interval.id());
+        }
+        return ids;
+    }
+
+    private static void checkRepository(Random random) {
+        String path = Checks.tempDir("interval-test") + "internships.ser";
+        InternshipRepository repository = new InternshipRepository(new SerializationStorageEngine<>(path));
+        long base = 1_700_000_000_000L;
+        for (int operation = 0; operation < INTERNSHIP_OPERATIONS; operation++) {
+            String id = "INT" + random.nextInt(150);
+            Internship stored = repository.findById(id);
+            if (stored != null && random.nextInt(5) == 0) {
+                repository.delete(stored);
+            } else {
+                // either the stored internship with its dates edited, or a new one
+                Internship internship = stored != null && random.nextBoolean() ? stored : Checks.internship(id, random.nextInt(1000));
+                long opens = base + random.nextInt(200) * DAY;
+                internship.setAppOpenDate(random.nextInt(10) == 0 ? null : new Date(opens));
+                internship.setAppCloseDate(random.nextInt(10) == 0 ? null : new Date(opens + (random.nextInt(60) - 5) * DAY));
+                repository.save(internship);
+            }
+
+            long from = base + random.nextInt(260) * DAY;
+            long to = from + random.nextInt(14) * DAY;
+            List<Internship> all = repository.findAll();
+            checkEquals(ids(all, i -> opens(i) <= closes(i) && opens(i) <= from && closes(i) >= from, Comparator.comparingLong(IntervalTreapTest::opens)),
+                    ids(repository.findWindowsOn(from), null), "windows open on day " + (from - base) / DAY);
+            checkEquals(ids(all, i -> opens(i) <= closes(i) && opens(i) <= to && closes(i) >= from, Comparator.comparingLong(IntervalTreapTest::opens)),
+                    ids(repository.findWindowsOverlapping(from, to), null), "windows overlapping a period");
+            checkEquals(ids(all, i -> i.getAppCloseDate() != null && opens(i) <= closes(i) && closes(i) >= from && closes(i) <= to,
+                            Comparator.comparingLong(IntervalTreapTest::closes)),
+                    ids(repository.findWindowsClosingBetween(from, to), null), "windows closing in a period");
+        }
+        repository.close();
+    }
+
+    private static long opens(Internship internship) {
+        return internship.getAppOpenDate() == null ? Long.MIN_VALUE : internship.getAppOpenDate().getTime();
+    }
+
+    private static long closes(Internship internship) {
+        return internship.getAppCloseDate() == null ? Long.MAX_VALUE : internship.getAppCloseDate().getTime();
+    }
+
+    /**
+     * Lists the IDs of the internships that pass a filter, sorted by the given order and then by
+     * ID, or as they are if no order is given.
+     */
+    private static List<String> ids(List<Internship> internships, Predicate<Internship> filter,
+                                    Comparator<Internship> order) {
+        List<Internship> found = new ArrayList<>();
+        for (Internship internship : internships) {
+            if (filter.test(internship)) found.add(internship);
+        }
+        if (order != null) {
+            found.sort(order.thenComparing(Internship::getId));
+        }
+        List<String> ids = new ArrayList<>();
+        for (Internship internship : found) {
+            ids.add(internship.getId());
+        }
+        return ids;
+    }
+
+    private static List<String> ids(List<Internship> internships, Comparator<Internship> order) {
+        return ids(internships, internship -> true, order);
+    }
+}
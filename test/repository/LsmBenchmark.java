@@ -0,0 +1,77 @@
+package repository;
+
+import entity.InternshipApplication;
+import entity.enums.ApplicationStatus;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Measures sustained writes of internship applications with the
+ * {@link LsmStorageEngine}, against the whole-file rewrite of the {@link BinaryStorageEngine} and
+ * against the same binary snapshot with a write-ahead log ({@link LogStructuredStorageEngine}).
+ *
+ * <p>Writes are random status changes saved through an {@link InternshipApplicationRepository}
+ * without write-behind, so each save is durable before the next; each engine is driven for the
+ * same length of time, and the rate and latency percentiles are reported.</p>
+ *
+ * <p>Run with {@code java repository.LsmBenchmark [applications seconds]}.</p>
+ */
+public class LsmBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 3;
+        SampleData data = SampleData.generate(count / 10, count / 10, count, 17);
+        List<InternshipApplication> applications = data.applications;
+
+        System.out.printf("%,d applications, saves for %.0f s per engine%n", count, seconds);
+        System.out.printf("  %-16s %10s %10s %10s %10s %10s%n", "engine", "saves/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        writes("whole file", path -> new BinaryStorageEngine<>(path, EntityCodecs.internshipApplications()),
+                applications, seconds);
+        writes("log + snapshot", path -> new LogStructuredStorageEngine<>(
+                new BinaryStorageEngine<>(path, EntityCodecs.internshipApplications())), applications, seconds);
+        writes("lsm", path -> new LsmStorageEngine<>(path, EntityCodecs.internshipApplications()), applications, seconds);
+    }
+
+    private static void writes(String name, Function<String, StorageEngine<InternshipApplication>> factory,
+                               List<InternshipApplication> applications, double seconds) throws IOException {
+        String path = Checks.tempDir("lsm-bench") + "internshipApplications.ser";
+        StorageEngine<InternshipApplication> seeding = factory.apply(path);
+        seeding.load();
+        seeding.snapshot(applications);
+        seeding.close();
+
+        InternshipApplicationRepository repository = new InternshipApplicationRepository(factory.apply(path));
+        List<InternshipApplication> stored = repository.findAll();
+        ApplicationStatus[] statuses = ApplicationStatus.values();
+        Random random = new Random(9);
+        long[] latencies = new long[1 << 20];
+        int saves = 0;
+        long end = System.nanoTime() + (long) (seconds * 1e9);
+        long began = System.nanoTime();
+        while (System.nanoTime() < end && saves < latencies.length) {
+            InternshipApplication application = stored.get(random.nextInt(stored.size()));
+            application.setApplicationStatus(statuses[random.nextInt(statuses.length)]);
+            long start = System.nanoTime();
+            repository.save(application);
+            latencies[saves++] = System.nanoTime() - start;
+        }
+        double elapsed = (System.nanoTime() - began) / 1e9;
+        repository.close();
+
+        long[] measured = Arrays.copyOf(latencies, saves);
+        System.out.printf("  %-16s %,10.0f %10.3f %10.3f %10.3f %10.1f%n", name, saves / elapsed,
+                percentile(measured, 0.5) / 1e6, percentile(measured, 0.99) / 1e6, percentile(measured, 0.999) / 1e6,
+                percentile(measured, 1) / 1e6);
+    }
+
+    private static long percentile(long[] values, double fraction) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, (int) (fraction * sorted.length))];
+    }
+}
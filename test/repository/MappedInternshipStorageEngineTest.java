@@ -0,0 +1,77 @@
+package repository;
+
+import entity.Internship;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static repository.Checks.check;
+import static repository.Checks.checkEquals;
+
+/**
+ * Checks that a row file whose header or row pointers do not fit the files fails to load with an
+ * {@link UncheckedIOException}, rather than with the buffer exceptions the mapping throws, and
+ * that the engine holds no files open afterwards.
+ *
+ * <p>Run with {@code java repository.MappedInternshipStorageEngineTest}.</p>
+ */
+public class MappedInternshipStorageEngineTest {
+    private static final int ROWS = 10;
+
+    public static void main(String[] args) throws IOException {
+        // a record pointer past the end of the heap
+        checkCorrupt("pointer", path -> {
+            int base = MappedInternshipStorageEngine.HEADER_SIZE + 3 * MappedInternshipStorageEngine.ROW_SIZE;
+            write(path, base + MappedInternshipStorageEngine.POINTER, ByteBuffer.allocate(Long.BYTES).putLong(0, Long.MAX_VALUE >>> 1));
+        });
+        // a row count beyond the rows in the file
+        checkCorrupt("row count", path -> write(path, 16, ByteBuffer.allocate(Integer.BYTES).putInt(0, 1 << 30)));
+        System.out.println("MappedInternshipStorageEngineTest passed");
+    }
+
+    private interface Corruption {
+        void apply(Path path) throws IOException;
+    }
+
+    private static void checkCorrupt(String what, Corruption corruption) throws IOException {
+        Path path = Paths.get(Checks.tempDir("mapped-test") + "internships.ser");
+        List<Internship> internships = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            internships.add(Checks.internship("INT" + i, i));
+        }
+        MappedInternshipStorageEngine engine = new MappedInternshipStorageEngine(path.toString());
+        engine.snapshot(internships);
+        engine.close();
+        checkEquals(ROWS, new MappedInternshipStorageEngine(path.toString()).load().size(), "rows before corrupting the " + what);
+
+        corruption.apply(path);
+        engine = new MappedInternshipStorageEngine(path.toString());
+        boolean failed = false;
+        try {
+            engine.load();
+        } catch (UncheckedIOException e) {
+            failed = true;
+        }
+        check(failed, "loading a corrupt " + what + " did not fail with an UncheckedIOException");
+        boolean closed = false;
+        try {
+            engine.upsert(internships.get(0));
+        } catch (IOException e) {
+            closed = true;
+        }
+        check(closed, "the engine accepted a mutation after failing to load a corrupt " + what);
+    }
+
+    private static void write(Path path, long position, ByteBuffer bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(bytes, position);
+        }
+    }
+}
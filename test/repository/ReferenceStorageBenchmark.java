@@ -0,0 +1,140 @@
+package repository;
+
+import entity.Internship;
+import entity.InternshipApplication;
+import entity.User;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compares the size and load time of the data files when every file carries the whole object
+ * graph it reaches, as before cross-repository references were stored as IDs, with the current
+ * files, which hold only their own entities and are linked by {@link ReferenceResolver}.
+ *
+ * <p>The earlier format is reproduced by Java-serializing, into each file, every entity reachable
+ * from that file's entities: the internship file also holds the applications, students and
+ * representatives its internships reach, and the application file the internships, their other
+ * applications, students and representatives. Java serialization wrote each reachable object once
+ * per file, so this has the same size profile. Both formats are timed deserializing their three
+ * files; the current format is also timed through the three repositories, which build their
+ * indexes as they load, and the resolver.</p>
+ *
+ * <p>Run with {@code java repository.ReferenceStorageBenchmark [students internships applications rounds]}.</p>
+ */
+public class ReferenceStorageBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int internshipCount = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        int applicationCount = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        SampleData data = SampleData.generate(students, internshipCount, applicationCount, 4);
+        String dir = Checks.tempDir("reference-bench");
+
+        String[] embedded = {dir + "embedded-users.ser", dir + "embedded-internships.ser", dir + "embedded-applications.ser"};
+        writeObjects(embedded[0], new ArrayList<>(data.users()));
+        writeObjects(embedded[1], reachable(new ArrayList<>(data.internships)));
+        writeObjects(embedded[2], reachable(new ArrayList<>(data.applications)));
+
+        String[] linked = {dir + "users.ser", dir + "internships.ser", dir + "internshipApplications.ser"};
+        new SerializationStorageEngine<User>(linked[0]).snapshot(data.users());
+        new SerializationStorageEngine<Internship>(linked[1]).snapshot(data.internships);
+        new SerializationStorageEngine<InternshipApplication>(linked[2]).snapshot(data.applications);
+
+        System.out.printf("%,d students, %,d internships, %,d applications%n", students, internshipCount, applicationCount);
+        String[] names = {"users", "internships", "applications"};
+        long embeddedTotal = 0;
+        long linkedTotal = 0;
+        for (int i = 0; i < names.length; i++) {
+            long before = Files.size(Paths.get(embedded[i]));
+            long after = Files.size(Paths.get(linked[i]));
+            embeddedTotal += before;
+            linkedTotal += after;
+            System.out.printf("  %-13s %,11d -> %,11d bytes%n", names[i], before, after);
+        }
+        System.out.printf("  %-13s %,11d -> %,11d bytes%n", "total", embeddedTotal, linkedTotal);
+
+        long embeddedBest = Long.MAX_VALUE;
+        long linkedReadBest = Long.MAX_VALUE;
+        long linkedBest = Long.MAX_VALUE;
+        long resolveBest = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            int read = 0;
+            for (String path : embedded) {
+                read += readObjects(path).size();
+            }
+            embeddedBest = Math.min(embeddedBest, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (String path : linked) {
+                readObjects(path);
+            }
+            linkedReadBest = Math.min(linkedReadBest, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            UserRepository users = new UserRepository(new SerializationStorageEngine<>(linked[0]));
+            InternshipRepository internships = new InternshipRepository(new SerializationStorageEngine<>(linked[1]));
+            InternshipApplicationRepository applications = new InternshipApplicationRepository(new SerializationStorageEngine<>(linked[2]));
+            long loaded = System.nanoTime();
+            ReferenceResolver.resolve(users, internships, applications);
+            long resolved = System.nanoTime();
+            linkedBest = Math.min(linkedBest, resolved - start);
+            resolveBest = Math.min(resolveBest, resolved - loaded);
+
+            InternshipApplication sample = applications.findById(data.applications.get(round).getId());
+            Checks.check(sample.getInternship() == internships.findById(sample.getInternshipId()), "canonical internship");
+            Checks.check(sample.getStudent() == users.findById(sample.getStudentId()), "canonical student");
+            Checks.check(read >= data.users().size() + data.internships.size() + data.applications.size(), "entities read");
+            users.close();
+            internships.close();
+            applications.close();
+        }
+        System.out.printf("  deserialize, best of %d: %.0f ms -> %.0f ms%n", rounds, embeddedBest / 1e6, linkedReadBest / 1e6);
+        System.out.printf("  load into repositories and resolve, best of %d: %.0f ms (of which %.0f ms resolving)%n", rounds,
+                linkedBest / 1e6, resolveBest / 1e6);
+    }
+
+    /**
+     * Returns the given entities followed by every entity they reach, each once.
+     */
+    private static List<Object> reachable(List<Object> roots) {
+        Set<Object> seen = new LinkedHashSet<>(roots);
+        List<Object> pending = new ArrayList<>(roots);
+        while (!pending.isEmpty()) {
+            Object entity = pending.remove(pending.size() - 1);
+            List<Object> references = new ArrayList<>();
+            if (entity instanceof Internship internship) {
+                references.add(internship.getCompRepIC());
+                references.addAll(internship.getInternshipApplications());
+            } else if (entity instanceof InternshipApplication application) {
+                references.add(application.getInternship());
+                references.add(application.getStudent());
+            } else if (!(entity instanceof User)) {
+                throw new IllegalArgumentException("Unexpected entity " + entity);
+            }
+            for (Object reference : references) {
+                if (reference != null && seen.add(reference)) pending.add(reference);
+            }
+        }
+        return new ArrayList<>(seen);
+    }
+
+    private static void writeObjects(String path, List<Object> objects) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
+            out.writeObject(new ArrayList<>(objects));
+        }
+    }
+
+    private static List<?> readObjects(String path) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+            return (List<?>) in.readObject();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package repository;
+
+import entity.Internship;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static repository.Checks.check;
+import static repository.Checks.checkEquals;
+
+/**
+ * Checks that a repository's ID index matches its entity list after arbitrary sequences of
+ * saves, deletes and archiving, and again after the repository is reloaded from disk. The
+ * expected contents are kept in a {@link LinkedHashMap}, whose insertion order is the order the
+ * repository must keep.
+ *
+ * <p>Run with {@code java repository.RepositoryIndexTest [seed]}.</p>
+ */
+public class RepositoryIndexTest {
+    private static final int OPERATIONS = 5_000;
+    private static final int IDS = 300;
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+        Random random = new Random(seed);
+        String dir = Checks.tempDir("index-test");
+        String path = dir + "internships.ser";
+
+        Map<String, Internship> expected = new LinkedHashMap<>();
+        Repository<Internship> repository = open(path);
+        for (int operation = 0; operation < OPERATIONS; operation++) {
+            String id = "INT" + random.nextInt(IDS);
+            int choice = random.nextInt(20);
+            if (choice < 12) {
+                // either a new instance or the stored one, as the controllers do
+                Internship internship = expected.containsKey(id) && random.nextBoolean()
+                        ? expected.get(id) : Checks.internship(id, random.nextInt(1000));
+                repository.save(internship);
+                expected.put(id, internship);
+            } else if (choice < 19) {
+                Internship internship = expected.containsKey(id) ? expected.get(id) : Checks.internship(id, 0);
+                repository.delete(internship);
+                expected.remove(id);
+            } else {
+                int modulus = 2 + random.nextInt(20);
+                int archived = repository.archive(internship -> internship.getId().hashCode() % modulus == 0);
+                int removed = 0;
+                for (String key : new ArrayList<>(expected.keySet())) {
+                    if (key.hashCode() % modulus == 0) {
+                        expected.remove(key);
+                        removed++;
+                    }
+                }
+                checkEquals(removed, archived, "entities archived");
+            }
+            verify(repository, expected, "after operation " + operation);
+        }
+
+        repository.close();
+        repository = open(path);
+        verify(repository, expected, "after reload");
+        repository.close();
+        System.out.println("RepositoryIndexTest passed: " + OPERATIONS + " operations, " + expected.size() + " entities left");
+    }
+
+    private static Repository<Internship> open(String path) {
+        return new Repository<>(new LogStructuredStorageEngine<>(new SerializationStorageEngine<>(path)),
+                EntityCodecs.internships());
+    }
+
+    /**
+     * Checks that the list holds the expected IDs in order, that every entity is indexed at its own
+     * position with no extra entries, and that every expected ID is found and no deleted one is.
+     */
+    private static void verify(Repository<Internship> repository, Map<String, Internship> expected, String when) {
+        List<String> ids = new ArrayList<>();
+        for (Internship internship : repository.entities) {
+            ids.add(internship.getId());
+        }
+        checkEquals(new ArrayList<>(expected.keySet()), ids, "entity order " + when);
+        Checks.checkIndex(repository, when);
+        for (int i = 0; i < IDS; i++) {
+            String id = "INT" + i;
+            Internship found = repository.findById(id);
+            check(expected.containsKey(id) == (found != null), "findById(" + id + ") " + when);
+            if (found != null) {
+                checkEquals(Checks.describe(expected.get(id)), Checks.describe(found), "fields of " + id + " " + when);
+            }
+        }
+    }
+}
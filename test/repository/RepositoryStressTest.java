@@ -0,0 +1,186 @@
+package repository;
+
+import entity.Internship;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static repository.Checks.check;
+import static repository.Checks.checkEquals;
+
+/**
+ * Hammers one repository from many threads and checks what its {@link java.util.concurrent.locks.StampedLock}
+ * and write-behind flushing promise: readers never see an entity under the wrong ID or a view with
+ * a duplicate, a view once handed out never changes, the ID index always matches the list, no
+ * update is lost, and once everything is flushed the file holds exactly what memory holds.
+ *
+ * <p>Writers save and delete a shared range of contended IDs, and each also counts up its own
+ * internships, saving a new instance with one more slot each time; since only the owning thread
+ * writes those, their final slot counts must equal the number of saves. Readers look up IDs,
+ * take views, and re-check the index under the read lock while the writers run. Every engine
+ * configuration is run with and without write-behind.</p>
+ *
+ * <p>Run with {@code java repository.RepositoryStressTest [operationsPerThread threads seed]}.</p>
+ */
+public class RepositoryStressTest {
+    private static final int SHARED_IDS = 200;
+    private static final int OWN_IDS = 20;
+
+    public static void main(String[] args) throws Exception {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+        Map<String, Function<String, StorageEngine<Internship>>> engines = new TreeMap<>();
+        engines.put("serialization", SerializationStorageEngine::new);
+        engines.put("binary", path -> new BinaryStorageEngine<>(path, EntityCodecs.internships()));
+        engines.put("log-structured", path -> new LogStructuredStorageEngine<>(new SerializationStorageEngine<>(path)));
+        engines.put("lazy, logged", path -> new LogStructuredStorageEngine<>(
+                new LazyBinaryStorageEngine<>(path, EntityCodecs.internships(), 16)));
+        for (Map.Entry<String, Function<String, StorageEngine<Internship>>> engine : engines.entrySet()) {
+            for (boolean writeBehind : new boolean[] {false, true}) {
+                long start = System.nanoTime();
+                run(engine.getValue(), writeBehind, operations, threads, seed);
+                System.out.printf("  %-15s %-13s %,d operations on %d threads in %.0f ms%n", engine.getKey(),
+                        writeBehind ? "write-behind" : "write-through", operations * threads, threads,
+                        (System.nanoTime() - start) / 1e6);
+            }
+        }
+        System.out.println("RepositoryStressTest passed");
+    }
+
+    private static void run(Function<String, StorageEngine<Internship>> engine, boolean writeBehind,
+                            int operations, int threads, long seed) throws Exception {
+        String path = Checks.tempDir("stress-test") + "internships.ser";
+        // start from a stored file, so a lazy engine decodes entities on demand during the run
+        List<Internship> stored = new ArrayList<>();
+        for (int i = 0; i < SHARED_IDS; i += 2) {
+            stored.add(Checks.internship("INT" + i, i));
+        }
+        StorageEngine<Internship> seeding = engine.apply(path);
+        seeding.snapshot(stored);
+        seeding.close();
+
+        Repository<Internship> repository = new Repository<>(engine.apply(path), EntityCodecs.internships());
+        if (writeBehind) {
+            repository.enableWriteBehind(5, 64, false);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads * 2);
+        List<Future<int[]>> writers = new ArrayList<>();
+        List<Future<?>> readers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            writers.add(pool.submit(() -> write(repository, thread, operations, new Random(seed * 31 + thread))));
+            readers.add(pool.submit(() -> {
+                read(repository, operations, new Random(seed * 37 + thread));
+                return null;
+            }));
+        }
+        List<int[]> counts = new ArrayList<>();
+        for (Future<int[]> writer : writers) {
+            counts.add(writer.get());
+        }
+        for (Future<?> reader : readers) {
+            reader.get();
+        }
+        pool.shutdown();
+
+        repository.flush().join();
+        Checks.checkIndex(repository, "after the run");
+        for (int thread = 0; thread < threads; thread++) {
+            for (int k = 0; k < OWN_IDS; k++) {
+                Internship own = repository.findById(ownId(thread, k));
+                checkEquals(counts.get(thread)[k], own == null ? 0 : own.getNumOfSlots(), "slots of " + ownId(thread, k));
+            }
+        }
+        Set<String> inMemory = describeAll(repository);
+        repository.close();
+
+        Repository<Internship> reopened = new Repository<>(engine.apply(path), EntityCodecs.internships());
+        checkEquals(inMemory, describeAll(reopened), "entities after reopening");
+        Checks.checkIndex(reopened, "after reopening");
+        reopened.close();
+    }
+
+    /**
+     * Saves and deletes contended IDs, and counts up this thread's own internships.
+     *
+     * @return The number of saves of each of this thread's own internships.
+     */
+    private static int[] write(Repository<Internship> repository, int thread, int operations, Random random) {
+        int[] counts = new int[OWN_IDS];
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (int operation = 0; operation < operations; operation++) {
+            int choice = random.nextInt(10);
+            CompletableFuture<Void> durable;
+            if (choice < 4) {
+                int k = random.nextInt(OWN_IDS);
+                Internship own = Checks.internship(ownId(thread, k), k);
+                own.setNumOfSlots(++counts[k]);
+                durable = repository.save(own);
+            } else if (choice < 8) {
+                durable = repository.save(Checks.internship("INT" + random.nextInt(SHARED_IDS), random.nextInt(1000)));
+            } else {
+                durable = repository.delete(Checks.internship("INT" + random.nextInt(SHARED_IDS), 0));
+            }
+            pending.add(durable);
+        }
+        for (CompletableFuture<Void> durable : pending) {
+            durable.join();
+        }
+        return counts;
+    }
+
+    /**
+     * Looks up IDs and takes views while the writers run, checking that every entity found has the
+     * ID it was found under and that a view never changes once handed out.
+     */
+    private static void read(Repository<Internship> repository, int operations, Random random) {
+        for (int operation = 0; operation < operations; operation++) {
+            int choice = random.nextInt(20);
+            if (choice < 16) {
+                String id = "INT" + random.nextInt(SHARED_IDS);
+                Internship found = repository.findById(id);
+                check(found == null || found.getId().equals(id), "findById(" + id + ") returned " + (found == null ? null : found.getId()));
+            } else if (choice < 19) {
+                List<Internship> view = repository.snapshot();
+                List<String> ids = new ArrayList<>();
+                for (Internship internship : view) {
+                    ids.add(internship.getId());
+                }
+                checkEquals(ids.size(), new HashSet<>(ids).size(), "distinct IDs in a view");
+                Thread.yield();
+                List<String> again = new ArrayList<>();
+                for (Internship internship : view) {
+                    again.add(internship.getId());
+                }
+                checkEquals(ids, again, "a view after later writes");
+            } else {
+                Checks.checkIndex(repository, "during the run");
+            }
+        }
+    }
+
+    private static String ownId(int thread, int k) {
+        return "OWN" + thread + "-" + k;
+    }
+
+    private static Set<String> describeAll(Repository<Internship> repository) {
+        Set<String> described = new HashSet<>();
+        for (Internship internship : repository.snapshot()) {
+            check(described.add(Checks.describe(internship)), "duplicate entity " + internship.getId());
+        }
+        return described;
+    }
+}
@@ -0,0 +1,86 @@
+package repository;
+
+import entity.CompanyRep;
+import entity.Internship;
+import entity.InternshipApplication;
+import entity.Student;
+import entity.User;
+import entity.enums.ApplicationStatus;
+import entity.enums.InternshipLevel;
+import entity.enums.InternshipStatus;
+import entity.enums.Major;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A generated, fully linked data set for the benchmarks and stress tests: students, company
+ * representatives, their internships and the applications between them, with distinct
+ * realistic strings so encoded sizes are representative.
+ */
+final class SampleData {
+    final List<Student> students = new ArrayList<>();
+    final List<CompanyRep> companyReps = new ArrayList<>();
+    final List<Internship> internships = new ArrayList<>();
+    final List<InternshipApplication> applications = new ArrayList<>();
+
+    /**
+     * Generates a data set. The same arguments always generate the same data.
+     *
+     * @param studentCount The number of students.
+     * @param internshipCount The number of internships, posted by one representative per five internships.
+     * @param applicationCount The number of applications, each by a random student for a random internship.
+     * @param seed The seed of the generator.
+     * @return The data set, with every reference set in both directions.
+     */
+    static SampleData generate(int studentCount, int internshipCount, int applicationCount, long seed) {
+        Random random = new Random(seed);
+        SampleData data = new SampleData();
+        Major[] majors = Major.values();
+        for (int i = 0; i < studentCount; i++) {
+            data.students.add(new Student(String.format("U%07d%c", i, 'A' + i % 26), "Student Name " + i,
+                    "password" + random.nextInt(1000), 1 + random.nextInt(4), majors[random.nextInt(majors.length)]));
+        }
+        for (int i = 0; i < Math.max(1, internshipCount / 5); i++) {
+            CompanyRep rep = new CompanyRep("rep" + i + "@company" + i % 200 + ".com", "Representative " + i,
+                    "password", "Company " + i % 200, "Department " + i % 7, "Position " + i % 5);
+            data.companyReps.add(rep);
+        }
+        long day = 86_400_000L;
+        for (int i = 0; i < internshipCount; i++) {
+            long opens = 1_700_000_000_000L + random.nextInt(730) * day;
+            CompanyRep rep = data.companyReps.get(i % data.companyReps.size());
+            Internship internship = new Internship(String.format("INT%08d", i + 1), "Internship title " + i,
+                    "Description of internship " + i + " with duties, requirements and other details " + random.nextInt(),
+                    InternshipLevel.values()[random.nextInt(InternshipLevel.values().length)],
+                    majors[random.nextInt(majors.length)], new Date(opens), new Date(opens + (14 + random.nextInt(60)) * day),
+                    InternshipStatus.values()[random.nextInt(InternshipStatus.values().length)],
+                    rep.getCompanyName(), rep, 1 + random.nextInt(10));
+            internship.setVisibility(random.nextBoolean());
+            data.internships.add(internship);
+        }
+        for (int i = 0; i < applicationCount; i++) {
+            Internship internship = data.internships.get(random.nextInt(data.internships.size()));
+            Student student = data.students.get(random.nextInt(data.students.size()));
+            InternshipApplication application = new InternshipApplication(String.format("APP%08d", i + 1), internship, student);
+            application.setApplicationStatus(ApplicationStatus.values()[random.nextInt(ApplicationStatus.values().length)]);
+            application.setOfferAccepted(application.getApplicationStatus() == ApplicationStatus.SUCCESSFUL && random.nextBoolean());
+            internship.getInternshipApplications().add(application);
+            data.applications.add(application);
+        }
+        return data;
+    }
+
+    /**
+     * Returns the students followed by the company representatives.
+     *
+     * @return A new list of all users.
+     */
+    List<User> users() {
+        List<User> users = new ArrayList<>(students);
+        users.addAll(companyReps);
+        return users;
+    }
+}
@@ -0,0 +1,100 @@
+package repository;
+
+import entity.CareerCentreStaff;
+import entity.CompanyRep;
+import entity.Student;
+import entity.User;
+import entity.enums.Major;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static repository.Checks.check;
+import static repository.Checks.checkEquals;
+
+/**
+ * Checks the {@link UserRepository}'s index of staff IDs on lazily loaded users: it is built from
+ * the record index without decoding a user, follows saves and deletions, survives a restart that
+ * replays the log, and is rebuilt correctly when the record index is missing.
+ *
+ * <p>Run with {@code java repository.StaffIndexTest}.</p>
+ */
+public class StaffIndexTest {
+    private static final int USERS = 3_000;
+
+    public static void main(String[] args) throws IOException {
+        String path = Checks.tempDir("staff-index-test") + "users.ser";
+        List<User> users = new ArrayList<>();
+        List<String> staff = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            String id = "U" + i;
+            if (i % 97 == 0) {
+                users.add(new CareerCentreStaff(id, "Staff " + i, "password", "Careers"));
+                staff.add(id);
+            } else if (i % 5 == 0) {
+                users.add(new CompanyRep(id, "Rep " + i, "password", "Company " + i, "HR", "Recruiter"));
+            } else {
+                users.add(new Student(id, "Student " + i, "password", 1 + i % 4, Major.values()[i % Major.values().length]));
+            }
+        }
+        LazyBinaryStorageEngine<User> writer = new LazyBinaryStorageEngine<>(path, EntityCodecs.users());
+        writer.load();
+        writer.snapshot(users);
+        writer.close();
+
+        AtomicInteger decoded = new AtomicInteger();
+        UserRepository repository = open(path, decoded);
+        check(repository.isLazy(), "the users were not loaded lazily");
+        checkEquals(staff, repository.getCareerCentreStaffIds(), "staff IDs");
+        checkEquals(0, decoded.get(), "users decoded to find the staff");
+
+        repository.delete(repository.findById("U97"));
+        staff.remove("U97");
+        repository.save(new CareerCentreStaff("U3000", "Staff 3000", "password", "Careers"));
+        staff.add("U3000");
+        repository.save(new CareerCentreStaff("U0", "Staff 0", "changed", "Careers"));
+        repository.save(new Student("U1", "Student 1", "changed", 2, Major.BIOENGINEERING));
+        checkEquals(staff, repository.getCareerCentreStaffIds(), "staff IDs after saves and a deletion");
+        repository.close();
+
+        repository = open(path, decoded);
+        checkEquals(staff, repository.getCareerCentreStaffIds(), "staff IDs after replaying the log");
+        repository.close();
+
+        Files.delete(Paths.get(path + ".idx"));
+        repository = open(path, decoded);
+        checkEquals(staff, repository.getCareerCentreStaffIds(), "staff IDs after rebuilding the record index");
+        repository.close();
+        System.out.println("StaffIndexTest passed");
+    }
+
+    /** Opens the users lazily, counting the users decoded. */
+    private static UserRepository open(String path, AtomicInteger decoded) {
+        EntityCodec<User> users = EntityCodecs.users();
+        EntityCodec<User> counting = new EntityCodec<>() {
+            @Override
+            public void write(User user, ObjectOutput out) throws IOException {
+                users.write(user, out);
+            }
+
+            @Override
+            public User read(ObjectInput in) throws IOException {
+                decoded.incrementAndGet();
+                return users.read(in);
+            }
+
+            @Override
+            public byte tag(User user) {
+                return users.tag(user);
+            }
+        };
+        decoded.set(0);
+        return new UserRepository(new LogStructuredStorageEngine<>(new LazyBinaryStorageEngine<>(path, counting)));
+    }
+}
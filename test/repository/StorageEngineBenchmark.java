@@ -0,0 +1,81 @@
+package repository;
+
+import entity.Internship;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Measures every {@link StorageEngine} on the same internships: the time to write them all as a
+ * snapshot, the mean time to sync a single changed internship, as a controller's save does, the
+ * time to load them again and to read every field of every one, and the bytes on disk afterwards.
+ *
+ * <p>Run with {@code java repository.StorageEngineBenchmark [internships syncs]}.</p>
+ */
+public class StorageEngineBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int syncs = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        SampleData data = SampleData.generate(count / 5, count, count, 11);
+
+        System.out.printf("%,d internships, %,d single-internship syncs%n", count, syncs);
+        System.out.printf("  %-15s %10s %12s %10s %14s %14s%n", "engine", "snapshot", "sync (mean)", "load", "load + read", "on disk");
+        for (Map.Entry<String, Function<String, StorageEngine<Internship>>> factory : Checks.internshipEngines().entrySet()) {
+            String dir = Checks.tempDir("engine-bench");
+            String path = dir + "internships.ser";
+            List<Internship> internships = new ArrayList<>(data.internships);
+            Random random = new Random(3);
+
+            StorageEngine<Internship> engine = factory.getValue().apply(path);
+            engine.load();
+            long start = System.nanoTime();
+            engine.snapshot(internships);
+            long snapshotNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < syncs; i++) {
+                Internship changed = internships.get(random.nextInt(internships.size()));
+                changed.setNumOfSlots(1 + random.nextInt(10));
+                engine.upsert(changed);
+                engine.sync(() -> internships, false);
+            }
+            long syncNanos = (System.nanoTime() - start) / syncs;
+            engine.close();
+
+            engine = factory.getValue().apply(path);
+            start = System.nanoTime();
+            List<Internship> loaded = engine.load();
+            long loadNanos = System.nanoTime() - start;
+            long fields = 0;
+            for (Internship internship : loaded) {
+                fields += Checks.describe(internship).length();
+            }
+            long readNanos = System.nanoTime() - start;
+            Checks.checkEquals(internships.size(), loaded.size(), "internships loaded by " + factory.getKey());
+            Checks.check(fields > 0, "fields read");
+            engine.close();
+
+            System.out.printf("  %-15s %7.1f ms %9.3f ms %7.1f ms %11.1f ms %,14d%n", factory.getKey(), snapshotNanos / 1e6,
+                    syncNanos / 1e6, loadNanos / 1e6, readNanos / 1e6, sizeOf(Paths.get(dir)));
+        }
+    }
+
+    private static long sizeOf(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            long bytes = 0;
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                bytes += Files.size(file);
+            }
+            return bytes;
+        }
+    }
+}
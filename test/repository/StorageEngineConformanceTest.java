@@ -0,0 +1,134 @@
+package repository;
+
+import entity.Internship;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import static repository.Checks.check;
+import static repository.Checks.checkEquals;
+
+/**
+ * Checks every {@link StorageEngine} against the same contract: a new engine loads nothing, a
+ * synced mutation survives reopening, a later mutation of the same ID supersedes an earlier one
+ * even within one batch, deleting an ID that is not stored does nothing, a snapshot replaces
+ * everything, and a file the engine cannot read makes loading fail and is left untouched. The
+ * expected contents are kept in a {@link LinkedHashMap}; engines return entities in insertion
+ * order, except the {@link LsmStorageEngine}, which returns them in ID order.
+ *
+ * <p>Besides each engine with its default settings, the lazy engine is also run with a cache of a
+ * few entities and the LSM engine with a small memtable, so that evictions, segment writes and
+ * background merges all happen during the run.</p>
+ *
+ * <p>Run with {@code java repository.StorageEngineConformanceTest [rounds seed]}.</p>
+ */
+public class StorageEngineConformanceTest {
+    private static final int IDS = 400;
+
+    public static void main(String[] args) throws IOException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+
+        Map<String, Function<String, StorageEngine<Internship>>> engines = Checks.internshipEngines();
+        engines.put("lazy-binary, cache of 8", path -> new LazyBinaryStorageEngine<>(path, EntityCodecs.internships(), 8));
+        engines.put("lsm, memtable of 32", path -> new LsmStorageEngine<>(path, EntityCodecs.internships(), 32));
+        for (Map.Entry<String, Function<String, StorageEngine<Internship>>> engine : engines.entrySet()) {
+            boolean idOrder = engine.getKey().startsWith("lsm");
+            checkEngine(engine.getKey(), engine.getValue(), idOrder, rounds, new Random(seed));
+            checkUnreadable(engine.getKey(), engine.getValue());
+            System.out.println("  " + engine.getKey() + " conforms");
+        }
+        System.out.println("StorageEngineConformanceTest passed");
+    }
+
+    private static void checkEngine(String name, Function<String, StorageEngine<Internship>> factory, boolean idOrder,
+                                    int rounds, Random random) throws IOException {
+        String path = Checks.tempDir("conformance-test") + "internships.ser";
+        Map<String, Internship> expected = new LinkedHashMap<>();
+        StorageEngine<Internship> engine = factory.apply(path);
+        verify(engine.load(), expected, idOrder, name + " when new");
+
+        for (int round = 0; round < rounds; round++) {
+            int mutations = 1 + random.nextInt(random.nextInt(10) == 0 ? 200 : 8);
+            for (int i = 0; i < mutations; i++) {
+                String id = String.format("INT%08d", random.nextInt(IDS));
+                if (random.nextInt(4) == 0) {
+                    engine.delete(id);
+                    expected.remove(id);
+                } else {
+                    Internship internship = Checks.internship(id, random.nextInt(1000));
+                    engine.upsert(internship);
+                    expected.put(id, internship);
+                }
+            }
+            List<Internship> current = new ArrayList<>(expected.values());
+            engine.sync(() -> current, false);
+
+            if (random.nextInt(20) == 0) {
+                List<Internship> replacement = new ArrayList<>();
+                for (Internship internship : expected.values()) {
+                    if (random.nextBoolean()) replacement.add(Checks.internship(internship.getId(), random.nextInt(1000)));
+                }
+                engine.snapshot(replacement);
+                expected.clear();
+                for (Internship internship : replacement) {
+                    expected.put(internship.getId(), internship);
+                }
+            }
+            if (random.nextInt(10) == 0) {
+                engine.close();
+                engine = factory.apply(path);
+                verify(engine.load(), expected, idOrder, name + " after round " + round);
+            }
+        }
+        engine.close();
+        engine = factory.apply(path);
+        verify(engine.load(), expected, idOrder, name + " after the last round");
+        engine.close();
+    }
+
+    /**
+     * Checks that loading a file the engine cannot read throws rather than loading nothing, which
+     * would let the next sync overwrite the file, and that the file is left as it was.
+     */
+    private static void checkUnreadable(String name, Function<String, StorageEngine<Internship>> factory) throws IOException {
+        Path path = Paths.get(Checks.tempDir("conformance-test") + "internships.ser");
+        byte[] contents = "not a data file of any engine".getBytes(StandardCharsets.UTF_8);
+        Files.write(path, contents);
+        StorageEngine<Internship> engine = factory.apply(path.toString());
+        boolean failed = false;
+        try {
+            engine.load();
+        } catch (UncheckedIOException e) {
+            failed = true;
+        }
+        check(failed, name + " loaded a file it cannot read");
+        check(Arrays.equals(contents, Files.readAllBytes(path)), name + " changed a file it cannot read");
+        engine.close();
+    }
+
+    private static void verify(List<Internship> loaded, Map<String, Internship> expected, boolean idOrder, String when) {
+        Map<String, Internship> ordered = idOrder ? new TreeMap<>(expected) : expected;
+        List<String> want = new ArrayList<>();
+        for (Internship internship : ordered.values()) {
+            want.add(Checks.describe(internship));
+        }
+        List<String> got = new ArrayList<>();
+        for (Internship internship : loaded) {
+            got.add(Checks.describe(internship));
+        }
+        checkEquals(want, got, "entities loaded by " + when);
+    }
+}
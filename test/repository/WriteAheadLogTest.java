@@ -0,0 +1,100 @@
+package repository;
+
+import entity.Internship;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static repository.Checks.check;
+import static repository.Checks.checkEquals;
+
+/**
+ * Checks how a {@link WriteAheadLog} replays a damaged file: a torn final record is cut off so
+ * later appends are not hidden behind it, while a complete record that cannot be decoded makes
+ * replay fail without changing the file, so the valid records after it are kept.
+ *
+ * <p>Run with {@code java repository.WriteAheadLogTest}.</p>
+ */
+public class WriteAheadLogTest {
+
+    public static void main(String[] args) throws IOException {
+        String dir = Checks.tempDir("wal-test");
+        for (Compression compression : Arrays.asList(null, Compressions.deflate(1))) {
+            tornTailIsTruncated(dir + "torn-" + compression, compression);
+            badRecordFailsWithoutTruncating(dir + "opcode-" + compression, compression);
+        }
+        encodedUpsertWithoutCodecFails(dir + "codec");
+        System.out.println("WriteAheadLogTest passed");
+    }
+
+    private static void tornTailIsTruncated(String path, Compression compression) throws IOException {
+        WriteAheadLog<Internship> log = new WriteAheadLog<>(path, EntityCodecs.internships(), compression);
+        log.appendBatch(batch("INT1", "INT2"), false);
+        long complete = Files.size(Paths.get(path));
+        log.appendBatch(batch("INT3"), false);
+        try (RandomAccessFile file = new RandomAccessFile(path, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        checkEquals(List.of("INT1", "INT2"), replay(path, compression), "records replayed before a torn tail");
+        checkEquals(complete, Files.size(Paths.get(path)), "length after cutting off the torn tail");
+
+        log.appendBatch(batch("INT4"), false);
+        checkEquals(List.of("INT1", "INT2", "INT4"), replay(path, compression), "records appended after the cut");
+    }
+
+    private static void badRecordFailsWithoutTruncating(String path, Compression compression) throws IOException {
+        WriteAheadLog<Internship> log = new WriteAheadLog<>(path, EntityCodecs.internships(), compression);
+        log.appendBatch(batch("INT1"), false);
+        try (FileOutputStream out = new FileOutputStream(path, true)) {
+            out.write(99);
+        }
+        log.appendBatch(batch("INT2"), false);
+        byte[] before = Files.readAllBytes(Paths.get(path));
+
+        List<String> replayed = new ArrayList<>();
+        try {
+            new WriteAheadLog<Internship>(path, EntityCodecs.internships(), compression)
+                    .replay(internship -> replayed.add(internship.getId()), replayed::add);
+            throw new AssertionError("Replaying an unknown opcode should fail");
+        } catch (IOException expected) {
+            // the records before the bad one have been replayed
+        }
+        checkEquals(List.of("INT1"), replayed, "records replayed before an unknown opcode");
+        check(Arrays.equals(before, Files.readAllBytes(Paths.get(path))), "log changed by a failed replay");
+    }
+
+    private static void encodedUpsertWithoutCodecFails(String path) throws IOException {
+        new WriteAheadLog<>(path, EntityCodecs.internships()).appendBatch(batch("INT1", "INT2"), false);
+        long length = Files.size(Paths.get(path));
+        try {
+            new WriteAheadLog<Internship>(path).replay(internship -> { }, id -> { });
+            throw new AssertionError("Replaying an encoded upsert without a codec should fail");
+        } catch (IOException expected) {
+            // the log is kept for a reader with the codec
+        }
+        checkEquals(length, Files.size(Paths.get(path)), "log length after a failed replay");
+        checkEquals(List.of("INT1", "INT2"), replay(path, null), "records replayed with the codec");
+    }
+
+    private static MutationBatch<Internship> batch(String... ids) {
+        MutationBatch<Internship> batch = new MutationBatch<>();
+        for (String id : ids) {
+            batch.upsert(id, Checks.internship(id, id.hashCode() & 0xff));
+        }
+        return batch;
+    }
+
+    private static List<String> replay(String path, Compression compression) throws IOException {
+        List<String> replayed = new ArrayList<>();
+        new WriteAheadLog<Internship>(path, EntityCodecs.internships(), compression)
+                .replay(internship -> replayed.add(internship.getId()), replayed::add);
+        return replayed;
+    }
+}
@@ -0,0 +1,106 @@
+package util.filter;
+
+import control.InternshipController;
+import entity.Internship;
+import entity.enums.InternshipLevel;
+import entity.enums.InternshipStatus;
+import entity.enums.Major;
+import repository.InternshipRepository;
+import repository.SerializationStorageEngine;
+import repository.UserRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compares {@link InternshipController#generateReport(ArrayList)}, which plans the filters with
+ * {@link FilterPlanner}, with evaluating the filters in the order they were added on every
+ * internship, as reports did before the planner. Each report combines a company filter with
+ * status, level and major filters, in a random order, and both ways must return the same internships.
+ *
+ * <p>Run with {@code java util.filter.FilterPlannerBenchmark [internships companies reports]}.</p>
+ */
+public class FilterPlannerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int companies = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int reports = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        Random random = new Random(7);
+
+        List<Internship> internships = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Internship internship = new Internship(String.format("INT%08d", i + 1), "Title " + i, "Description " + i,
+                    pick(random, InternshipLevel.values()), pick(random, Major.values()), new Date(), new Date(),
+                    pick(random, InternshipStatus.values()), "Company " + random.nextInt(companies), null, 1);
+            internship.setVisibility(random.nextBoolean());
+            internships.add(internship);
+        }
+        Path dir = Files.createTempDirectory("planner-bench");
+        String path = dir + "/internships.ser";
+        new SerializationStorageEngine<Internship>(path).snapshot(internships);
+        InternshipRepository repository = new InternshipRepository(new SerializationStorageEngine<>(path));
+        UserRepository users = new UserRepository(new SerializationStorageEngine<>(dir + "/users.ser"));
+        InternshipController controller = new InternshipController(repository, users);
+
+        List<ArrayList<Filter>> chains = new ArrayList<>();
+        for (int i = 0; i < reports; i++) {
+            ArrayList<Filter> chain = new ArrayList<>(List.of(
+                    new CompanyFilter("company " + random.nextInt(companies)),
+                    new StatusFilter(pick(random, InternshipStatus.values())),
+                    new LevelFilter(pick(random, InternshipLevel.values())),
+                    new MajorFilter(pick(random, Major.values()))));
+            Collections.shuffle(chain, random);
+            chains.add(chain);
+        }
+
+        for (int round = 0; round < 5; round++) {
+            long matched = 0;
+            long start = System.nanoTime();
+            List<List<Internship>> unplanned = new ArrayList<>();
+            for (ArrayList<Filter> chain : chains) {
+                List<Internship> report = repository.findAll().stream()
+                        .filter(internship -> chain.stream().allMatch(filter -> filter.matches(internship)))
+                        .collect(Collectors.toList());
+                unplanned.add(report);
+                matched += report.size();
+            }
+            long unplannedNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<List<Internship>> planned = new ArrayList<>();
+            for (ArrayList<Filter> chain : chains) {
+                planned.add(controller.generateReport(chain));
+            }
+            long plannedNanos = System.nanoTime() - start;
+
+            for (int i = 0; i < chains.size(); i++) {
+                if (!new HashSet<>(unplanned.get(i)).equals(new HashSet<>(planned.get(i)))) {
+                    throw new AssertionError("Report " + i + " differs between the planned and unplanned runs");
+                }
+            }
+            System.out.printf("round %d: %d reports over %,d internships (%d rows matched): in added order %.1f ms, planned %.1f ms%n",
+                    round + 1, reports, count, matched, unplannedNanos / 1e6, plannedNanos / 1e6);
+        }
+        repository.close();
+        users.close();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    private static <E> E pick(Random random, E[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
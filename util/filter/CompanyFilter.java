@@ -15,23 +15,53 @@ public class CompanyFilter implements Filter {
 
     /**
      * Constructs a CompanyFilter with the specified company name search term.
-     * The search term is converted to uppercase internally for case-insensitive matching.
      *
      * @param companyName The company name (or part of the name) to search for.
      */
     public CompanyFilter(String companyName) {
-        this.companyName = companyName.toUpperCase();
+        this.companyName = companyName;
     }
 
     /**
      * Checks if the given internship's company name contains the search term
-     * specified in this filter, ignoring case.
+     * specified in this filter, ignoring case. The comparison is done in place,
+     * without building lower-cased copies of the name.
      *
      * @param internship The Internship object to check.
      * @return true if the company name contains the filter term, false otherwise.
      */
     @Override
     public boolean matches(Internship internship) {
-        return internship.getCompanyName().toLowerCase().contains(companyName);
+        String name = internship.getCompanyName();
+        if (name == null) return false;
+
+        for (int start = 0; start + companyName.length() <= name.length(); start++) {
+            if (name.regionMatches(true, start, companyName, 0, companyName.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Estimates selectivity from the repository's histogram of company names.
+     *
+     * @param statistics live statistics about the stored internships
+     * @return the fraction of internships whose company name contains the term
+     */
+    @Override
+    public double selectivity(FilterStatistics statistics) {
+        int total = statistics.totalCount();
+        return total == 0 ? 0.0 : (double) statistics.countCompanyNameContaining(companyName) / total;
+    }
+
+    /**
+     * A substring search costs several times more than an enum comparison.
+     *
+     * @return the estimated cost per internship
+     */
+    @Override
+    public double cost() {
+        return 4.0;
     }
 }
@@ -8,6 +8,7 @@ import entity.Internship;
  * (e.g., filtering by Major, Level, or Status) used within the application.
  *
  * It is marked {@code @FunctionalInterface} as it defines a single abstract method.
+ * Filters that test an indexed enum attribute implement {@link IndexedFilter} instead.
  */
 @FunctionalInterface
 public interface Filter {
@@ -21,4 +22,24 @@ public interface Filter {
      * @return {@code true} if the Internship matches the filter condition, {@code false} otherwise.
      */
     boolean matches(Internship internship);
+
+    /**
+     * Estimates the fraction of internships this filter lets through, between 0 and 1.
+     * Used by {@link FilterPlanner} to order filters; the default assumes nothing is known.
+     *
+     * @param statistics live statistics about the stored internships
+     * @return the estimated selectivity
+     */
+    default double selectivity(FilterStatistics statistics) {
+        return 1.0;
+    }
+
+    /**
+     * Estimates the relative cost of one call to {@link #matches}, where 1 is a simple field comparison.
+     *
+     * @return the estimated cost per internship
+     */
+    default double cost() {
+        return 1.0;
+    }
 }
@@ -0,0 +1,79 @@
+package util.filter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Orders a chain of {@link Filter}s so that a report does as little work as possible.
+ *
+ * <p>Index-backed filters ({@link IndexedFilter}) are routed to the bitmap index, most selective
+ * first. The remaining filters are evaluated per internship in ascending order of
+ * {@code cost / (1 - selectivity)}, so cheap filters that reject many internships run first and
+ * {@code allMatch} can stop early. If any filter is estimated to match nothing, the whole plan is
+ * marked empty and no internship needs to be touched.</p>
+ */
+public class FilterPlanner {
+
+    private FilterPlanner() {
+    }
+
+    /**
+     * The outcome of planning: which filters go to the index and in what order the rest are evaluated.
+     *
+     * @param indexed  filters answered by the bitmap index, most selective first
+     * @param residual filters evaluated per internship, in evaluation order
+     * @param empty    {@code true} if the statistics show that no internship can match
+     */
+    public record FilterPlan(List<IndexedFilter> indexed, List<Filter> residual, boolean empty) {
+
+        /**
+         * Returns the attribute values of the index-backed filters.
+         *
+         * @return the keys to look up in the bitmap index
+         */
+        public List<Enum<?>> indexKeys() {
+            List<Enum<?>> keys = new ArrayList<>();
+            for (IndexedFilter filter : indexed) {
+                keys.add(filter.indexKey());
+            }
+            return keys;
+        }
+    }
+
+    /**
+     * Builds a plan for the given filters using the current statistics.
+     *
+     * @param filters the filters to combine with AND
+     * @param statistics live statistics about the stored internships
+     * @return the plan to execute
+     */
+    public static FilterPlan plan(List<Filter> filters, FilterStatistics statistics) {
+        List<IndexedFilter> indexed = new ArrayList<>();
+        List<Filter> residual = new ArrayList<>();
+        boolean empty = false;
+
+        for (Filter filter : filters) {
+            if (filter.selectivity(statistics) == 0.0) {
+                empty = true;
+            }
+            if (filter instanceof IndexedFilter indexedFilter) {
+                indexed.add(indexedFilter);
+            } else {
+                residual.add(filter);
+            }
+        }
+
+        indexed.sort(Comparator.comparingDouble(f -> f.selectivity(statistics)));
+        residual.sort(Comparator.comparingDouble(f -> rank(f, statistics)));
+        return new FilterPlan(indexed, residual, empty);
+    }
+
+    /**
+     * Ranks a filter by its expected cost per internship it rejects; lower ranks run first.
+     */
+    private static double rank(Filter filter, FilterStatistics statistics) {
+        double rejected = 1.0 - filter.selectivity(statistics);
+        return rejected <= 0.0 ? Double.MAX_VALUE : filter.cost() / rejected;
+    }
+}
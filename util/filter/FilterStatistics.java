@@ -0,0 +1,33 @@
+package util.filter;
+
+/**
+ * Live statistics about the stored internships, used to estimate how selective a
+ * {@link Filter} is before it is evaluated.
+ *
+ * <p>Implemented by the internship repository, which keeps the underlying per-attribute
+ * histograms up to date as internships are saved and deleted.</p>
+ */
+public interface FilterStatistics {
+    /**
+     * Returns the total number of internships.
+     *
+     * @return the number of stored internships
+     */
+    int totalCount();
+
+    /**
+     * Returns the number of internships holding the given enum attribute value.
+     *
+     * @param key a {@code Major}, {@code InternshipLevel} or {@code InternshipStatus} value
+     * @return the number of internships with that value
+     */
+    int countMatching(Enum<?> key);
+
+    /**
+     * Returns the number of internships whose company name contains the given term, ignoring case.
+     *
+     * @param term the search term
+     * @return the number of internships with a matching company name
+     */
+    int countCompanyNameContaining(String term);
+}
@@ -0,0 +1,30 @@
+package util.filter;
+
+/**
+ * A {@link Filter} whose condition is equality on one enum attribute of an internship
+ * (its major, level or status).
+ *
+ * <p>Because such attributes are bitmap-indexed by the internship repository, a filter
+ * implementing this interface declares itself index-backed: the report generator hands its
+ * {@link #indexKey()} to the index instead of calling {@link #matches} on every internship.</p>
+ */
+public interface IndexedFilter extends Filter {
+    /**
+     * Returns the attribute value an internship must hold to match this filter.
+     *
+     * @return The enum value looked up in the index.
+     */
+    Enum<?> indexKey();
+
+    /**
+     * Estimates selectivity from the exact number of internships holding {@link #indexKey()}.
+     *
+     * @param statistics live statistics about the stored internships
+     * @return the fraction of internships matching this filter
+     */
+    @Override
+    default double selectivity(FilterStatistics statistics) {
+        int total = statistics.totalCount();
+        return total == 0 ? 0.0 : (double) statistics.countMatching(indexKey()) / total;
+    }
+}
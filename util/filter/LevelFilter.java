@@ -8,7 +8,7 @@ import entity.enums.InternshipLevel;
  * Implements the {@link Filter} interface to check if an {@link Internship}'s
  * required level matches a specific {@link InternshipLevel}.
  */
-public class LevelFilter implements Filter {
+public class LevelFilter implements IndexedFilter {
 
     private final InternshipLevel internshipLevel;
 
@@ -32,4 +32,14 @@ public class LevelFilter implements Filter {
     public boolean matches(Internship internship) {
         return internship.getLevel().equals(internshipLevel);
     }
+
+    /**
+     * Returns the level this filter matches, so it can be looked up in the bitmap index.
+     *
+     * @return the level an internship must have
+     */
+    @Override
+    public Enum<?> indexKey() {
+        return internshipLevel;
+    }
 }
@@ -8,7 +8,7 @@ import entity.enums.Major;
  * Implements the {@link Filter} interface to check if an {@link Internship}'s
  * required Major matches a specific {@link InternshipMajor}.
  */
-public class MajorFilter implements Filter {
+public class MajorFilter implements IndexedFilter {
 
     private final Major major;
 
@@ -34,4 +34,14 @@ public class MajorFilter implements Filter {
     public boolean matches(Internship internship) {
         return internship.getPreferredMajor().equals(major);
     }
+
+    /**
+     * Returns the major this filter matches, so it can be looked up in the bitmap index.
+     *
+     * @return the preferred major an internship must have
+     */
+    @Override
+    public Enum<?> indexKey() {
+        return major;
+    }
 }
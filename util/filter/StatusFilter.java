@@ -7,7 +7,7 @@ import entity.enums.InternshipStatus;
  * Implements the {@link Filter} interface to check if an {@link Internship}'s
  * current status matches a specific {@link InternshipStatus}.
  */
-public class StatusFilter implements  Filter{
+public class StatusFilter implements IndexedFilter {
 
     private final InternshipStatus internshipStatus;
 
@@ -32,4 +32,14 @@ public class StatusFilter implements  Filter{
     public boolean matches(Internship internship) {
         return internship.getInternshipStatus().equals(internshipStatus);
     }
+
+    /**
+     * Returns the status this filter matches, so it can be looked up in the bitmap index.
+     *
+     * @return the status an internship must have
+     */
+    @Override
+    public Enum<?> indexKey() {
+        return internshipStatus;
+    }
 }